@@ -0,0 +1,20 @@
+package com.mishail.country_search.aspect;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.mishail.country_search.ControllerCall")
+@Label("Controller Call")
+@Category({"Country Search", "Web"})
+@StackTrace(false)
+final class ControllerCallEvent extends Event {
+
+    @Label("Endpoint")
+    String endpoint;
+
+    @Label("Success")
+    boolean success;
+}
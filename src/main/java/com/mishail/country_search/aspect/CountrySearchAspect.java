@@ -1,53 +1,74 @@
 package com.mishail.country_search.aspect;
 
-import com.mishail.country_search.counter.ServiceCounter;
+import com.mishail.country_search.metrics.RequestMetrics;
+import com.mishail.country_search.metrics.SqlMonitor;
+import com.mishail.country_search.metrics.SqlScope;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import jdk.jfr.EventType;
+import lombok.RequiredArgsConstructor;
 import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.*;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Arrays;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 
 @Aspect
 @Component
+@RequiredArgsConstructor
 public class CountrySearchAspect {
+    private static final EventType CALL_EVENT =
+            EventType.getEventType(ControllerCallEvent.class);
+
     private final Logger logger = LoggerFactory
             .getLogger(CountrySearchAspect.class);
 
-    @Pointcut("execution(* com.mishail.country_search.controller.*.*(..))")
-    public void callControllers() {
-    }
+    private final RequestMetrics requestMetrics;
 
-    @Before("callControllers()")
-    public void beforeCallMethod(final JoinPoint jp) {
-        String args = Arrays.stream(jp.getArgs())
-                .filter(Objects::nonNull)
-                .map(Object::toString)
-                .collect(Collectors.joining(","));
-        if (logger.isInfoEnabled()) {
-            logger.info("Before {}, args={}", jp, args);
-        }
-    }
+    private final RequestLoggingProperties properties;
 
-    @After("callControllers()")
-    public void afterCallMethod(final JoinPoint jp) {
-        ServiceCounter.increment();
-        if (logger.isInfoEnabled()) {
-            logger.info("After {}", jp);
-            logger.info("Count of your accessing the service: {}", ServiceCounter.getCount());
-        }
+    private final SqlMonitor sqlMonitor;
+
+    @Pointcut("execution(* com.mishail.country_search.controller.*.*(..))")
+    public void callControllers() {
     }
 
-    @AfterReturning("callControllers()")
-    public void afterReturningCallMethod(final JoinPoint jp) {
-        if (logger.isInfoEnabled()) {
-            logger.info("After returning {}", jp);
+    // One log line per logged call; a call that isn't sampled allocates
+    // nothing for logging. The arguments of a sampled call are rendered on
+    // the thread that finishes it: the async appender formats the message
+    // there before queueing it, which is why they are cut to a maximum
+    // length.
+    @Around("callControllers()")
+    public Object aroundCallMethod(final ProceedingJoinPoint jp)
+            throws Throwable {
+        Call call = new Call(jp, sampled() && logger.isInfoEnabled());
+        SqlScope sql = sqlMonitor.begin(call.method);
+        boolean streamed = false;
+        boolean success = false;
+        try {
+            Object result = jp.proceed();
+            success = true;
+            if (result instanceof ResponseEntity<?> response
+                    && response.getBody()
+                    instanceof StreamingResponseBody body) {
+                streamed = true;
+                return streamed(response, body, call);
+            }
+            return result;
+        } finally {
+            sqlMonitor.end(sql);
+            if (!streamed) {
+                call.finish(success);
+            }
         }
     }
 
@@ -73,4 +94,78 @@ public class CountrySearchAspect {
             logger.info("Aspect is destroyed");
         }
     }
+
+    // The body is written after the controller returned, on an async
+    // thread, so the call is only finished once the last byte is out
+    private ResponseEntity<StreamingResponseBody> streamed(
+            final ResponseEntity<?> response,
+            final StreamingResponseBody body, final Call call) {
+        StreamingResponseBody timed = output -> {
+            SqlScope sql = sqlMonitor.beginStreaming(call.method);
+            boolean success = false;
+            try {
+                body.writeTo(output);
+                success = true;
+            } finally {
+                sqlMonitor.end(sql);
+                call.finish(success);
+            }
+        };
+        return new ResponseEntity<>(timed, response.getHeaders(),
+                response.getStatusCode());
+    }
+
+    private boolean sampled() {
+        return switch (properties.getMode()) {
+            case OFF -> false;
+            case FULL -> true;
+            case SAMPLED -> properties.getSampleRate() <= 1
+                    || ThreadLocalRandom.current()
+                    .nextInt(properties.getSampleRate()) == 0;
+        };
+    }
+
+    // One controller call from its start until the response is complete
+    private final class Call {
+
+        private final ProceedingJoinPoint jp;
+
+        private final Method method;
+
+        private final boolean logged;
+
+        private final ControllerCallEvent event;
+
+        private final long start;
+
+        Call(final ProceedingJoinPoint jp, final boolean logged) {
+            this.jp = jp;
+            this.method = ((MethodSignature) jp.getSignature()).getMethod();
+            this.logged = logged;
+            this.event = CALL_EVENT.isEnabled()
+                    ? new ControllerCallEvent() : null;
+            if (event != null) {
+                event.begin();
+            }
+            this.start = System.nanoTime();
+        }
+
+        void finish(final boolean success) {
+            long nanos = System.nanoTime() - start;
+            if (event != null) {
+                event.endpoint = jp.getSignature().toShortString();
+                event.success = success;
+                event.commit();
+            }
+            requestMetrics.record(method, nanos, success);
+            if (logged) {
+                logger.info("{} args=[{}] {} in {} us",
+                        jp.getSignature().toShortString(),
+                        new LoggedArguments(jp.getArgs(),
+                                properties.getMaxArgumentLength()),
+                        success ? "returned" : "failed",
+                        TimeUnit.NANOSECONDS.toMicros(nanos));
+            }
+        }
+    }
 }
@@ -0,0 +1,70 @@
+package com.mishail.country_search.aspect;
+
+import java.util.Collection;
+
+// Controller arguments rendered only when the message is formatted, which
+// the async appender does on the calling thread before queueing, unless it
+// drops the event. The text is cut at maxLength: a collection stops at the
+// first element that doesn't fit instead of turning every element into a
+// string.
+final class LoggedArguments {
+
+    private static final String CUT = "...";
+
+    private final Object[] args;
+
+    private final int maxLength;
+
+    LoggedArguments(final Object[] args, final int maxLength) {
+        this.args = args;
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Object arg : args) {
+            if (arg == null) {
+                continue;
+            }
+            if (!text.isEmpty() && !append(text, ",")) {
+                break;
+            }
+            boolean fits = arg instanceof Collection<?> items
+                    ? appendItems(text, items)
+                    : append(text, String.valueOf(arg));
+            if (!fits) {
+                break;
+            }
+        }
+        return text.toString();
+    }
+
+    private boolean appendItems(final StringBuilder text,
+                                final Collection<?> items) {
+        if (!append(text, "[")) {
+            return false;
+        }
+        boolean first = true;
+        for (Object item : items) {
+            if (!first && !append(text, ",")
+                    || !append(text, String.valueOf(item))) {
+                text.append(" of ").append(items.size()).append(" items]");
+                return false;
+            }
+            first = false;
+        }
+        return append(text, "]");
+    }
+
+    // False when the value had to be cut
+    private boolean append(final StringBuilder text, final String value) {
+        int room = maxLength - text.length();
+        if (value.length() <= room) {
+            text.append(value);
+            return true;
+        }
+        text.append(value, 0, Math.max(room, 0)).append(CUT);
+        return false;
+    }
+}
@@ -0,0 +1,88 @@
+package com.mishail.country_search.aspect;
+
+import com.mishail.country_search.repository.CountryRepository;
+import jdk.jfr.EventType;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.BaseStream;
+
+// Emits a JFR event per repository call; while no recording enables the
+// event the advice only checks a flag and proceeds.
+@Aspect
+@Component
+public class RepositoryQueryAspect {
+
+    private static final EventType QUERY_EVENT =
+            EventType.getEventType(RepositoryQueryEvent.class);
+
+    // Spring Data proxies implement the repository interface among others
+    private static final ClassValue<String> REPOSITORY_NAMES =
+            new ClassValue<>() {
+                @Override
+                protected String computeValue(final Class<?> type) {
+                    String repositories =
+                            CountryRepository.class.getPackageName();
+                    for (Class<?> contract : ClassUtils
+                            .getAllInterfacesForClassAsSet(type)) {
+                        if (contract.getPackageName().equals(repositories)) {
+                            return contract.getSimpleName();
+                        }
+                    }
+                    return type.getSimpleName();
+                }
+            };
+
+    @Pointcut("execution(* com.mishail.country_search.repository"
+            + ".CountryRepository.*(..))"
+            + " || execution(* com.mishail.country_search.repository"
+            + ".CityRepository.*(..))"
+            + " || execution(* com.mishail.country_search.repository"
+            + ".NationRepository.*(..))")
+    public void callRepositories() {
+    }
+
+    @Around("callRepositories()")
+    public Object aroundQuery(final ProceedingJoinPoint jp)
+            throws Throwable {
+        if (!QUERY_EVENT.isEnabled()) {
+            return jp.proceed();
+        }
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        event.begin();
+        Object result = jp.proceed();
+        event.repository = REPOSITORY_NAMES.get(jp.getThis().getClass());
+        event.method = jp.getSignature().getName();
+        event.rows = rowsOf(result);
+        event.commit();
+        return result;
+    }
+
+    private static long rowsOf(final Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> rows) {
+            return rows.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof Optional<?> row) {
+            return row.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Number || result instanceof Boolean
+                || result instanceof Iterable<?>
+                || result instanceof BaseStream<?, ?>) {
+            return -1;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,24 @@
+package com.mishail.country_search.aspect;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.mishail.country_search.RepositoryQuery")
+@Label("Repository Query")
+@Category({"Country Search", "Repository"})
+@StackTrace(false)
+final class RepositoryQueryEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Method")
+    String method;
+
+    // -1 when the result isn't a set of rows, like a count or a stream
+    @Label("Rows")
+    long rows;
+}
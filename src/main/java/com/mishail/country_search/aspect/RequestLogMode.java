@@ -0,0 +1,7 @@
+package com.mishail.country_search.aspect;
+
+public enum RequestLogMode {
+    OFF,
+    SAMPLED,
+    FULL
+}
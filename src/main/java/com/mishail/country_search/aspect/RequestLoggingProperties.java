@@ -0,0 +1,20 @@
+package com.mishail.country_search.aspect;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "request-logging")
+public class RequestLoggingProperties {
+
+    private RequestLogMode mode = RequestLogMode.SAMPLED;
+
+    // In SAMPLED mode one call in sampleRate is logged
+    private int sampleRate = 100;
+
+    // Longer argument text is cut, so request bodies are never printed
+    // in full
+    private int maxArgumentLength = 256;
+}
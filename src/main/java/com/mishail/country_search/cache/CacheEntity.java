@@ -0,0 +1,7 @@
+package com.mishail.country_search.cache;
+
+public enum CacheEntity {
+    COUNTRY,
+    CITY,
+    NATION
+}
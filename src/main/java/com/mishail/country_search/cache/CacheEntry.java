@@ -0,0 +1,74 @@
+package com.mishail.country_search.cache;
+
+import lombok.Getter;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+@Getter
+final class CacheEntry {
+
+    private final Object value;
+
+    private final Set<CacheTag> tags;
+
+    private final CacheLoader loader;
+
+    private final Expiry expiry;
+
+    private final CacheStats stats;
+
+    private final long writeTime;
+
+    private volatile long accessTime;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    // Encoded response body of the value, dropped together with the entry
+    private volatile EncodedBody encoded;
+
+    CacheEntry(final Object value, final Set<CacheTag> tags,
+               final CacheLoader loader, final Expiry expiry,
+               final CacheStats stats, final long now) {
+        this.value = value;
+        this.tags = tags;
+        this.loader = loader;
+        this.expiry = expiry;
+        this.stats = stats;
+        this.writeTime = now;
+        this.accessTime = now;
+    }
+
+    boolean isExpired(final long now) {
+        return expiry.isExpired(this, now);
+    }
+
+    boolean needsRefresh(final long now) {
+        return loader != null && expiry.needsRefresh(this, now)
+                && !refreshing.get();
+    }
+
+    boolean startRefresh() {
+        return refreshing.compareAndSet(false, true);
+    }
+
+    void finishRefresh() {
+        refreshing.set(false);
+    }
+
+    EncodedBody encoded(final Function<Object, EncodedBody> encoder) {
+        EncodedBody body = encoded;
+        if (body == null) {
+            body = encoder.apply(value);
+            encoded = body;
+        }
+        return body;
+    }
+
+    void touch(final long now) {
+        if (expiry.afterAccessNanos() > 0) {
+            accessTime = now;
+        }
+    }
+}
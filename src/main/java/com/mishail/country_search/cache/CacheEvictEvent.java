@@ -0,0 +1,21 @@
+package com.mishail.country_search.cache;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.mishail.country_search.CacheEvict")
+@Label("Cache Evict")
+@Category({"Country Search", "Cache"})
+@StackTrace(false)
+final class CacheEvictEvent extends Event {
+
+    @Label("Key")
+    String key;
+
+    // "size" when the policy chose the entry, "expired" past its expiry
+    @Label("Cause")
+    String cause;
+}
@@ -0,0 +1,20 @@
+package com.mishail.country_search.cache;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.mishail.country_search.CacheGet")
+@Label("Cache Get")
+@Category({"Country Search", "Cache"})
+@StackTrace(false)
+final class CacheGetEvent extends Event {
+
+    @Label("Key")
+    String key;
+
+    @Label("Hit")
+    boolean hit;
+}
@@ -0,0 +1,17 @@
+package com.mishail.country_search.cache;
+
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+record CacheLoader(Supplier<?> supplier,
+                   Function<Object, Set<CacheTag>> dependencies) {
+
+    Object load() {
+        return supplier.get();
+    }
+
+    Set<CacheTag> dependenciesOf(final Object value) {
+        return dependencies == null ? Set.of() : dependencies.apply(value);
+    }
+}
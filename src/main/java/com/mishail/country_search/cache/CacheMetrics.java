@@ -0,0 +1,60 @@
+package com.mishail.country_search.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+@AllArgsConstructor
+public class CacheMetrics implements MeterBinder {
+
+    private static final String CACHE_TAG = "cache";
+
+    private final CacheService cacheService;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        Gauge.builder("cache.entries", cacheService, CacheService::size)
+                .register(registry);
+        Gauge.builder("cache.weighted.size", cacheService,
+                        CacheService::weightedSize)
+                .register(registry);
+        cacheService.addRegionListener((region, stats) ->
+                bindRegion(registry, region, stats));
+    }
+
+    private void bindRegion(final MeterRegistry registry,
+                            final String region, final CacheStats stats) {
+        FunctionCounter.builder("cache.gets", stats, CacheStats::getHits)
+                .tags(CACHE_TAG, region, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", stats, CacheStats::getMisses)
+                .tags(CACHE_TAG, region, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", stats,
+                        CacheStats::getEvictions)
+                .tag(CACHE_TAG, region)
+                .register(registry);
+        FunctionCounter.builder("cache.expirations", stats,
+                        CacheStats::getExpirations)
+                .tag(CACHE_TAG, region)
+                .register(registry);
+        FunctionCounter.builder("cache.load.failures", stats,
+                        CacheStats::getLoadFailures)
+                .tag(CACHE_TAG, region)
+                .register(registry);
+        FunctionTimer.builder("cache.load", stats, CacheStats::getLoads,
+                        CacheStats::getTotalLoadNanos, TimeUnit.NANOSECONDS)
+                .tag(CACHE_TAG, region)
+                .register(registry);
+        Gauge.builder("cache.size", stats, CacheStats::getSize)
+                .tag(CACHE_TAG, region)
+                .register(registry);
+    }
+}
@@ -0,0 +1,46 @@
+package com.mishail.country_search.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache")
+public class CacheProperties {
+
+    private long maximumSize = 10_000;
+
+    private long maximumWeight;
+
+    private EvictionType eviction = EvictionType.LRU;
+
+    private Duration cleanupInterval = Duration.ofMinutes(1);
+
+    private int refreshThreads = 2;
+
+    // Refresh loads block on the database; with virtual threads each one
+    // gets its own thread instead of waiting for a refresh thread. Needs
+    // Java 21, older runtimes keep the refresh threads.
+    private boolean virtualThreads;
+
+    private boolean responseBodies;
+
+    private int gzipMinSize = 1024;
+
+    private Map<String, Region> regions = new HashMap<>();
+
+    @Data
+    public static class Region {
+
+        private Duration expireAfterWrite;
+
+        private Duration expireAfterAccess;
+
+        private Duration refreshAfterWrite;
+    }
+}
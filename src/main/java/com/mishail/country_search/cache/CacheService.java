@@ -1,32 +1,700 @@
 package com.mishail.country_search.cache;
 
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.EventType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 @Service
 public class CacheService {
 
-    private final HashMap<String, Object> cache = new HashMap<>();
+    private static final int VIRTUAL_THREADS_RELEASE = 21;
+
+    private static final long REFRESH_TERMINATION_MILLIS = 1_000;
+
+    // JFR events are only created while a recording enables them
+    private static final EventType GET_EVENT =
+            EventType.getEventType(CacheGetEvent.class);
+
+    private static final EventType PUT_EVENT =
+            EventType.getEventType(CachePutEvent.class);
+
+    private static final EventType EVICT_EVENT =
+            EventType.getEventType(CacheEvictEvent.class);
+
+    private final Logger logger = LoggerFactory.getLogger(CacheService.class);
+
+    private final EntryStore cache = new EntryStore();
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> loading =
+            new ConcurrentHashMap<>();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final EvictionPolicy<String> policy;
+
+    private final long maximum;
+
+    private final boolean weighted;
+
+    // Guarded by evictionLock, like every structural change of the cache.
+    private final Map<CacheTag, Set<String>> dependents = new HashMap<>();
+
+    private volatile long invalidations;
+
+    private final ConcurrentHashMap<String, CacheStats> stats =
+            new ConcurrentHashMap<>();
+
+    private final List<BiConsumer<String, CacheStats>> regionListeners =
+            new CopyOnWriteArrayList<>();
+
+    private final Map<String, Expiry> expiries = new HashMap<>();
+
+    private final LongSupplier ticker;
+
+    private final ScheduledExecutorService maintenance;
+
+    // The maintenance pool, or a virtual thread per refresh
+    private final Executor refreshes;
+
+    // Versions restart with the process, the epoch keeps old ETags invalid.
+    private final long versionEpoch = System.currentTimeMillis();
+
+    private final ConcurrentHashMap<String, AtomicLong> versions =
+            new ConcurrentHashMap<>();
+
+    @Autowired
+    public CacheService(final CacheProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    CacheService(final CacheProperties properties, final LongSupplier ticker) {
+        this.ticker = ticker;
+        weighted = properties.getMaximumWeight() > 0;
+        maximum = weighted ? properties.getMaximumWeight()
+                : properties.getMaximumSize();
+        policy = EvictionPolicy.create(properties.getEviction(), maximum);
+        properties.getRegions().forEach((region, settings) ->
+                expiries.put(region, Expiry.of(settings)));
+        maintenance = Executors.newScheduledThreadPool(
+                Math.max(1, properties.getRefreshThreads()),
+                maintenanceThreadFactory());
+        refreshes = refreshExecutor(properties);
+        long cleanupNanos = properties.getCleanupInterval().toNanos();
+        if (cleanupNanos > 0) {
+            maintenance.scheduleWithFixedDelay(this::cleanUp, cleanupNanos,
+                    cleanupNanos, TimeUnit.NANOSECONDS);
+        }
+    }
 
     public void put(final String key, final Object value) {
-        cache.put(key, value);
+        put(key, value, Set.of());
+    }
+
+    public void put(final String key, final Object value,
+                    final Set<CacheTag> dependencies) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        String region = regionOf(key);
+        CacheEntry entry = new CacheEntry(value, Set.copyOf(dependencies),
+                null, expiryOf(region), statsOf(region), ticker.getAsLong());
+        long weight = weigh(value);
+        evictionLock.lock();
+        try {
+            store(key, entry, weight);
+        } finally {
+            evictionLock.unlock();
+        }
     }
 
     public Object get(final String key) {
-        return cache.get(key);
+        if (!GET_EVENT.isEnabled()) {
+            return lookup(key);
+        }
+        CacheGetEvent event = new CacheGetEvent();
+        event.begin();
+        Object value = lookup(key);
+        event.key = key;
+        event.hit = value != null;
+        event.commit();
+        return value;
+    }
+
+    private Object lookup(final String key) {
+        CacheEntry entry = cache.get(key);
+        if (entry == null) {
+            statsOf(regionOf(key)).recordMiss();
+            return null;
+        }
+        return read(key, entry);
+    }
+
+    // Same as get(region + id), but a hit allocates nothing: the entry is
+    // found by the primitive id and already knows its string key.
+    public Object get(final String region, final long id) {
+        if (!GET_EVENT.isEnabled()) {
+            return lookup(region, id);
+        }
+        CacheGetEvent event = new CacheGetEvent();
+        event.begin();
+        Object value = lookup(region, id);
+        event.key = region + id;
+        event.hit = value != null;
+        event.commit();
+        return value;
+    }
+
+    private Object lookup(final String region, final long id) {
+        EntryStore.Keyed keyed = cache.get(region, id);
+        if (keyed == null) {
+            statsOf(region).recordMiss();
+            return null;
+        }
+        return read(keyed.key(), keyed.entry());
+    }
+
+    private Object read(final String key, final CacheEntry entry) {
+        long now = ticker.getAsLong();
+        if (entry.isExpired(now)) {
+            entry.getStats().recordMiss();
+            if (discard(key, entry)) {
+                entry.getStats().recordExpiration();
+                evictEvent(key, "expired");
+            }
+            return null;
+        }
+        entry.getStats().recordHit();
+        entry.touch(now);
+        if (entry.needsRefresh(now)) {
+            refresh(key, entry);
+        }
+        // Reads never wait for the policy: under contention the access
+        // is simply not recorded, which only makes the ordering approximate.
+        if (evictionLock.tryLock()) {
+            try {
+                policy.onRead(key);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return entry.getValue();
+    }
+
+    public <T> T computeIfAbsent(final String key, final Supplier<T> loader) {
+        return computeIfAbsent(key, loader, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T computeIfAbsent(
+            final String key, final Supplier<T> loader,
+            final Function<? super T, Set<CacheTag>> dependencies) {
+        Object cached = get(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        return load(key, loader, dependencies);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T computeIfAbsent(
+            final String region, final long id, final Supplier<T> loader,
+            final Function<? super T, Set<CacheTag>> dependencies) {
+        Object cached = get(region, id);
+        if (cached != null) {
+            return (T) cached;
+        }
+        return load(region + id, loader, dependencies);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T load(final String key, final Supplier<T> loader,
+                       final Function<? super T, Set<CacheTag>> dependencies) {
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            return (T) await(running);
+        }
+        try {
+            CacheEntry entry = cache.get(key);
+            Object value;
+            if (entry != null && !entry.isExpired(ticker.getAsLong())) {
+                value = entry.getValue();
+            } else {
+                long epoch = invalidations;
+                CacheLoader cacheLoader = new CacheLoader(loader,
+                        (Function<Object, Set<CacheTag>>) dependencies);
+                value = timedLoad(cacheLoader, statsOf(regionOf(key)));
+                putLoaded(key, load, epoch, cacheLoader, value);
+            }
+            load.complete(value);
+            return (T) value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    // Copy-on-write update: the remapping builds a new immutable value from
+    // the cached one and is retried if the entry changed in the meantime,
+    // so readers never see a value that is being modified. Loads still
+    // running were read before the change and are not stored.
+    @SuppressWarnings("unchecked")
+    public <T> void computeIfPresent(
+            final String key, final UnaryOperator<T> remapping,
+            final Function<? super T, Set<CacheTag>> dependencies) {
+        while (true) {
+            CacheEntry entry = cache.get(key);
+            if (entry == null || entry.isExpired(ticker.getAsLong())) {
+                return;
+            }
+            T value = remapping.apply((T) entry.getValue());
+            if (value == null) {
+                discard(key, entry);
+                return;
+            }
+            CacheEntry replacement = new CacheEntry(value,
+                    Set.copyOf(dependencies.apply(value)), entry.getLoader(),
+                    entry.getExpiry(), entry.getStats(), ticker.getAsLong());
+            long weight = weigh(value);
+            evictionLock.lock();
+            try {
+                if (cache.get(key) == entry) {
+                    invalidations++;
+                    store(key, replacement, weight);
+                    return;
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    // The encoded body is kept only while the value is still the one cached
+    // under the key, so any put, swap or invalidation also drops the body.
+    public EncodedBody encoded(final String key, final Object value,
+                               final Function<Object, EncodedBody> encoder) {
+        CacheEntry entry = cache.get(key);
+        if (entry == null || entry.getValue() != value
+                || entry.isExpired(ticker.getAsLong())) {
+            return encoder.apply(value);
+        }
+        return entry.encoded(encoder);
     }
 
     public boolean containsKey(final String key) {
-        return cache.containsKey(key);
+        CacheEntry entry = cache.get(key);
+        return entry != null && !entry.isExpired(ticker.getAsLong());
     }
 
     public void remove(final String key) {
-        cache.remove(key);
+        evictionLock.lock();
+        try {
+            removeLocked(key);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidate(final CacheEntity entity, final Long id) {
+        CacheTag tag = new CacheTag(entity, id);
+        invalidate(tag);
+        // Readers that missed between this call and the commit may have
+        // cached the old rows again, so drop the dependents once more.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            invalidate(tag);
+                        }
+                    });
+        }
+    }
+
+    public ETag eTag(final String resource) {
+        return new ETag(versionEpoch, versionOf(resource).get());
+    }
+
+    public void bumpVersion(final String... resources) {
+        bump(resources);
+        // Clients that read between this call and the commit were given the
+        // new version with the old rows, so move the version once more.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            bump(resources);
+                        }
+                    });
+        }
     }
 
     public void clear() {
-        cache.clear();
+        evictionLock.lock();
+        try {
+            invalidations++;
+            cache.clear();
+            dependents.clear();
+            stats.values().forEach(CacheStats::resetSize);
+            policy.clear();
+            loading.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public Map<String, CacheStats> stats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return policy.weightedSize();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void addRegionListener(
+            final BiConsumer<String, CacheStats> listener) {
+        regionListeners.add(listener);
+        stats.forEach(listener);
+    }
+
+    public void cleanUp() {
+        long now = ticker.getAsLong();
+        cache.forEach((key, entry) -> {
+            if (entry.isExpired(now) && discard(key, entry)) {
+                entry.getStats().recordExpiration();
+                evictEvent(key, "expired");
+            }
+        });
+    }
+
+    // Runs on the maintenance threads, for work that must not hold up the
+    // request that caused it
+    public void runInBackground(final Runnable task) {
+        maintenance.execute(task);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        maintenance.shutdownNow();
+        if (refreshes instanceof SimpleAsyncTaskExecutor executor) {
+            executor.close();
+        }
+    }
+
+    static String regionOf(final String key) {
+        int end = key.length();
+        while (end > 0 && Character.isDigit(key.charAt(end - 1))) {
+            end--;
+        }
+        if (end > 1 && end < key.length() && key.charAt(end - 1) == '-') {
+            end--;
+        }
+        return end == key.length() ? key : key.substring(0, end);
+    }
+
+    private Expiry expiryOf(final String region) {
+        return expiries.getOrDefault(region, Expiry.NEVER);
+    }
+
+    private CacheStats statsOf(final String region) {
+        CacheStats regionStats = stats.get(region);
+        if (regionStats != null) {
+            return regionStats;
+        }
+        CacheStats created = new CacheStats();
+        regionStats = stats.putIfAbsent(region, created);
+        if (regionStats != null) {
+            return regionStats;
+        }
+        regionListeners.forEach(listener -> listener.accept(region, created));
+        return created;
+    }
+
+    private Object timedLoad(final CacheLoader loader,
+                             final CacheStats regionStats) {
+        long start = ticker.getAsLong();
+        boolean success = false;
+        try {
+            Object value = loader.load();
+            success = true;
+            return value;
+        } finally {
+            regionStats.recordLoad(ticker.getAsLong() - start, success);
+        }
+    }
+
+    private void bump(final String... resources) {
+        for (String resource : resources) {
+            versionOf(resource).incrementAndGet();
+        }
+    }
+
+    private AtomicLong versionOf(final String resource) {
+        return versions.computeIfAbsent(resource, key -> new AtomicLong());
     }
-}
 
+    private void invalidate(final CacheTag tag) {
+        evictionLock.lock();
+        try {
+            invalidations++;
+            Set<String> keys = dependents.remove(tag);
+            if (keys != null) {
+                keys.forEach(this::removeLocked);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // A load that raced with remove(), invalidate() or clear() is handed
+    // to its waiters but not cached, so an invalidation is never undone
+    // by a stale load.
+    private void putLoaded(final String key,
+                           final CompletableFuture<Object> load,
+                           final long epoch,
+                           final CacheLoader loader,
+                           final Object value) {
+        if (value == null) {
+            return;
+        }
+        String region = regionOf(key);
+        CacheEntry entry = new CacheEntry(value,
+                Set.copyOf(loader.dependenciesOf(value)), loader,
+                expiryOf(region), statsOf(region), ticker.getAsLong());
+        long weight = weigh(value);
+        evictionLock.lock();
+        try {
+            if (loading.get(key) == load && invalidations == epoch) {
+                store(key, entry, weight);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    // Refresh-ahead: the reader keeps the current value while the loader
+    // runs in the background; the result only replaces the exact entry
+    // that triggered it, so a concurrent remove() wins.
+    private void refresh(final String key, final CacheEntry entry) {
+        if (!entry.startRefresh()) {
+            return;
+        }
+        refreshes.execute(() -> {
+            try {
+                long epoch = invalidations;
+                CacheLoader loader = entry.getLoader();
+                Object value = timedLoad(loader, entry.getStats());
+                if (value == null) {
+                    discard(key, entry);
+                    return;
+                }
+                CacheEntry refreshed = new CacheEntry(value,
+                        Set.copyOf(loader.dependenciesOf(value)), loader,
+                        entry.getExpiry(), entry.getStats(),
+                        ticker.getAsLong());
+                long weight = weigh(value);
+                evictionLock.lock();
+                try {
+                    if (invalidations == epoch
+                            && cache.get(key) == entry) {
+                        store(key, refreshed, weight);
+                    } else {
+                        entry.finishRefresh();
+                    }
+                } finally {
+                    evictionLock.unlock();
+                }
+            } catch (RuntimeException | Error e) {
+                // Cleared on every failure, or the key never refreshes again
+                entry.finishRefresh();
+                if (logger.isWarnEnabled()) {
+                    logger.warn("Refresh of cache key {} failed: {}",
+                            key, e.getMessage());
+                }
+                if (e instanceof Error error) {
+                    throw error;
+                }
+            }
+        });
+    }
+
+    private void store(final String key, final CacheEntry entry,
+                       final long weight) {
+        CacheEntry previous = cache.put(key, entry);
+        if (previous == null) {
+            entry.getStats().recordInsert();
+        }
+        unlink(key, previous);
+        for (CacheTag tag : entry.getTags()) {
+            dependents.computeIfAbsent(tag, t -> new HashSet<>()).add(key);
+        }
+        policy.onWrite(key, weight);
+        if (PUT_EVENT.isEnabled()) {
+            CachePutEvent event = new CachePutEvent();
+            event.key = key;
+            event.weight = weight;
+            event.commit();
+        }
+        evictOverflow();
+    }
+
+    private void removeLocked(final String key) {
+        CacheEntry removed = cache.remove(key);
+        if (removed != null) {
+            removed.getStats().recordRemoval();
+        }
+        unlink(key, removed);
+        policy.onRemove(key);
+        loading.remove(key);
+    }
+
+    private void unlink(final String key, final CacheEntry entry) {
+        if (entry == null) {
+            return;
+        }
+        for (CacheTag tag : entry.getTags()) {
+            Set<String> keys = dependents.get(tag);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                dependents.remove(tag);
+            }
+        }
+    }
+
+    private boolean discard(final String key, final CacheEntry entry) {
+        evictionLock.lock();
+        try {
+            if (cache.remove(key, entry)) {
+                entry.getStats().recordRemoval();
+                unlink(key, entry);
+                policy.onRemove(key);
+                return true;
+            }
+            return false;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static Object await(final CompletableFuture<Object> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void evictOverflow() {
+        while (policy.weightedSize() > maximum) {
+            String victim = policy.evict();
+            if (victim == null) {
+                return;
+            }
+            CacheEntry evicted = cache.remove(victim);
+            if (evicted != null) {
+                evicted.getStats().recordRemoval();
+                evicted.getStats().recordEviction();
+                evictEvent(victim, "size");
+            }
+            unlink(victim, evicted);
+        }
+    }
+
+    private static void evictEvent(final String key, final String cause) {
+        if (EVICT_EVENT.isEnabled()) {
+            CacheEvictEvent event = new CacheEvictEvent();
+            event.key = key;
+            event.cause = cause;
+            event.commit();
+        }
+    }
+
+    private long weigh(final Object value) {
+        if (!weighted) {
+            return 1;
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.size() + 1L;
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.size() + 1L;
+        }
+        return 1;
+    }
+
+    private Executor refreshExecutor(final CacheProperties properties) {
+        if (!properties.isVirtualThreads()) {
+            return maintenance;
+        }
+        if (Runtime.version().feature() < VIRTUAL_THREADS_RELEASE) {
+            logger.warn("Virtual threads need Java {}, cache refreshes run"
+                    + " on the maintenance threads", VIRTUAL_THREADS_RELEASE);
+            return maintenance;
+        }
+        SimpleAsyncTaskExecutor executor =
+                new SimpleAsyncTaskExecutor("cache-refresh-");
+        executor.setVirtualThreads(true);
+        // Tracks the running refreshes, so close() can interrupt them
+        executor.setTaskTerminationTimeout(REFRESH_TERMINATION_MILLIS);
+        return executor;
+    }
+
+    private static ThreadFactory maintenanceThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable,
+                    "cache-maintenance-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package com.mishail.country_search.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public final class CacheStats {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder size = new LongAdder();
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordLoad(final long nanos, final boolean success) {
+        totalLoadNanos.add(nanos);
+        if (success) {
+            loadSuccesses.increment();
+        } else {
+            loadFailures.increment();
+        }
+    }
+
+    void recordEviction() {
+        evictions.increment();
+    }
+
+    void recordExpiration() {
+        expirations.increment();
+    }
+
+    void recordInsert() {
+        size.increment();
+    }
+
+    void recordRemoval() {
+        size.decrement();
+    }
+
+    void resetSize() {
+        size.reset();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = getHits();
+        long requests = hitCount + getMisses();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public long getLoadSuccesses() {
+        return loadSuccesses.sum();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.sum();
+    }
+
+    public long getLoads() {
+        return getLoadSuccesses() + getLoadFailures();
+    }
+
+    public long getTotalLoadNanos() {
+        return totalLoadNanos.sum();
+    }
+
+    public double getAverageLoadMillis() {
+        long loads = getLoads();
+        return loads == 0 ? 0.0 : getTotalLoadNanos() / 1e6 / loads;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    public long getSize() {
+        return size.sum();
+    }
+}
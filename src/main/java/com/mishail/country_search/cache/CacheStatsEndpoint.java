@@ -0,0 +1,32 @@
+package com.mishail.country_search.cache;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+@AllArgsConstructor
+@Endpoint(id = "cachestats")
+public class CacheStatsEndpoint {
+
+    private final CacheService cacheService;
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new TreeMap<>();
+        result.put("entries", cacheService.size());
+        result.put("weightedSize", cacheService.weightedSize());
+        result.put("regions", new TreeMap<>(cacheService.stats()));
+        return result;
+    }
+
+    @ReadOperation
+    public CacheStats region(@Selector final String region) {
+        return cacheService.stats().get(region);
+    }
+}
@@ -0,0 +1,52 @@
+package com.mishail.country_search.cache;
+
+import com.mishail.country_search.dto.CityDto;
+import com.mishail.country_search.dto.CountryDto;
+import com.mishail.country_search.dto.NationDto;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+public record CacheTag(CacheEntity entity, Long id) {
+
+    public static Set<CacheTag> forCountry(final CountryDto country) {
+        Set<CacheTag> tags = new HashSet<>();
+        addCountry(tags, country);
+        return tags;
+    }
+
+    public static Set<CacheTag> forCountries(
+            final Collection<CountryDto> countries) {
+        Set<CacheTag> tags = new HashSet<>();
+        countries.forEach(country -> addCountry(tags, country));
+        return tags;
+    }
+
+    public static Set<CacheTag> forCities(final Collection<CityDto> cities) {
+        Set<CacheTag> tags = new HashSet<>();
+        cities.forEach(city -> add(tags, CacheEntity.CITY, city.id()));
+        return tags;
+    }
+
+    public static Set<CacheTag> forNations(
+            final Collection<NationDto> nations) {
+        Set<CacheTag> tags = new HashSet<>();
+        nations.forEach(nation -> add(tags, CacheEntity.NATION, nation.id()));
+        return tags;
+    }
+
+    private static void addCountry(final Set<CacheTag> tags,
+                                   final CountryDto country) {
+        add(tags, CacheEntity.COUNTRY, country.id());
+        tags.addAll(forCities(country.cities()));
+        tags.addAll(forNations(country.nations()));
+    }
+
+    private static void add(final Set<CacheTag> tags,
+                            final CacheEntity entity, final Long id) {
+        if (id != null) {
+            tags.add(new CacheTag(entity, id));
+        }
+    }
+}
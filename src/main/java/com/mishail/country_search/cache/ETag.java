@@ -0,0 +1,51 @@
+package com.mishail.country_search.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+public record ETag(long epoch, long version) {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    public String value() {
+        return "\"" + Long.toHexString(epoch) + "-" + version + "\"";
+    }
+
+    // Strong validators must differ between content codings
+    public String gzipValue() {
+        return "\"" + Long.toHexString(epoch) + "-" + version + "-gzip\"";
+    }
+
+    // The tag of the variant the client already holds, null when it holds
+    // none of the current ones. The gzip tag only counts while the request
+    // accepts gzip, a 304 has to repeat the tag the 200 would carry.
+    public String match(final String ifNoneMatch,
+                        final String acceptEncoding) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        boolean gzip = EncodedBody.acceptsGzip(acceptEncoding);
+        String matched = null;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith(WEAK_PREFIX)) {
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if (gzip && tag.equals(gzipValue())) {
+                return tag;
+            }
+            if (tag.equals("*") || tag.equals(value())) {
+                matched = value();
+            }
+        }
+        return matched;
+    }
+
+    public static <T> ResponseEntity<T> notModified(final String tag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(tag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .build();
+    }
+}
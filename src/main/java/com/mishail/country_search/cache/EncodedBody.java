@@ -0,0 +1,81 @@
+package com.mishail.country_search.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+public record EncodedBody(byte[] json, byte[] gzip) {
+
+    private static final String GZIP = "gzip";
+
+    static EncodedBody of(final byte[] json, final int gzipMinSize) {
+        if (json.length < gzipMinSize) {
+            return new EncodedBody(json, null);
+        }
+        ByteArrayOutputStream bytes =
+                new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new EncodedBody(json, bytes.toByteArray());
+    }
+
+    public ResponseEntity<byte[]> toResponseEntity(
+            final String acceptEncoding, final ETag eTag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity
+                .status(HttpStatus.OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip != null && acceptsGzip(acceptEncoding)) {
+            return response
+                    .header(HttpHeaders.CONTENT_ENCODING, GZIP)
+                    .eTag(eTag.gzipValue())
+                    .body(gzip);
+        }
+        return response.eTag(eTag.value()).body(json);
+    }
+
+    // gzip, or failing that *, listed with a weight above zero. A weight
+    // that doesn't parse counts as zero, the plain body is always fine.
+    static boolean acceptsGzip(final String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipWeight = null;
+        Double anyWeight = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].strip().toLowerCase(Locale.ROOT);
+            if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+                gzipWeight = weight(parts);
+            } else if (coding.equals("*")) {
+                anyWeight = weight(parts);
+            }
+        }
+        Double accepted = gzipWeight != null ? gzipWeight : anyWeight;
+        return accepted != null && accepted > 0;
+    }
+
+    private static double weight(final String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].strip();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,119 @@
+package com.mishail.country_search.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+// Keys made of a region and a decimal id, like countryId_42, are kept in a
+// long-keyed map per region, so typed lookups find them without building
+// the string key. Every other key stays in a string-keyed map. Writes are
+// serialized by the cache's eviction lock, reads take no lock.
+final class EntryStore {
+
+    // Up to 18 digits always fit in a long
+    private static final int MAX_ID_DIGITS = 18;
+
+    record Keyed(String key, CacheEntry entry) {
+    }
+
+    private final Map<String, CacheEntry> entries =
+            new ConcurrentHashMap<>();
+
+    private final Map<String, LongObjectMap<Keyed>> regions =
+            new ConcurrentHashMap<>();
+
+    Keyed get(final String region, final long id) {
+        LongObjectMap<Keyed> ids = regions.get(region);
+        return ids == null ? null : ids.get(id);
+    }
+
+    CacheEntry get(final String key) {
+        int split = idStart(key);
+        if (split < 0) {
+            return entries.get(key);
+        }
+        Keyed keyed = get(key.substring(0, split),
+                Long.parseLong(key, split, key.length(), 10));
+        return keyed == null ? null : keyed.entry();
+    }
+
+    CacheEntry put(final String key, final CacheEntry entry) {
+        int split = idStart(key);
+        if (split < 0) {
+            return entries.put(key, entry);
+        }
+        Keyed previous = regions.computeIfAbsent(key.substring(0, split),
+                        region -> new LongObjectMap<>())
+                .put(Long.parseLong(key, split, key.length(), 10),
+                        new Keyed(key, entry));
+        return previous == null ? null : previous.entry();
+    }
+
+    CacheEntry remove(final String key) {
+        int split = idStart(key);
+        if (split < 0) {
+            return entries.remove(key);
+        }
+        LongObjectMap<Keyed> ids = regions.get(key.substring(0, split));
+        Keyed removed = ids == null ? null
+                : ids.remove(Long.parseLong(key, split, key.length(), 10));
+        return removed == null ? null : removed.entry();
+    }
+
+    boolean remove(final String key, final CacheEntry entry) {
+        int split = idStart(key);
+        if (split < 0) {
+            return entries.remove(key, entry);
+        }
+        LongObjectMap<Keyed> ids = regions.get(key.substring(0, split));
+        if (ids == null) {
+            return false;
+        }
+        long id = Long.parseLong(key, split, key.length(), 10);
+        Keyed current = ids.get(id);
+        return current != null && current.entry() == entry
+                && ids.remove(id, current);
+    }
+
+    void clear() {
+        entries.clear();
+        regions.values().forEach(LongObjectMap::clear);
+    }
+
+    int size() {
+        int size = entries.size();
+        for (LongObjectMap<Keyed> ids : regions.values()) {
+            size += ids.size();
+        }
+        return size;
+    }
+
+    void forEach(final BiConsumer<String, CacheEntry> consumer) {
+        entries.forEach(consumer);
+        regions.values().forEach(ids -> ids.forEach((id, keyed) ->
+                consumer.accept(keyed.key(), keyed.entry())));
+    }
+
+    // Start of the id part, or -1 when the key has no canonical decimal id:
+    // countryId_07 must not share the slot of countryId_7. A minus sign in
+    // front of the digits belongs to the id, as in countryId_-5.
+    static int idStart(final String key) {
+        int start = key.length();
+        while (start > 0 && key.charAt(start - 1) >= '0'
+                && key.charAt(start - 1) <= '9') {
+            start--;
+        }
+        int digits = key.length() - start;
+        if (start == 0 || digits == 0 || digits > MAX_ID_DIGITS
+                || digits > 1 && key.charAt(start) == '0') {
+            return -1;
+        }
+        if (key.charAt(start - 1) == '-') {
+            if (start == 1 || key.charAt(start) == '0') {
+                return -1;
+            }
+            start--;
+        }
+        return start;
+    }
+}
@@ -0,0 +1,24 @@
+package com.mishail.country_search.cache;
+
+interface EvictionPolicy<K> {
+
+    void onRead(K key);
+
+    void onWrite(K key, long weight);
+
+    void onRemove(K key);
+
+    K evict();
+
+    long weightedSize();
+
+    void clear();
+
+    static <K> EvictionPolicy<K> create(final EvictionType type,
+                                        final long maximum) {
+        if (type == EvictionType.W_TINY_LFU) {
+            return new WindowTinyLfuPolicy<>(maximum);
+        }
+        return new LruPolicy<>();
+    }
+}
@@ -0,0 +1,6 @@
+package com.mishail.country_search.cache;
+
+public enum EvictionType {
+    LRU,
+    W_TINY_LFU
+}
@@ -0,0 +1,35 @@
+package com.mishail.country_search.cache;
+
+import java.time.Duration;
+
+record Expiry(long afterWriteNanos,
+              long afterAccessNanos,
+              long refreshAfterWriteNanos) {
+
+    static final Expiry NEVER = new Expiry(0, 0, 0);
+
+    static Expiry of(final CacheProperties.Region region) {
+        if (region == null) {
+            return NEVER;
+        }
+        return new Expiry(nanos(region.getExpireAfterWrite()),
+                nanos(region.getExpireAfterAccess()),
+                nanos(region.getRefreshAfterWrite()));
+    }
+
+    boolean isExpired(final CacheEntry entry, final long now) {
+        return (afterWriteNanos > 0
+                && now - entry.getWriteTime() >= afterWriteNanos)
+                || (afterAccessNanos > 0
+                && now - entry.getAccessTime() >= afterAccessNanos);
+    }
+
+    boolean needsRefresh(final CacheEntry entry, final long now) {
+        return refreshAfterWriteNanos > 0
+                && now - entry.getWriteTime() >= refreshAfterWriteNanos;
+    }
+
+    private static long nanos(final Duration duration) {
+        return duration == null ? 0 : duration.toNanos();
+    }
+}
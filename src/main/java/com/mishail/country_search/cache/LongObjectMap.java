@@ -0,0 +1,158 @@
+package com.mishail.country_search.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Open-addressing long -> object map with linear probing for one writer
+// and any number of lock-free readers. A key never leaves its slot: removal
+// only clears the value, so probe chains stay valid for concurrent readers
+// and the tombstones are dropped when the table is rebuilt on growth.
+final class LongObjectMap<V> {
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final class Table<V> {
+
+        private final AtomicLongArray keys;
+
+        private final AtomicReferenceArray<V> values;
+
+        private final int mask;
+
+        // Slots holding a key, live or removed; written by the writer only
+        private int used;
+
+        Table(final int capacity) {
+            keys = new AtomicLongArray(capacity);
+            values = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                keys.set(i, FREE);
+            }
+        }
+    }
+
+    private volatile Table<V> table = new Table<>(MIN_CAPACITY);
+
+    private volatile int size;
+
+    V get(final long key) {
+        Table<V> current = table;
+        for (int i = index(key, current.mask);; i = (i + 1) & current.mask) {
+            long slotKey = current.keys.get(i);
+            if (slotKey == key) {
+                return current.values.get(i);
+            }
+            if (slotKey == FREE) {
+                return null;
+            }
+        }
+    }
+
+    V put(final long key, final V value) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("key " + key
+                    + " is reserved");
+        }
+        Table<V> current = table;
+        int slot = slot(current, key);
+        if (current.keys.get(slot) == FREE
+                && (current.used + 1) * 2 > current.mask + 1) {
+            current = rebuild(size + 1);
+            slot = slot(current, key);
+        }
+        V previous = current.values.getAndSet(slot, value);
+        if (current.keys.get(slot) == FREE) {
+            // The value is in place before readers can find the key
+            current.keys.set(slot, key);
+            current.used++;
+        }
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    V remove(final long key) {
+        Table<V> current = table;
+        int slot = slot(current, key);
+        if (current.keys.get(slot) == FREE) {
+            return null;
+        }
+        V previous = current.values.getAndSet(slot, null);
+        if (previous != null) {
+            size--;
+        }
+        return previous;
+    }
+
+    boolean remove(final long key, final V expected) {
+        Table<V> current = table;
+        int slot = slot(current, key);
+        if (current.keys.get(slot) == FREE
+                || !current.values.compareAndSet(slot, expected, null)) {
+            return false;
+        }
+        size--;
+        return true;
+    }
+
+    void clear() {
+        table = new Table<>(MIN_CAPACITY);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(final KeyValueConsumer<V> consumer) {
+        Table<V> current = table;
+        for (int i = 0; i <= current.mask; i++) {
+            long key = current.keys.get(i);
+            V value = current.values.get(i);
+            if (key != FREE && value != null) {
+                consumer.accept(key, value);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface KeyValueConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    // The slot holding the key, or the free slot ending its probe chain
+    private static int slot(final Table<?> table, final long key) {
+        for (int i = index(key, table.mask);; i = (i + 1) & table.mask) {
+            long slotKey = table.keys.get(i);
+            if (slotKey == key || slotKey == FREE) {
+                return i;
+            }
+        }
+    }
+
+    // Live entries only, at most a quarter full afterwards
+    private Table<V> rebuild(final int entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries * 4) {
+            capacity <<= 1;
+        }
+        Table<V> rebuilt = new Table<>(capacity);
+        forEach((key, value) -> {
+            int slot = slot(rebuilt, key);
+            rebuilt.values.set(slot, value);
+            rebuilt.keys.set(slot, key);
+            rebuilt.used++;
+        });
+        table = rebuilt;
+        return rebuilt;
+    }
+
+    private static int index(final long key, final int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+}
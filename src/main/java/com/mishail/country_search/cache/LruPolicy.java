@@ -0,0 +1,55 @@
+package com.mishail.country_search.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+final class LruPolicy<K> implements EvictionPolicy<K> {
+
+    private final LinkedHashMap<K, Long> order =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weightedSize;
+
+    @Override
+    public void onRead(final K key) {
+        order.get(key);
+    }
+
+    @Override
+    public void onWrite(final K key, final long weight) {
+        Long previous = order.put(key, weight);
+        weightedSize += weight - (previous == null ? 0 : previous);
+    }
+
+    @Override
+    public void onRemove(final K key) {
+        Long previous = order.remove(key);
+        if (previous != null) {
+            weightedSize -= previous;
+        }
+    }
+
+    @Override
+    public K evict() {
+        Iterator<Map.Entry<K, Long>> iterator = order.entrySet().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        Map.Entry<K, Long> eldest = iterator.next();
+        iterator.remove();
+        weightedSize -= eldest.getValue();
+        return eldest.getKey();
+    }
+
+    @Override
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    @Override
+    public void clear() {
+        order.clear();
+        weightedSize = 0;
+    }
+}
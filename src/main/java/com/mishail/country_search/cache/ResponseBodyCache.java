@@ -0,0 +1,34 @@
+package com.mishail.country_search.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+@AllArgsConstructor
+@Component
+public class ResponseBodyCache {
+
+    private final CacheService cacheService;
+
+    private final CacheProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    public EncodedBody encode(final String key, final Object value) {
+        if (!properties.isResponseBodies()) {
+            return encode(value);
+        }
+        return cacheService.encoded(key, value, this::encode);
+    }
+
+    private EncodedBody encode(final Object value) {
+        try {
+            return EncodedBody.of(objectMapper.writeValueAsBytes(value),
+                    properties.getGzipMinSize());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(
+                    "can't serialize cached value to json", e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.mishail.country_search.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Small LRU admission window in front of a segmented LRU main space;
+// a window entry only enters the main space when the frequency sketch
+// says it is more popular than the main space's eviction victim.
+final class WindowTinyLfuPolicy<K> implements EvictionPolicy<K> {
+
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    // Window and protected segment are kept in access order, so a read
+    // moves its key to the tail with get() instead of a remove and put
+    // that would allocate a new node on every hit.
+    private final LinkedHashMap<K, Long> window =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Long> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Long> protectedSegment =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+
+    private final long windowMaximum;
+    private final long mainMaximum;
+    private final long protectedMaximum;
+
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    WindowTinyLfuPolicy(final long maximum) {
+        windowMaximum = Math.max(1, maximum * WINDOW_PERCENT / 100);
+        mainMaximum = Math.max(0, maximum - windowMaximum);
+        protectedMaximum = mainMaximum * PROTECTED_PERCENT / 100;
+        sketch = new FrequencySketch(maximum);
+    }
+
+    @Override
+    public void onRead(final K key) {
+        if (window.containsKey(key)) {
+            sketch.increment(key);
+            window.get(key);
+        } else if (probation.containsKey(key)) {
+            sketch.increment(key);
+            long weight = probation.remove(key);
+            probationWeight -= weight;
+            protectedSegment.put(key, weight);
+            protectedWeight += weight;
+            demoteProtectedOverflow();
+        } else if (protectedSegment.containsKey(key)) {
+            sketch.increment(key);
+            protectedSegment.get(key);
+        }
+    }
+
+    @Override
+    public void onWrite(final K key, final long weight) {
+        if (window.containsKey(key)) {
+            windowWeight += weight - window.get(key);
+            window.put(key, weight);
+            onRead(key);
+        } else if (probation.containsKey(key)) {
+            probationWeight += weight - probation.get(key);
+            probation.put(key, weight);
+            onRead(key);
+        } else if (protectedSegment.containsKey(key)) {
+            protectedWeight += weight - protectedSegment.get(key);
+            protectedSegment.put(key, weight);
+            onRead(key);
+        } else {
+            sketch.increment(key);
+            window.put(key, weight);
+            windowWeight += weight;
+        }
+        drainWindowIntoFreeSpace();
+    }
+
+    @Override
+    public void onRemove(final K key) {
+        Long weight = window.remove(key);
+        if (weight != null) {
+            windowWeight -= weight;
+            return;
+        }
+        weight = probation.remove(key);
+        if (weight != null) {
+            probationWeight -= weight;
+            return;
+        }
+        weight = protectedSegment.remove(key);
+        if (weight != null) {
+            protectedWeight -= weight;
+        }
+    }
+
+    @Override
+    public K evict() {
+        if (windowWeight > windowMaximum) {
+            K candidate = eldest(window);
+            K victim = mainVictim();
+            if (victim != null
+                    && sketch.frequency(candidate) > sketch.frequency(victim)) {
+                onRemove(victim);
+                long weight = window.remove(candidate);
+                windowWeight -= weight;
+                probation.put(candidate, weight);
+                probationWeight += weight;
+                return victim;
+            }
+            onRemove(candidate);
+            return candidate;
+        }
+        K victim = mainVictim();
+        if (victim == null) {
+            victim = eldest(window);
+        }
+        if (victim != null) {
+            onRemove(victim);
+        }
+        return victim;
+    }
+
+    @Override
+    public long weightedSize() {
+        return windowWeight + probationWeight + protectedWeight;
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = 0;
+        probationWeight = 0;
+        protectedWeight = 0;
+        sketch.clear();
+    }
+
+    private K mainVictim() {
+        K victim = eldest(probation);
+        return victim != null ? victim : eldest(protectedSegment);
+    }
+
+    private void drainWindowIntoFreeSpace() {
+        while (windowWeight > windowMaximum) {
+            // Reading the weight through get() would touch the entry
+            Map.Entry<K, Long> eldestEntry =
+                    window.entrySet().iterator().next();
+            K eldest = eldestEntry.getKey();
+            long weight = eldestEntry.getValue();
+            if (probationWeight + protectedWeight + weight > mainMaximum) {
+                return;
+            }
+            window.remove(eldest);
+            windowWeight -= weight;
+            probation.put(eldest, weight);
+            probationWeight += weight;
+        }
+    }
+
+    private void demoteProtectedOverflow() {
+        while (protectedWeight > protectedMaximum
+                && !protectedSegment.isEmpty()) {
+            K eldest = eldest(protectedSegment);
+            long weight = protectedSegment.remove(eldest);
+            protectedWeight -= weight;
+            probation.put(eldest, weight);
+            probationWeight += weight;
+        }
+    }
+
+    private static <K> K eldest(final LinkedHashMap<K, Long> segment) {
+        Iterator<Map.Entry<K, Long>> iterator = segment.entrySet().iterator();
+        return iterator.hasNext() ? iterator.next().getKey() : null;
+    }
+}
@@ -0,0 +1,44 @@
+package com.mishail.country_search.controller;
+
+import com.mishail.country_search.dto.AggregateRow;
+import com.mishail.country_search.service.AggregationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/aggregate")
+@Tag(name = "Aggregates", description = "You can sum, average and find "
+        + "extremes of country figures per nation, language and religion")
+@CrossOrigin
+public class AggregationController {
+
+    private final AggregationService aggregationService;
+
+    @GetMapping
+    @Operation(method = "GET",
+            summary = "Aggregate countries",
+            description = "Get count, sum, average, min and max of countries "
+                    + "population, area or gdp for every nation, language "
+                    + "or religion spoken or practised in them")
+    public ResponseEntity<List<AggregateRow>> aggregate(
+            @RequestParam
+            @Parameter(description = "nation, language or religion")
+            final String groupBy,
+            @RequestParam
+            @Parameter(description = "population, area or gdp")
+            final String field) {
+        List<AggregateRow> rows = aggregationService.aggregate(groupBy, field);
+        if (rows.isEmpty()) {
+            return new ResponseEntity<>(rows, HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(rows, HttpStatus.OK);
+    }
+}
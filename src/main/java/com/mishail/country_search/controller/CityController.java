@@ -1,11 +1,18 @@
 package com.mishail.country_search.controller;
 
+import com.mishail.country_search.cache.ETag;
+import com.mishail.country_search.dto.CityDto;
 import com.mishail.country_search.model.City;
 import com.mishail.country_search.service.CityService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -27,12 +34,39 @@ public class CityController {
     @Operation(method = "GET",
             summary = "Get cities",
             description = "Get information about all cities")
-    public ResponseEntity<List<City>> getCities() {
-        List<City> cities = cityService.getCities();
+    @ApiResponse(responseCode = "200", content = @Content(
+            array = @ArraySchema(schema = @Schema(
+                    implementation = CityDto.class))))
+    public ResponseEntity<?> getCities(
+            @RequestParam(required = false)
+            @Parameter(description = "Maximum number of cities in a page,"
+                    + " all cities are returned without it and after")
+            final Integer limit,
+            @RequestParam(required = false)
+            @Parameter(description = "Id of the last city"
+                    + " from the previous page, pages default to "
+                    + Pagination.DEFAULT_LIMIT + " cities without limit")
+            final Long after,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING,
+                    required = false) final String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                    required = false) final String ifNoneMatch) {
+        if (limit != null || after != null) {
+            int size = Pagination.limit(limit);
+            return Pagination.page(cityService.getCities(
+                    Pagination.after(after), size), size, CityDto::id);
+        }
+        ETag eTag = cityService.getCitiesETag();
+        String cached = eTag.match(ifNoneMatch, acceptEncoding);
+        if (cached != null) {
+            return ETag.notModified(cached);
+        }
+        List<CityDto> cities = cityService.getCities();
         if (cities.isEmpty()) {
-            return new ResponseEntity<>(cities, HttpStatus.NO_CONTENT);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
-        return new ResponseEntity<>(cities, HttpStatus.OK);
+        return cityService.encodeCities(cities)
+                .toResponseEntity(acceptEncoding, eTag);
     }
 
     @GetMapping(path = "countries/{countryId}/cities")
@@ -40,11 +74,11 @@ public class CityController {
             summary = "Get all cities by country",
             description = "Get information about all cities"
                     + " from country by its id")
-    public ResponseEntity<Set<City>> getCitiesByCountryId(
+    public ResponseEntity<Set<CityDto>> getCitiesByCountryId(
             @PathVariable(value = "countryId")
             @Parameter(description = "Id of the country,"
                     + " which cities you want to see") final Long countryId) {
-        Set<City> cities = cityService.getCitiesByCountryId(countryId);
+        Set<CityDto> cities = cityService.getCitiesByCountryId(countryId);
         if (cities.isEmpty()) {
             return new ResponseEntity<>(cities, HttpStatus.NO_CONTENT);
         }
@@ -1,14 +1,23 @@
 package com.mishail.country_search.controller;
 
+import com.mishail.country_search.cache.ETag;
+import com.mishail.country_search.dto.CountryDto;
 import com.mishail.country_search.model.Country;
+import com.mishail.country_search.service.CountryExportService;
 import com.mishail.country_search.service.CountryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -22,23 +31,64 @@ public class CountryController {
 
     private final CountryService countryService;
 
+    private final CountryExportService countryExportService;
+
     @GetMapping
     @Operation(method = "GET",
             summary = "Get countries",
             description = "Get information about all countries")
-    public ResponseEntity<List<Country>> getCountries() {
-        List<Country> countries = countryService.getCountries();
+    @ApiResponse(responseCode = "200", content = @Content(
+            array = @ArraySchema(schema = @Schema(
+                    implementation = CountryDto.class))))
+    public ResponseEntity<?> getCountries(
+            @RequestParam(required = false)
+            @Parameter(description = "Maximum number of countries in a page,"
+                    + " all countries are returned without it and after")
+            final Integer limit,
+            @RequestParam(required = false)
+            @Parameter(description = "Id of the last country"
+                    + " from the previous page, pages default to "
+                    + Pagination.DEFAULT_LIMIT + " countries without limit")
+            final Long after,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING,
+                    required = false) final String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                    required = false) final String ifNoneMatch) {
+        if (limit != null || after != null) {
+            int size = Pagination.limit(limit);
+            return Pagination.page(countryService.getCountries(
+                    Pagination.after(after), size), size, CountryDto::id);
+        }
+        // Read the version before the data, so a concurrent write can
+        // only make the served ETag older than the body, never newer.
+        ETag eTag = countryService.getCountriesETag();
+        String cached = eTag.match(ifNoneMatch, acceptEncoding);
+        if (cached != null) {
+            return ETag.notModified(cached);
+        }
+        List<CountryDto> countries = countryService.getCountries();
         if (countries.isEmpty()) {
-            return new ResponseEntity<>(countries, HttpStatus.NO_CONTENT);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
-        return new ResponseEntity<>(countries, HttpStatus.OK);
+        return countryService.encodeCountries(countries)
+                .toResponseEntity(acceptEncoding, eTag);
+    }
+
+    @GetMapping(path = "export", produces = "application/x-ndjson")
+    @Operation(method = "GET",
+            summary = "Export countries",
+            description = "Stream all countries with their cities and "
+                    + "nations, one JSON object per line")
+    public ResponseEntity<StreamingResponseBody> exportCountries() {
+        return new ResponseEntity<>(countryExportService::exportCountries,
+                HttpStatus.OK);
     }
 
     @GetMapping(path = "{id}")
     @Operation(method = "GET",
             summary = "Get country",
             description = "Get information about country by its id")
-    public ResponseEntity<Country> getCountryById(
+    public ResponseEntity<CountryDto> getCountryById(
             @PathVariable("id")
             @Parameter(description = "Id of the country,"
                     + " which information you want to see")
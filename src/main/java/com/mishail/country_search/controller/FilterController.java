@@ -0,0 +1,77 @@
+package com.mishail.country_search.controller;
+
+import com.mishail.country_search.dto.CountryDto;
+import com.mishail.country_search.dto.NationDto;
+import com.mishail.country_search.search.MembershipFilter;
+import com.mishail.country_search.service.FilterService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/filter")
+@Tag(name = "Filters", description = "You can combine nations, languages, "
+        + "religions and population to filter countries and nations")
+@CrossOrigin
+public class FilterController {
+
+    private final FilterService filterService;
+
+    @GetMapping("/countries")
+    @Operation(method = "GET",
+            summary = "Filter countries",
+            description = "Get countries having all of the nations, any of "
+                    + "anyNations and none of excludedNations, where the "
+                    + "language is spoken and the religion practised")
+    public ResponseEntity<List<CountryDto>> filterCountries(
+            @RequestParam(required = false)
+            @Parameter(description = "ids of nations living in every country")
+            final List<Long> nations,
+            @RequestParam(required = false)
+            @Parameter(description = "ids of nations, at least one of them")
+            final List<Long> anyNations,
+            @RequestParam(required = false)
+            @Parameter(description = "ids of nations none of which live there")
+            final List<Long> excludedNations,
+            @RequestParam(required = false) final String language,
+            @RequestParam(required = false) final String religion,
+            @RequestParam(required = false) final Double minPopulation,
+            @RequestParam(required = false) final Double maxPopulation,
+            @RequestParam(defaultValue = "100") final int limit) {
+        Pagination.checkLimit(limit);
+        return response(filterService.filterCountries(new MembershipFilter(
+                nations, anyNations, excludedNations, language, religion,
+                minPopulation, maxPopulation), limit));
+    }
+
+    @GetMapping("/nations")
+    @Operation(method = "GET",
+            summary = "Filter nations",
+            description = "Get nations with the language and the religion "
+                    + "living in at least one country with population "
+                    + "between minPopulation and maxPopulation")
+    public ResponseEntity<List<NationDto>> filterNations(
+            @RequestParam(required = false) final String language,
+            @RequestParam(required = false) final String religion,
+            @RequestParam(required = false) final Double minPopulation,
+            @RequestParam(required = false) final Double maxPopulation,
+            @RequestParam(defaultValue = "100") final int limit) {
+        Pagination.checkLimit(limit);
+        return response(filterService.filterNations(language, religion,
+                minPopulation, maxPopulation, limit));
+    }
+
+    private static <T> ResponseEntity<List<T>> response(final List<T> items) {
+        if (items.isEmpty()) {
+            return new ResponseEntity<>(items, HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(items, HttpStatus.OK);
+    }
+}
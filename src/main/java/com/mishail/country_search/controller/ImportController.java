@@ -0,0 +1,48 @@
+package com.mishail.country_search.controller;
+
+import com.mishail.country_search.dto.ImportResult;
+import com.mishail.country_search.repository.ImportFormat;
+import com.mishail.country_search.repository.ImportKind;
+import com.mishail.country_search.service.ImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api")
+@Tag(name = "Import", description = "You can load large amounts of "
+        + "countries, cities and nations at once")
+@CrossOrigin
+public class ImportController {
+
+    private final ImportService importService;
+
+    @PostMapping(path = "/import/{kind}",
+            consumes = {"text/csv", "application/x-ndjson"})
+    @Operation(method = "POST",
+            summary = "Import rows",
+            description = "Stream a CSV file with a header line or NDJSON "
+                    + "into the database. Columns: countries - name, "
+                    + "capital, population, area, gdp; cities - country, "
+                    + "name, population, area; nations - name, language, "
+                    + "religion; country-nations - country, nation. "
+                    + "Rows are matched by name, existing ones are updated")
+    public ResponseEntity<ImportResult> importRows(
+            @PathVariable(value = "kind")
+            @Parameter(description = "countries, cities, nations "
+                    + "or country-nations") final String kind,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) final String contentType,
+            final InputStream body) {
+        return new ResponseEntity<>(importService.importRows(
+                ImportKind.of(kind), ImportFormat.of(contentType), body),
+                HttpStatus.OK);
+    }
+}
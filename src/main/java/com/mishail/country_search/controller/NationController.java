@@ -1,12 +1,19 @@
 package com.mishail.country_search.controller;
 
-import com.mishail.country_search.model.Country;
+import com.mishail.country_search.cache.ETag;
+import com.mishail.country_search.dto.CountryDto;
+import com.mishail.country_search.dto.NationDto;
 import com.mishail.country_search.model.Nation;
 import com.mishail.country_search.service.NationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -30,11 +37,11 @@ public class NationController {
             summary = "Get nations from country",
             description = "Get information about all nations "
                     + "from country by its id")
-    public ResponseEntity<Set<Nation>> getNationsByCountryId(
+    public ResponseEntity<Set<NationDto>> getNationsByCountryId(
             @PathVariable(value = "countryId")
             @Parameter(description = "Id of the country, "
                     + "which nations you want to see") final Long countryId) {
-        Set<Nation> nations = nationService.getNationsByCountryId(countryId);
+        Set<NationDto> nations = nationService.getNationsByCountryId(countryId);
         if (nations.isEmpty()) {
             return new ResponseEntity<>(nations, HttpStatus.NO_CONTENT);
         }
@@ -45,12 +52,39 @@ public class NationController {
     @Operation(method = "GET",
             summary = "Get nations",
             description = "Get information about all nations")
-    public ResponseEntity<List<Nation>> getNations() {
-        List<Nation> nations = nationService.getNations();
+    @ApiResponse(responseCode = "200", content = @Content(
+            array = @ArraySchema(schema = @Schema(
+                    implementation = NationDto.class))))
+    public ResponseEntity<?> getNations(
+            @RequestParam(required = false)
+            @Parameter(description = "Maximum number of nations in a page,"
+                    + " all nations are returned without it and after")
+            final Integer limit,
+            @RequestParam(required = false)
+            @Parameter(description = "Id of the last nation"
+                    + " from the previous page, pages default to "
+                    + Pagination.DEFAULT_LIMIT + " nations without limit")
+            final Long after,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING,
+                    required = false) final String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                    required = false) final String ifNoneMatch) {
+        if (limit != null || after != null) {
+            int size = Pagination.limit(limit);
+            return Pagination.page(nationService.getNations(
+                    Pagination.after(after), size), size, NationDto::id);
+        }
+        ETag eTag = nationService.getNationsETag();
+        String cached = eTag.match(ifNoneMatch, acceptEncoding);
+        if (cached != null) {
+            return ETag.notModified(cached);
+        }
+        List<NationDto> nations = nationService.getNations();
         if (nations.isEmpty()) {
-            return new ResponseEntity<>(nations, HttpStatus.NO_CONTENT);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
-        return new ResponseEntity<>(nations, HttpStatus.OK);
+        return nationService.encodeNations(nations)
+                .toResponseEntity(acceptEncoding, eTag);
     }
 
     @GetMapping("nations/{nationId}/countries")
@@ -58,11 +92,11 @@ public class NationController {
             summary = "Get countries from nation",
             description = "Get information about all countries "
                     + "from nation by its id")
-    public ResponseEntity<Set<Country>> getCountriesByNationId(
+    public ResponseEntity<Set<CountryDto>> getCountriesByNationId(
             @PathVariable(value = "nationId")
             @Parameter(description = "Id of the nation, "
                     + "which countries you want to see") final Long nationId) {
-        Set<Country> countries = nationService.getCountriesByNationId(nationId);
+        Set<CountryDto> countries = nationService.getCountriesByNationId(nationId);
         if (countries.isEmpty()) {
             return new ResponseEntity<>(countries, HttpStatus.NO_CONTENT);
         }
@@ -0,0 +1,58 @@
+package com.mishail.country_search.controller;
+
+import com.mishail.country_search.exception.BadRequestException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+import java.util.function.Function;
+
+final class Pagination {
+
+    static final int MAX_LIMIT = 1000;
+
+    static final int DEFAULT_LIMIT = 100;
+
+    private Pagination() {
+    }
+
+    static void checkLimit(final int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("limit should be between 1 and "
+                    + MAX_LIMIT);
+        }
+    }
+
+    // A request that gives only after still gets a page, of the default
+    // size, rather than the whole unpaged collection
+    static int limit(final Integer limit) {
+        int size = limit == null ? DEFAULT_LIMIT : limit;
+        checkLimit(size);
+        return size;
+    }
+
+    static long after(final Long after) {
+        return after == null ? 0 : after;
+    }
+
+    // A full page links to the next one, keyed by the last id it returned.
+    static <T> ResponseEntity<List<T>> page(final List<T> items,
+                                            final int limit,
+                                            final Function<T, Long> id) {
+        if (items.isEmpty()) {
+            return new ResponseEntity<>(items, HttpStatus.NO_CONTENT);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (items.size() == limit) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after",
+                            id.apply(items.get(items.size() - 1)))
+                    .toUriString();
+            response.header(HttpHeaders.LINK,
+                    "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(items);
+    }
+}
@@ -0,0 +1,96 @@
+package com.mishail.country_search.controller;
+
+import com.mishail.country_search.dto.CityDto;
+import com.mishail.country_search.dto.CountryDto;
+import com.mishail.country_search.service.QueryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/query")
+@Tag(name = "Queries", description = "You can find countries and cities "
+        + "by population, area and gdp")
+@CrossOrigin
+public class QueryController {
+
+    private final QueryService queryService;
+
+    @GetMapping("/countries")
+    @Operation(method = "GET",
+            summary = "Get countries in range",
+            description = "Get countries whose population, area or gdp is "
+                    + "between min and max, smallest values first")
+    public ResponseEntity<List<CountryDto>> getCountriesInRange(
+            @RequestParam
+            @Parameter(description = "population, area or gdp")
+            final String field,
+            @RequestParam(required = false) final Double min,
+            @RequestParam(required = false) final Double max,
+            @RequestParam(defaultValue = "100") final int limit) {
+        Pagination.checkLimit(limit);
+        return response(queryService.getCountriesInRange(field, min, max,
+                limit));
+    }
+
+    @GetMapping("/countries/top")
+    @Operation(method = "GET",
+            summary = "Get top countries",
+            description = "Get countries with the largest or the smallest "
+                    + "population, area or gdp")
+    public ResponseEntity<List<CountryDto>> getTopCountries(
+            @RequestParam
+            @Parameter(description = "population, area or gdp")
+            final String field,
+            @RequestParam(defaultValue = "10") final int k,
+            @RequestParam(defaultValue = "true") final boolean largest) {
+        Pagination.checkLimit(k);
+        return response(queryService.getTopCountries(field, k, largest));
+    }
+
+    @GetMapping("/cities")
+    @Operation(method = "GET",
+            summary = "Get cities in range",
+            description = "Get cities whose population or area is "
+                    + "between min and max, smallest values first")
+    public ResponseEntity<List<CityDto>> getCitiesInRange(
+            @RequestParam
+            @Parameter(description = "population or area")
+            final String field,
+            @RequestParam(required = false) final Double min,
+            @RequestParam(required = false) final Double max,
+            @RequestParam(defaultValue = "100") final int limit) {
+        Pagination.checkLimit(limit);
+        return response(queryService.getCitiesInRange(field, min, max,
+                limit));
+    }
+
+    @GetMapping("/cities/top")
+    @Operation(method = "GET",
+            summary = "Get top cities",
+            description = "Get cities with the largest or the smallest "
+                    + "population or area")
+    public ResponseEntity<List<CityDto>> getTopCities(
+            @RequestParam
+            @Parameter(description = "population or area")
+            final String field,
+            @RequestParam(defaultValue = "10") final int k,
+            @RequestParam(defaultValue = "true") final boolean largest) {
+        Pagination.checkLimit(k);
+        return response(queryService.getTopCities(field, k, largest));
+    }
+
+    private static <T> ResponseEntity<List<T>> response(final List<T> items) {
+        if (items.isEmpty()) {
+            return new ResponseEntity<>(items, HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(items, HttpStatus.OK);
+    }
+}
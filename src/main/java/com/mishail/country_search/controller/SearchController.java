@@ -0,0 +1,64 @@
+package com.mishail.country_search.controller;
+
+import com.mishail.country_search.search.FuzzyHit;
+import com.mishail.country_search.search.SearchHit;
+import com.mishail.country_search.service.SearchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@AllArgsConstructor
+@RestController
+@RequestMapping("/api/search")
+@Tag(name = "Search", description = "You can find countries, capitals,"
+        + " cities and nations by name")
+@CrossOrigin
+public class SearchController {
+
+    private final SearchService searchService;
+
+    @GetMapping
+    @Operation(method = "GET",
+            summary = "Search by prefix",
+            description = "Get countries, capitals, cities and nations "
+                    + "whose names start with the prefix, ignoring case")
+    public ResponseEntity<List<SearchHit>> searchByPrefix(
+            @RequestParam
+            @Parameter(description = "Beginning of the name")
+            final String prefix,
+            @RequestParam(defaultValue = "10")
+            @Parameter(description = "Maximum number of results")
+            final int limit) {
+        List<SearchHit> hits = searchService.searchByPrefix(prefix, limit);
+        if (hits.isEmpty()) {
+            return new ResponseEntity<>(hits, HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(hits, HttpStatus.OK);
+    }
+
+    @GetMapping("/fuzzy")
+    @Operation(method = "GET",
+            summary = "Search by similar name",
+            description = "Get countries, capitals, cities and nations "
+                    + "whose names are similar to the query, so typos are "
+                    + "tolerated. The best matches come first")
+    public ResponseEntity<List<FuzzyHit>> searchFuzzy(
+            @RequestParam
+            @Parameter(description = "Name, possibly misspelled")
+            final String query,
+            @RequestParam(defaultValue = "10")
+            @Parameter(description = "Maximum number of results")
+            final int limit) {
+        List<FuzzyHit> hits = searchService.searchFuzzy(query, limit);
+        if (hits.isEmpty()) {
+            return new ResponseEntity<>(hits, HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(hits, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,5 @@
+package com.mishail.country_search.dto;
+
+public record AggregateRow(String group, long countries, double sum,
+                           double average, double min, double max) {
+}
@@ -0,0 +1,16 @@
+package com.mishail.country_search.dto;
+
+import com.mishail.country_search.model.City;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record CityDto(
+        Long id,
+        @Schema(example = "Minsk") String name,
+        @Schema(example = "2000000") Double population,
+        @Schema(example = "50000") Double areaSquareKm) {
+
+    public static CityDto from(final City city) {
+        return new CityDto(city.getId(), city.getName(),
+                city.getPopulation(), city.getAreaSquareKm());
+    }
+}
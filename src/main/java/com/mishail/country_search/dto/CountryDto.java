@@ -0,0 +1,37 @@
+package com.mishail.country_search.dto;
+
+import com.mishail.country_search.model.Country;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public record CountryDto(
+        Long id,
+        @Schema(example = "Belarus") String name,
+        @Schema(example = "Minsk") String capital,
+        @Schema(example = "1.431E8") Double population,
+        @Schema(example = "1.71E7") Double areaSquareKm,
+        @Schema(example = "1.779E12") Double gdp,
+        Set<CityDto> cities,
+        Set<NationDto> nations) {
+
+    public static CountryDto from(final Country country) {
+        return new CountryDto(country.getId(), country.getName(),
+                country.getCapital(), country.getPopulation(),
+                country.getAreaSquareKm(), country.getGdp(),
+                snapshot(country.getCities(), CityDto::from),
+                snapshot(country.getNations(), NationDto::from));
+    }
+
+    public static <E, D> Set<D> snapshot(final Collection<E> entities,
+                                         final Function<E, D> mapper) {
+        if (entities == null) {
+            return Set.of();
+        }
+        return entities.stream().map(mapper)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+}
@@ -0,0 +1,12 @@
+package com.mishail.country_search.dto;
+
+public record ImportResult(String kind, long staged, long updated,
+                           long inserted, long skipped) {
+
+    // Rows whose country or nation name was not found are not merged
+    public static ImportResult of(final String kind, final long staged,
+                                  final long updated, final long inserted) {
+        return new ImportResult(kind, staged, updated, inserted,
+                Math.max(0, staged - updated - inserted));
+    }
+}
@@ -0,0 +1,18 @@
+package com.mishail.country_search.dto;
+
+import com.mishail.country_search.model.Nation;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+// Language and religion of loaded nations are the dictionary's shared
+// instances, so cached snapshots hold a reference rather than a copy.
+public record NationDto(
+        Long id,
+        @Schema(example = "Belarusian") String name,
+        @Schema(example = "Belarusian") String language,
+        @Schema(example = "Christian") String religion) {
+
+    public static NationDto from(final Nation nation) {
+        return new NationDto(nation.getId(), nation.getName(),
+                nation.getLanguage(), nation.getReligion());
+    }
+}
@@ -0,0 +1,8 @@
+package com.mishail.country_search.exception;
+
+
+public class BadRequestException extends RuntimeException {
+    public BadRequestException(final String msg) {
+        super(msg);
+    }
+}
@@ -23,6 +23,18 @@ public class ExceptionManager {
         return new ResponseEntity<>(message, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ErrorMessage> badRequestException(
+            final BadRequestException ex, final WebRequest request) {
+        ErrorMessage message = new ErrorMessage(
+                HttpStatus.BAD_REQUEST.value(),
+                new Date(),
+                ex.getMessage(),
+                request.getDescription(false));
+
+        return new ResponseEntity<>(message, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(ObjectExistedException.class)
     public ResponseEntity<ErrorMessage> objectExistedException(
             final ObjectExistedException ex, final WebRequest request) {
@@ -0,0 +1,65 @@
+package com.mishail.country_search.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public final class EndpointStats {
+
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder overBudget = new LongAdder();
+    private final LongAdder slowQueries = new LongAdder();
+
+    void record(final long nanos, final boolean success) {
+        if (success) {
+            successes.increment();
+        } else {
+            failures.increment();
+        }
+        totalNanos.add(nanos);
+        latency.record(nanos);
+    }
+
+    void recordSql(final int count, final boolean budgetExceeded,
+                   final int slow) {
+        statements.add(count);
+        if (budgetExceeded) {
+            overBudget.increment();
+        }
+        slowQueries.add(slow);
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getRequests() {
+        return getSuccesses() + getFailures();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    public long getOverBudget() {
+        return overBudget.sum();
+    }
+
+    public long getSlowQueries() {
+        return slowQueries.sum();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+}
@@ -0,0 +1,160 @@
+package com.mishail.country_search.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+// HDR-style log-linear histogram of latencies in microseconds. Values below
+// 32 get a bucket each, above that every power of two is split into 16
+// buckets, so a reported percentile is at most about 6% above the real one.
+// Recording is one atomic increment and never takes a lock.
+//
+// Percentiles and the maximum cover only the recent window: samples go to
+// one of a ring of slots, and a slot is cleared before it is reused, so a
+// slow start or a single outlier ages out instead of staying forever.
+public final class LatencyHistogram {
+
+    static final Duration DEFAULT_WINDOW = Duration.ofMinutes(1);
+
+    private static final int SLOTS = 6;
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int LINEAR_BUCKETS = SUB_BUCKETS * 2;
+
+    // Anything slower than about 71 minutes lands in the last bucket
+    private static final int MAX_EXPONENT = 32;
+
+    private static final int BUCKETS =
+            LINEAR_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray[] counts = new AtomicLongArray[SLOTS];
+
+    private final AtomicLongArray max = new AtomicLongArray(SLOTS);
+
+    private final LongSupplier nanoClock;
+
+    private final long slotNanos;
+
+    private final AtomicLong tick;
+
+    public LatencyHistogram() {
+        this(DEFAULT_WINDOW, System::nanoTime);
+    }
+
+    LatencyHistogram(final Duration window, final LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.slotNanos = Math.max(window.toNanos() / SLOTS, 1);
+        this.tick = new AtomicLong(currentTick());
+        for (int i = 0; i < SLOTS; i++) {
+            counts[i] = new AtomicLongArray(BUCKETS);
+        }
+    }
+
+    public void record(final long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0));
+        int slot = advance();
+        counts[slot].incrementAndGet(Math.min(index(micros), BUCKETS - 1));
+        max.accumulateAndGet(slot, micros, Math::max);
+    }
+
+    public long count() {
+        advance();
+        long count = 0;
+        for (AtomicLongArray slot : counts) {
+            for (int i = 0; i < BUCKETS; i++) {
+                count += slot.get(i);
+            }
+        }
+        return count;
+    }
+
+    public long maxMicros() {
+        advance();
+        long result = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            result = Math.max(result, max.get(i));
+        }
+        return result;
+    }
+
+    // Highest value of the bucket holding the given quantile, never above
+    // the recorded maximum; 0 while nothing was recorded
+    public long percentileMicros(final double quantile) {
+        advance();
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (AtomicLongArray slot : counts) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long bucket = slot.get(i);
+                snapshot[i] += bucket;
+                count += bucket;
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), maxMicros());
+            }
+        }
+        return maxMicros();
+    }
+
+    // Clears the slots the clock moved past and returns the current one. A
+    // sample racing with the clear may be dropped, which only costs one
+    // value at a slot boundary.
+    private int advance() {
+        long now = currentTick();
+        long last = tick.get();
+        while (now > last) {
+            if (tick.compareAndSet(last, now)) {
+                for (long t = Math.max(last + 1, now - SLOTS + 1); t <= now;
+                     t++) {
+                    clear(Math.floorMod(t, SLOTS));
+                }
+                break;
+            }
+            last = tick.get();
+        }
+        return Math.floorMod(now, SLOTS);
+    }
+
+    private void clear(final int slot) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[slot].set(i, 0);
+        }
+        max.set(slot, 0);
+    }
+
+    private long currentTick() {
+        return Math.floorDiv(nanoClock.getAsLong(), slotNanos);
+    }
+
+    static int index(final long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(micros)
+                - SUB_BUCKET_BITS - 1;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS
+                + (int) (micros >>> shift) - SUB_BUCKETS;
+    }
+
+    static long highestValue(final int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long mantissa = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,39 @@
+package com.mishail.country_search.metrics;
+
+import lombok.RequiredArgsConstructor;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+// Wraps the data source, so every statement is timed where it runs on the
+// request thread. The monitor is looked up lazily, a post-processor must
+// not pull the metrics beans in before they can be processed themselves.
+@Component
+@RequiredArgsConstructor
+public class QueryTimer implements BeanPostProcessor {
+
+    private final ObjectProvider<SqlMonitor> sqlMonitor;
+
+    @Override
+    public Object postProcessAfterInitialization(final Object bean,
+                                                 final String beanName) {
+        if (!(bean instanceof DataSource dataSource)
+                || bean instanceof ProxyDataSource) {
+            return bean;
+        }
+        return ProxyDataSourceBuilder.create(dataSource)
+                .name(beanName)
+                .afterQuery((execution, queries) -> {
+                    if (!queries.isEmpty()) {
+                        sqlMonitor.getObject().queryExecuted(
+                                queries.get(0).getQuery(),
+                                execution.getElapsedTime());
+                    }
+                })
+                .build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.mishail.country_search.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+@Component
+@AllArgsConstructor
+public class RequestMeterBinder implements MeterBinder {
+
+    private static final String ENDPOINT_TAG = "endpoint";
+
+    private static final double MICROS_PER_SECOND = 1e6;
+
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99};
+
+    private final RequestMetrics requestMetrics;
+
+    @Override
+    public void bindTo(final MeterRegistry registry) {
+        requestMetrics.addEndpointListener((endpoint, stats) ->
+                bindEndpoint(registry, endpoint, stats));
+    }
+
+    private void bindEndpoint(final MeterRegistry registry,
+                              final String endpoint,
+                              final EndpointStats stats) {
+        FunctionCounter.builder("endpoint.requests", stats,
+                        EndpointStats::getSuccesses)
+                .tags(ENDPOINT_TAG, endpoint, "outcome", "success")
+                .register(registry);
+        FunctionCounter.builder("endpoint.requests", stats,
+                        EndpointStats::getFailures)
+                .tags(ENDPOINT_TAG, endpoint, "outcome", "error")
+                .register(registry);
+        FunctionTimer.builder("endpoint.duration", stats,
+                        EndpointStats::getRequests,
+                        EndpointStats::getTotalNanos, TimeUnit.NANOSECONDS)
+                .tag(ENDPOINT_TAG, endpoint)
+                .register(registry);
+        FunctionCounter.builder("endpoint.sql.statements", stats,
+                        EndpointStats::getStatements)
+                .tag(ENDPOINT_TAG, endpoint)
+                .register(registry);
+        FunctionCounter.builder("endpoint.sql.over.budget", stats,
+                        EndpointStats::getOverBudget)
+                .tag(ENDPOINT_TAG, endpoint)
+                .register(registry);
+        FunctionCounter.builder("endpoint.sql.slow.queries", stats,
+                        EndpointStats::getSlowQueries)
+                .tag(ENDPOINT_TAG, endpoint)
+                .register(registry);
+        LatencyHistogram latency = stats.getLatency();
+        for (double quantile : QUANTILES) {
+            Gauge.builder("endpoint.latency", latency, histogram ->
+                            histogram.percentileMicros(quantile)
+                                    / MICROS_PER_SECOND)
+                    .tags(ENDPOINT_TAG, endpoint,
+                            "quantile", String.valueOf(quantile))
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+        Gauge.builder("endpoint.latency.max", latency, histogram ->
+                        histogram.maxMicros() / MICROS_PER_SECOND)
+                .tag(ENDPOINT_TAG, endpoint)
+                .baseUnit("seconds")
+                .register(registry);
+    }
+}
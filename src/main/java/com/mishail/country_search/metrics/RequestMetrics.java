@@ -0,0 +1,77 @@
+package com.mishail.country_search.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+// Per-endpoint request counters and latency histograms. Every structure on
+// the recording path is striped or atomic, so concurrent requests never
+// wait on a shared monitor.
+@Component
+public class RequestMetrics {
+
+    private final Map<Method, EndpointStats> byMethod =
+            new ConcurrentHashMap<>();
+
+    private final Map<String, EndpointStats> endpoints =
+            new ConcurrentHashMap<>();
+
+    private final List<BiConsumer<String, EndpointStats>> endpointListeners =
+            new CopyOnWriteArrayList<>();
+
+    public void record(final Method method, final long nanos,
+                       final boolean success) {
+        statsOf(method).record(nanos, success);
+    }
+
+    public void recordSql(final Method method, final int statements,
+                          final boolean overBudget, final int slowQueries) {
+        statsOf(method).recordSql(statements, overBudget, slowQueries);
+    }
+
+    public long totalRequests() {
+        long total = 0;
+        for (EndpointStats stats : endpoints.values()) {
+            total += stats.getRequests();
+        }
+        return total;
+    }
+
+    public Map<String, EndpointStats> stats() {
+        return Map.copyOf(endpoints);
+    }
+
+    public void addEndpointListener(
+            final BiConsumer<String, EndpointStats> listener) {
+        endpointListeners.add(listener);
+        endpoints.forEach(listener);
+    }
+
+    private EndpointStats statsOf(final Method method) {
+        EndpointStats stats = byMethod.get(method);
+        if (stats != null) {
+            return stats;
+        }
+        // Overloads of one controller method share their endpoint name
+        String endpoint = endpointOf(method);
+        EndpointStats created = new EndpointStats();
+        stats = endpoints.putIfAbsent(endpoint, created);
+        if (stats == null) {
+            stats = created;
+            endpointListeners.forEach(listener ->
+                    listener.accept(endpoint, created));
+        }
+        byMethod.putIfAbsent(method, stats);
+        return stats;
+    }
+
+    static String endpointOf(final Method method) {
+        return method.getDeclaringClass().getSimpleName()
+                + "." + method.getName();
+    }
+}
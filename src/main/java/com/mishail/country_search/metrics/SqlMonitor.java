@@ -0,0 +1,112 @@
+package com.mishail.country_search.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+// Counts the SQL statements Hibernate prepares for each controller call,
+// QueryTimer reports how long they ran. Requests over the statement budget
+// and slow queries are logged with the controller method they belong to
+// and counted in the endpoint metrics.
+@Component
+@RequiredArgsConstructor
+public class SqlMonitor implements StatementInspector,
+        HibernatePropertiesCustomizer {
+
+    private final Logger logger = LoggerFactory.getLogger(SqlMonitor.class);
+
+    private final ThreadLocal<SqlScope> scopes = new ThreadLocal<>();
+
+    private final RequestMetrics requestMetrics;
+
+    private final SqlProperties properties;
+
+    @Override
+    public void customize(final Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+        if (properties.isStatistics()) {
+            hibernateProperties.put(AvailableSettings.GENERATE_STATISTICS,
+                    true);
+            // Statistics would otherwise log a summary for every session
+            hibernateProperties.put(AvailableSettings.LOG_SESSION_METRICS,
+                    false);
+        }
+    }
+
+    // Null when the thread is already inside a scope, the outer one counts
+    public SqlScope begin(final Method method) {
+        return begin(method, true);
+    }
+
+    // A streamed body reads chunk after chunk, so its statement count grows
+    // with the data: statements and slow queries are counted, the budget
+    // doesn't apply
+    public SqlScope beginStreaming(final Method method) {
+        return begin(method, false);
+    }
+
+    private SqlScope begin(final Method method, final boolean budgeted) {
+        if (scopes.get() != null) {
+            return null;
+        }
+        SqlScope scope = new SqlScope(method, budgeted);
+        scopes.set(scope);
+        return scope;
+    }
+
+    public void end(final SqlScope scope) {
+        if (scope == null) {
+            return;
+        }
+        scopes.remove();
+        boolean overBudget = scope.budgeted() && scope.statements()
+                > properties.getStatementBudget();
+        requestMetrics.recordSql(scope.method(), scope.statements(),
+                overBudget, scope.slowQueries());
+        if (overBudget && logger.isWarnEnabled()) {
+            Map.Entry<String, Integer> repeated = scope.mostRepeated();
+            logger.warn("{} ran {} SQL statements, budget is {}; "
+                            + "repeated {} times: {}", scope.endpoint(),
+                    scope.statements(), properties.getStatementBudget(),
+                    repeated.getValue(), repeated.getKey());
+        }
+    }
+
+    @Override
+    public String inspect(final String sql) {
+        SqlScope scope = scopes.get();
+        if (scope == null) {
+            return sql;
+        }
+        scope.statement(sql);
+        if (properties.isFailOverBudget() && scope.budgeted()
+                && scope.statements() > properties.getStatementBudget()) {
+            throw new IllegalStateException(scope.endpoint() + " ran more"
+                    + " than " + properties.getStatementBudget()
+                    + " SQL statements, the last one: " + sql);
+        }
+        return sql;
+    }
+
+    void queryExecuted(final String query, final long millis) {
+        if (millis < properties.getSlowQuery().toMillis()) {
+            return;
+        }
+        SqlScope scope = scopes.get();
+        if (scope != null) {
+            scope.slowQuery();
+        }
+        if (logger.isWarnEnabled()) {
+            logger.warn("Slow query in {}: {} ms: {}",
+                    scope == null ? "no request" : scope.endpoint(),
+                    millis, query);
+        }
+    }
+}
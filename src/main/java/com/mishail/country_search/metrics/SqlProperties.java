@@ -0,0 +1,26 @@
+package com.mishail.country_search.metrics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "sql-monitor")
+public class SqlProperties {
+
+    // A request running more statements is logged as a likely N+1
+    private int statementBudget = 25;
+
+    private Duration slowQuery = Duration.ofMillis(200);
+
+    // Hibernate session factory statistics, they add bookkeeping to every
+    // session and are only worth it while investigating
+    private boolean statistics;
+
+    // Throw instead of logging once a request goes over the budget,
+    // meant for integration tests
+    private boolean failOverBudget;
+}
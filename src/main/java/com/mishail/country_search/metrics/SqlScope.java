@@ -0,0 +1,67 @@
+package com.mishail.country_search.metrics;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+// Statements run on one thread while a controller method is executing
+public final class SqlScope {
+
+    private final Method method;
+
+    private final boolean budgeted;
+
+    // Created by the first statement, most requests never run any
+    private Map<String, Integer> repeats;
+
+    private int statements;
+
+    private int slowQueries;
+
+    SqlScope(final Method method, final boolean budgeted) {
+        this.method = method;
+        this.budgeted = budgeted;
+    }
+
+    void statement(final String sql) {
+        statements++;
+        if (repeats == null) {
+            repeats = new HashMap<>();
+        }
+        repeats.merge(sql, 1, Integer::sum);
+    }
+
+    void slowQuery() {
+        slowQueries++;
+    }
+
+    Method method() {
+        return method;
+    }
+
+    boolean budgeted() {
+        return budgeted;
+    }
+
+    String endpoint() {
+        return RequestMetrics.endpointOf(method);
+    }
+
+    public int statements() {
+        return statements;
+    }
+
+    public int slowQueries() {
+        return slowQueries;
+    }
+
+    // The statement repeated most often, the usual sign of an N+1 loop
+    public Map.Entry<String, Integer> mostRepeated() {
+        if (repeats == null) {
+            return null;
+        }
+        return repeats.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .orElse(null);
+    }
+}
@@ -0,0 +1,99 @@
+package com.mishail.country_search.model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Languages and religions repeat across all nations, so every distinct
+// value is kept once and referred to by a small int code. Only values
+// that were stored go through encode, request parameters use find. Codes
+// are never reclaimed, so the dictionary stops growing at maxSize.
+@Component
+public class AttributeDictionary {
+
+    public static final int NONE = -1;
+
+    static final int MAX_SIZE = 1 << 16;
+
+    private final Logger logger =
+            LoggerFactory.getLogger(AttributeDictionary.class);
+
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    // Written before the code is published in codes, so a reader that got
+    // a code always finds its value here.
+    private volatile String[] values = new String[16];
+
+    private int size;
+
+    private boolean full;
+
+    public AttributeDictionary() {
+        this(MAX_SIZE);
+    }
+
+    AttributeDictionary(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    // NONE once the dictionary is full and the value is not in it yet
+    public int encode(final String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    // Unknown values are not added, they get NONE like a missing value
+    public int find(final String value) {
+        if (value == null) {
+            return NONE;
+        }
+        return codes.getOrDefault(value, NONE);
+    }
+
+    public String decode(final int code) {
+        return code == NONE ? null : values[code];
+    }
+
+    // The shared instance, or the value itself when it has no code; like
+    // find it never adds a code
+    public String intern(final String value) {
+        int code = find(value);
+        return code == NONE ? value : decode(code);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private synchronized int add(final String value) {
+        Integer existing = codes.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == maxSize) {
+            if (!full) {
+                full = true;
+                logger.warn("attribute dictionary is full at {} values, "
+                        + "new values are no longer encoded", maxSize);
+            }
+            return NONE;
+        }
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = value;
+        values = current;
+        codes.put(value, size);
+        return size++;
+    }
+}
@@ -12,7 +12,10 @@ import lombok.Data;
 public class City {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "city_id_seq")
+    @SequenceGenerator(name = "city_id_seq", sequenceName = "city_id_seq",
+            allocationSize = 50)
     @Hidden
     private Long id;
 
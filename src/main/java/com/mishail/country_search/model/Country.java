@@ -13,7 +13,10 @@ import java.util.Set;
 public class Country {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "country_id_seq")
+    @SequenceGenerator(name = "country_id_seq", sequenceName = "country_id_seq",
+            allocationSize = 50)
     @Hidden
     private Long id;
 
@@ -0,0 +1,27 @@
+package com.mishail.country_search.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.AllArgsConstructor;
+
+// A loaded nation shares the dictionary's String instance instead of
+// holding its own copy read from the result set, once the membership index
+// has encoded the value. Loading never adds codes. Hibernate creates the
+// converter through Spring, which injects the dictionary.
+@AllArgsConstructor
+@Converter
+public class InternedStringConverter
+        implements AttributeConverter<String, String> {
+
+    private final AttributeDictionary dictionary;
+
+    @Override
+    public String convertToDatabaseColumn(final String value) {
+        return value;
+    }
+
+    @Override
+    public String convertToEntityAttribute(final String value) {
+        return dictionary.intern(value);
+    }
+}
@@ -14,7 +14,10 @@ import java.util.List;
 public class Nation {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "nation_id_seq")
+    @SequenceGenerator(name = "nation_id_seq", sequenceName = "nation_id_seq",
+            allocationSize = 50)
     @Hidden
     private Long id;
 
@@ -23,10 +26,12 @@ public class Nation {
     private String name;
 
     @Column(name = "language")
+    @Convert(converter = InternedStringConverter.class)
     @Schema(example = "Belarusian")
     private String language;
 
     @Column(name = "religion")
+    @Convert(converter = InternedStringConverter.class)
     @Schema(example = "Christian")
     private String religion;
 
@@ -0,0 +1,139 @@
+package com.mishail.country_search.profiling;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Exposed over JMX only: a recording holds whatever the process saw, so it
+// must not be downloadable by anyone who can reach the HTTP port. start
+// takes a JDK settings file ("default" or "profile"), stop ends the
+// recording and dump writes what was recorded so far to a local file.
+// One recording at a time; the application events are enabled in every
+// settings file.
+@Component
+@Endpoint(id = "jfr")
+public class FlightRecorderEndpoint {
+
+    static final String RECORDING_NAME = "country-search";
+
+    // The environment, system properties and JVM arguments carry the
+    // database credentials
+    private static final String[] SECRET_EVENTS = {
+            "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty",
+            "jdk.JVMInformation"};
+
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+
+    private static final long MAX_SIZE = 256L * 1024 * 1024;
+
+    // Guarded by this
+    private Recording recording;
+
+    private Path dump;
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new TreeMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("name", recording.getName());
+        status.put("state", recording.getState());
+        status.put("startTime", recording.getStartTime());
+        status.put("stopTime", recording.getStopTime());
+        status.put("size", recording.getSize());
+        return status;
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(final String settings) {
+        if (recording != null
+                && recording.getState() == RecordingState.RUNNING) {
+            return status();
+        }
+        Configuration configuration = configuration(settings);
+        close();
+        recording = new Recording(configuration);
+        for (String event : SECRET_EVENTS) {
+            recording.disable(event);
+        }
+        recording.setName(RECORDING_NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(MAX_AGE);
+        recording.setMaxSize(MAX_SIZE);
+        recording.start();
+        return status();
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() {
+        if (recording != null
+                && recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        return status();
+    }
+
+    // A running recording is dumped as it is and keeps running; returns
+    // the path of the dump on the server
+    @ReadOperation
+    public synchronized String dump(@Selector final String name) {
+        if (recording == null || !RECORDING_NAME.equals(name)
+                || recording.getState() == RecordingState.NEW) {
+            return null;
+        }
+        try {
+            if (dump == null) {
+                dump = Files.createTempFile(RECORDING_NAME, ".jfr");
+            }
+            recording.dump(dump);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return dump.toString();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        if (dump != null) {
+            try {
+                Files.deleteIfExists(dump);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            dump = null;
+        }
+    }
+
+    private static Configuration configuration(final String settings) {
+        try {
+            return Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new InvalidEndpointRequestException(
+                    "Unknown JFR settings: " + settings,
+                    "Unknown JFR settings");
+        }
+    }
+}
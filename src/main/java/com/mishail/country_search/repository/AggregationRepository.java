@@ -0,0 +1,100 @@
+package com.mishail.country_search.repository;
+
+import com.mishail.country_search.dto.AggregateRow;
+import com.mishail.country_search.search.GroupBy;
+import com.mishail.country_search.search.MembershipColumns;
+import com.mishail.country_search.search.NumericColumn;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+// DISTINCT keeps a country once per group even when two of its nations
+// share a language or a religion.
+@AllArgsConstructor
+@Repository
+public class AggregationRepository {
+
+    private static final String AGGREGATE = "SELECT grp, COUNT(*) AS n, "
+            + "SUM(v) AS total, AVG(v) AS average, "
+            + "MIN(v) AS minimum, MAX(v) AS maximum "
+            + "FROM (SELECT DISTINCT %1$s AS grp, c.id, c.%2$s AS v "
+            + "FROM country c "
+            + "JOIN country_nations cn ON cn.country_id = c.id "
+            + "JOIN nation n ON n.id = cn.nation_id "
+            + "WHERE %1$s IS NOT NULL AND c.%2$s IS NOT NULL) members "
+            + "GROUP BY grp ORDER BY grp";
+
+    private static final String COUNTRIES =
+            "SELECT id, population, area, gdp FROM country";
+
+    private static final String NATIONS =
+            "SELECT id, name, language, religion FROM nation";
+
+    private static final String MEMBERS =
+            "SELECT country_id, nation_id FROM country_nations";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<AggregateRow> aggregate(final GroupBy groupBy,
+                                        final NumericColumn column) {
+        return jdbcTemplate.query(String.format(AGGREGATE,
+                        groupColumn(groupBy), valueColumn(column)),
+                (resultSet, row) -> new AggregateRow(
+                        resultSet.getString("grp"),
+                        resultSet.getLong("n"),
+                        resultSet.getDouble("total"),
+                        resultSet.getDouble("average"),
+                        resultSet.getDouble("minimum"),
+                        resultSet.getDouble("maximum")));
+    }
+
+    @Transactional(readOnly = true)
+    public MembershipColumns loadColumns() {
+        MembershipColumns.Builder builder = MembershipColumns.builder();
+        jdbcTemplate.query(COUNTRIES, (RowCallbackHandler) resultSet ->
+                builder.country(resultSet.getLong("id"),
+                        value(resultSet, "population"),
+                        value(resultSet, "area"),
+                        value(resultSet, "gdp")));
+        jdbcTemplate.query(NATIONS, (RowCallbackHandler) resultSet ->
+                builder.nation(resultSet.getLong("id"),
+                        resultSet.getString("name"),
+                        resultSet.getString("language"),
+                        resultSet.getString("religion")));
+        jdbcTemplate.query(MEMBERS, (RowCallbackHandler) resultSet ->
+                builder.member(resultSet.getLong("country_id"),
+                        resultSet.getLong("nation_id")));
+        return builder.build();
+    }
+
+    private static Double value(final ResultSet resultSet,
+                                final String column) throws SQLException {
+        double value = resultSet.getDouble(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    // Column names come from the enums only, never from the request
+    private static String groupColumn(final GroupBy groupBy) {
+        return switch (groupBy) {
+            case NATION -> "n.name";
+            case LANGUAGE -> "n.language";
+            case RELIGION -> "n.religion";
+        };
+    }
+
+    private static String valueColumn(final NumericColumn column) {
+        return switch (column) {
+            case COUNTRY_POPULATION -> "population";
+            case COUNTRY_AREA -> "area";
+            case COUNTRY_GDP -> "gdp";
+            default -> throw new IllegalArgumentException(
+                    column + " is not a country column");
+        };
+    }
+}
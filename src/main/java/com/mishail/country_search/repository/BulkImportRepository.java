@@ -0,0 +1,151 @@
+package com.mishail.country_search.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mishail.country_search.dto.ImportResult;
+import com.mishail.country_search.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+@AllArgsConstructor
+@Repository
+public class BulkImportRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    // Must run inside a transaction, the staging table is dropped on commit
+    public ImportResult importRows(final ImportKind kind,
+                                   final ImportFormat format,
+                                   final InputStream input) {
+        return jdbcTemplate.execute(
+                (ConnectionCallback<ImportResult>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(kind.createStaging());
+                CopyManager copyManager = connection
+                        .unwrap(PGConnection.class).getCopyAPI();
+                long staged = format == ImportFormat.CSV
+                        ? copyManager.copyIn(kind.copy(
+                                readCsvHeader(kind, input)), input)
+                        : copyNdjson(copyManager.copyIn(kind.copy(
+                                kind.getColumns())), kind.getColumns(),
+                                input);
+                long updated = kind.update() == null
+                        ? 0 : statement.executeUpdate(kind.update());
+                long inserted = statement.executeUpdate(kind.insert());
+                return ImportResult.of(kind.getPath(), staged, updated,
+                        inserted);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // Null for kinds whose ids are not kept in the membership index
+    public Long maxMembershipId(final ImportKind kind) {
+        String sql = kind.maxMembershipId();
+        return sql == null
+                ? null : jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
+    private long copyNdjson(final CopyIn copyIn, final List<String> columns,
+                            final InputStream input)
+            throws IOException, SQLException {
+        try (PGCopyOutputStream output = new PGCopyOutputStream(copyIn)) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    output, StandardCharsets.UTF_8));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    input, StandardCharsets.UTF_8));
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!line.isBlank()) {
+                    writeCsvRow(readObject(line, lineNumber), columns,
+                            writer);
+                }
+            }
+            writer.flush();
+            return output.endCopy();
+        } catch (IOException | RuntimeException e) {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+            throw e;
+        }
+    }
+
+    // Reads the header line off the input and returns the columns in file
+    // order, which COPY then gets as its column list. The header has to
+    // name every column of the kind once, so a file with other or missing
+    // columns is refused instead of loading values into the wrong fields.
+    static List<String> readCsvHeader(final ImportKind kind,
+                                      final InputStream input)
+            throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int next;
+        while ((next = input.read()) != -1 && next != '\n') {
+            line.write(next);
+        }
+        List<String> header = new ArrayList<>();
+        for (String name : line.toString(StandardCharsets.UTF_8)
+                .replace("\uFEFF", "").split(",", -1)) {
+            header.add(name.strip().replace("\"", "")
+                    .toLowerCase(Locale.ROOT));
+        }
+        if (header.size() != kind.getColumns().size()
+                || !new HashSet<>(header).containsAll(kind.getColumns())) {
+            throw new BadRequestException("CSV header " + header
+                    + " does not match the columns " + kind.getColumns()
+                    + " of " + kind.getPath());
+        }
+        return header;
+    }
+
+    private JsonNode readObject(final String line, final long lineNumber) {
+        try {
+            JsonNode row = objectMapper.readTree(line);
+            if (row.isObject()) {
+                return row;
+            }
+        } catch (JsonProcessingException ignored) {
+            // reported below as a bad line
+        }
+        throw new BadRequestException("line " + lineNumber
+                + " of the upload is not a JSON object");
+    }
+
+    // An unquoted empty field is NULL for COPY, a quoted one is ''
+    static void writeCsvRow(final JsonNode row, final List<String> columns,
+                            final Writer writer) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            JsonNode value = row.get(columns.get(i));
+            if (value != null && !value.isNull()) {
+                writer.write('"');
+                writer.write(value.asText().replace("\"", "\"\""));
+                writer.write('"');
+            }
+        }
+        writer.write('\n');
+    }
+}
@@ -1,10 +1,14 @@
 package com.mishail.country_search.repository;
 
 import com.mishail.country_search.model.City;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface CityRepository extends JpaRepository<City, Long> {
 
+    List<City> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
 }
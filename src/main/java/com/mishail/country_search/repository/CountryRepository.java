@@ -1,33 +1,103 @@
 package com.mishail.country_search.repository;
 
 import com.mishail.country_search.model.Country;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CountryRepository extends JpaRepository<Country, Long> {
 
+    int FETCH_BATCH_SIZE = 500;
+
     @Query(value = "SELECT * FROM Country WHERE name = ?1", nativeQuery = true)
     Optional<Country> findCountryByName(String name);
 
+    @Query("SELECT c.name FROM Country c WHERE c.name IN :names")
+    List<String> findNamesByNameIn(@Param("names") Collection<String> names);
+
+    // Bind parameters per statement are limited, so big imports are
+    // checked in chunks.
+    default List<String> findExistingNames(final Collection<String> names) {
+        List<String> candidates = new ArrayList<>(names);
+        List<String> existing = new ArrayList<>();
+        for (int from = 0; from < candidates.size();
+             from += FETCH_BATCH_SIZE) {
+            existing.addAll(findNamesByNameIn(candidates.subList(from,
+                    Math.min(candidates.size(), from + FETCH_BATCH_SIZE))));
+        }
+        return existing;
+    }
+
     @Query("SELECT DISTINCT c FROM Country c LEFT JOIN FETCH c.cities city"
             + " WHERE :cityId IN (SELECT ct.id "
             + "FROM Country c2 JOIN c2.cities ct WHERE c2 = c)")
     Optional<Country> findCountryWithCitiesByCityId(
             @Param("cityId") Long cityId);
 
-    @Query("SELECT DISTINCT c FROM Country c "
-            + "LEFT JOIN FETCH c.nations LEFT JOIN FETCH c.cities")
-    List<Country> findAllWithCitiesAndNations();
+    // Fetch-joining both collections in one statement returns
+    // countries x cities x nations rows, so the roots are loaded first and
+    // each collection is then fetched by its own IN-batched query into the
+    // same persistence context.
+    @Transactional(readOnly = true)
+    default List<Country> findAllWithCitiesAndNations() {
+        return fetchCitiesAndNations(findAll());
+    }
 
     @Query("SELECT DISTINCT c FROM Country c LEFT JOIN FETCH c.cities")
     List<Country> findAllWithCities();
 
+    // Collection fetch joins can't be limited in SQL, so a page is chosen
+    // by id first and its cities and nations are fetched afterwards.
+    @Query("SELECT c.id FROM Country c WHERE c.id > :after ORDER BY c.id")
+    List<Long> findIdsAfter(@Param("after") Long after, Limit limit);
+
+    @Transactional(readOnly = true)
+    default List<Country> findAllWithCitiesAndNationsByIdIn(
+            final Collection<Long> ids) {
+        return fetchCitiesAndNations(findByIdInOrderByIdAsc(ids));
+    }
+
+    List<Country> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    // Postgres only uses a cursor with a fetch size inside a transaction,
+    // otherwise the driver reads the whole result at once.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE,
+            value = "500"))
+    Stream<Country> streamAllByOrderByIdAsc();
+
+    @Query("SELECT DISTINCT c FROM Country c "
+            + "LEFT JOIN FETCH c.cities WHERE c.id IN :ids")
+    List<Country> fetchCitiesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT c FROM Country c "
+            + "LEFT JOIN FETCH c.nations WHERE c.id IN :ids")
+    List<Country> fetchNationsByIdIn(@Param("ids") Collection<Long> ids);
+
+    default List<Country> fetchCitiesAndNations(
+            final List<Country> countries) {
+        List<Long> ids = countries.stream().map(Country::getId).toList();
+        for (int from = 0; from < ids.size(); from += FETCH_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from,
+                    Math.min(ids.size(), from + FETCH_BATCH_SIZE));
+            fetchCitiesByIdIn(batch);
+            fetchNationsByIdIn(batch);
+        }
+        return countries;
+    }
+
     @Query("SELECT DISTINCT c FROM Country c LEFT JOIN FETCH "
             + "c.nations LEFT JOIN FETCH c.cities WHERE c.id = :id")
     Optional<Country> findCountryWithCitiesAndNationsById(@Param("id") Long id);
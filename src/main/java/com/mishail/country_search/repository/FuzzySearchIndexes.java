@@ -0,0 +1,41 @@
+package com.mishail.country_search.repository;
+
+import com.mishail.country_search.search.SearchProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// Hibernate recreates the tables on every start, so indexes created by
+// init.sql would be dropped with them: the trigram indexes are built once
+// the schema exists.
+@RequiredArgsConstructor
+@Component
+public class FuzzySearchIndexes {
+
+    private static final String[] STATEMENTS = {
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE INDEX IF NOT EXISTS country_name_trgm "
+                    + "ON country USING gin (name gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS country_capital_trgm "
+                    + "ON country USING gin (capital gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS city_name_trgm "
+                    + "ON city USING gin (name gin_trgm_ops)",
+            "CREATE INDEX IF NOT EXISTS nation_name_trgm "
+                    + "ON nation USING gin (name gin_trgm_ops)"};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final SearchProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void create() {
+        if (!properties.isPostgresFuzzy()) {
+            return;
+        }
+        for (String statement : STATEMENTS) {
+            jdbcTemplate.execute(statement);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.mishail.country_search.repository;
+
+import com.mishail.country_search.search.FuzzyHit;
+import com.mishail.country_search.search.NameKind;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// The % operator lets Postgres use the gin_trgm_ops indexes created by
+// FuzzySearchIndexes. It compares against pg_trgm.similarity_threshold,
+// which is set to our threshold for the transaction running the query.
+@AllArgsConstructor
+@Repository
+public class FuzzySearchRepository {
+
+    private static final String FUZZY_SEARCH = "SELECT kind, id, name, score "
+            + "FROM ("
+            + "SELECT 'COUNTRY' AS kind, id, name, "
+            + "similarity(name, ?) AS score FROM country WHERE name % ? "
+            + "UNION ALL SELECT 'CAPITAL', id, capital, "
+            + "similarity(capital, ?) FROM country WHERE capital % ? "
+            + "UNION ALL SELECT 'CITY', id, name, "
+            + "similarity(name, ?) FROM city WHERE name % ? "
+            + "UNION ALL SELECT 'NATION', id, name, "
+            + "similarity(name, ?) FROM nation WHERE name % ?"
+            + ") hits ORDER BY score DESC, kind, id LIMIT ?";
+
+    private static final String SET_THRESHOLD = "SELECT set_config("
+            + "'pg_trgm.similarity_threshold', ?, true)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional(readOnly = true)
+    public List<FuzzyHit> search(final String query, final int limit,
+                                 final double threshold) {
+        jdbcTemplate.queryForObject(SET_THRESHOLD, String.class,
+                String.valueOf(threshold));
+        return jdbcTemplate.query(FUZZY_SEARCH,
+                (resultSet, row) -> new FuzzyHit(
+                        NameKind.valueOf(resultSet.getString("kind")),
+                        resultSet.getLong("id"),
+                        resultSet.getString("name"),
+                        resultSet.getDouble("score")),
+                query, query, query, query, query, query, query, query,
+                limit);
+    }
+}
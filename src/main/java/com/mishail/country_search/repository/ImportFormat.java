@@ -0,0 +1,33 @@
+package com.mishail.country_search.repository;
+
+import com.mishail.country_search.exception.BadRequestException;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+public enum ImportFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final MediaType mediaType;
+
+    ImportFormat(final String mediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+    }
+
+    public static ImportFormat of(final String contentType) {
+        if (contentType != null) {
+            try {
+                MediaType type = MediaType.parseMediaType(contentType);
+                for (ImportFormat format : values()) {
+                    if (format.mediaType.includes(type)) {
+                        return format;
+                    }
+                }
+            } catch (InvalidMediaTypeException ignored) {
+                // reported below together with the missing header
+            }
+        }
+        throw new BadRequestException("import accepts only text/csv "
+                + "and application/x-ndjson, not " + contentType);
+    }
+}
@@ -0,0 +1,159 @@
+package com.mishail.country_search.repository;
+
+import com.mishail.country_search.exception.BadRequestException;
+
+import java.util.List;
+
+// Each kind is copied into a temporary staging table first, the merge
+// statements then resolve names to ids and update or insert the rows.
+public enum ImportKind {
+    COUNTRIES("countries", "import_country",
+            List.of("name", "capital", "population", "area", "gdp"),
+            "name TEXT, capital TEXT, population DOUBLE PRECISION, "
+                    + "area DOUBLE PRECISION, gdp DOUBLE PRECISION",
+            "UPDATE country c SET capital = s.capital, "
+                    + "population = s.population, area = s.area, "
+                    + "gdp = s.gdp "
+                    + "FROM import_country s WHERE c.name = s.name",
+            pooledInsert("country", "country_id_seq",
+                    "name, capital, population, area, gdp",
+                    "s.* FROM (SELECT DISTINCT ON (name) * "
+                            + "FROM import_country) s "
+                            + "WHERE NOT EXISTS (SELECT 1 FROM country c "
+                            + "WHERE c.name = s.name)"),
+            "country"),
+    CITIES("cities", "import_city",
+            List.of("country", "name", "population", "area"),
+            "country TEXT, name TEXT, population DOUBLE PRECISION, "
+                    + "area DOUBLE PRECISION",
+            "UPDATE city ct SET population = s.population, area = s.area "
+                    + "FROM import_city s "
+                    + "JOIN country c ON c.name = s.country "
+                    + "WHERE ct.country_id = c.id AND ct.name = s.name",
+            pooledInsert("city", "city_id_seq",
+                    "name, population, area, country_id",
+                    "s.*, c.id AS country_id "
+                            + "FROM (SELECT DISTINCT ON (country, name) * "
+                            + "FROM import_city) s "
+                            + "JOIN country c ON c.name = s.country "
+                            + "WHERE NOT EXISTS (SELECT 1 FROM city ct "
+                            + "WHERE ct.country_id = c.id "
+                            + "AND ct.name = s.name)"),
+            null),
+    NATIONS("nations", "import_nation",
+            List.of("name", "language", "religion"),
+            "name TEXT, language TEXT, religion TEXT",
+            "UPDATE nation n SET language = s.language, "
+                    + "religion = s.religion "
+                    + "FROM import_nation s WHERE n.name = s.name",
+            pooledInsert("nation", "nation_id_seq",
+                    "name, language, religion",
+                    "s.* FROM (SELECT DISTINCT ON (name) * "
+                            + "FROM import_nation) s "
+                            + "WHERE NOT EXISTS (SELECT 1 FROM nation n "
+                            + "WHERE n.name = s.name)"),
+            "nation"),
+    COUNTRY_NATIONS("country-nations", "import_country_nation",
+            List.of("country", "nation"),
+            "country TEXT, nation TEXT",
+            null,
+            "INSERT INTO country_nations (country_id, nation_id) "
+                    + "SELECT DISTINCT c.id, n.id "
+                    + "FROM import_country_nation s "
+                    + "JOIN country c ON c.name = s.country "
+                    + "JOIN nation n ON n.name = s.nation "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM country_nations cn "
+                    + "WHERE cn.country_id = c.id AND cn.nation_id = n.id)",
+            null);
+
+    // Matches allocationSize of the entity sequences
+    static final int ID_ALLOCATION = 50;
+
+    private final String path;
+    private final String stagingTable;
+    private final List<String> columns;
+    private final String columnDefinitions;
+    private final String update;
+    private final String insert;
+    private final String membershipTable;
+
+    ImportKind(final String path, final String stagingTable,
+               final List<String> columns, final String columnDefinitions,
+               final String update, final String insert,
+               final String membershipTable) {
+        this.path = path;
+        this.stagingTable = stagingTable;
+        this.columns = columns;
+        this.columnDefinitions = columnDefinitions;
+        this.update = update;
+        this.insert = insert;
+        this.membershipTable = membershipTable;
+    }
+
+    public static ImportKind of(final String path) {
+        for (ImportKind kind : values()) {
+            if (kind.path.equals(path)) {
+                return kind;
+            }
+        }
+        throw new BadRequestException("unknown import kind " + path);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    String createStaging() {
+        return "CREATE TEMP TABLE " + stagingTable + " ("
+                + columnDefinitions + ") ON COMMIT DROP";
+    }
+
+    // Rows in the order of the given columns, without a header line
+    String copy(final List<String> order) {
+        return "COPY " + stagingTable + " (" + String.join(", ", order)
+                + ") FROM STDIN WITH (FORMAT csv)";
+    }
+
+    String update() {
+        return update;
+    }
+
+    String insert() {
+        return insert;
+    }
+
+    // Highest id of a table whose ids are bitmap values in the membership
+    // index, null for the other kinds
+    String maxMembershipId() {
+        return membershipTable == null
+                ? null : "SELECT max(id) FROM " + membershipTable;
+    }
+
+    // Ids are taken the way Hibernate's pooled optimizer takes them: each
+    // nextval reserves the ID_ALLOCATION ids ending at the returned value,
+    // so a block of rows costs one call. The very first value of a fresh
+    // sequence reserves nothing, Hibernate skips it as well.
+    private static String pooledInsert(final String table,
+                                       final String sequence,
+                                       final String columns,
+                                       final String rows) {
+        return "WITH fresh AS (SELECT row_number() OVER () - 1 AS rn, "
+                + rows + "), "
+                + "blocks AS (SELECT row_number() OVER () - 1 AS block, hi "
+                + "FROM (SELECT nextval('" + sequence + "') AS hi "
+                + "FROM generate_series(1, (SELECT (count(*) + "
+                + (ID_ALLOCATION - 1) + ") / " + ID_ALLOCATION
+                + " FROM fresh) + (SELECT CASE WHEN is_called THEN 0 "
+                + "ELSE 1 END FROM " + sequence + "))) n "
+                + "WHERE hi >= " + ID_ALLOCATION + ") "
+                + "INSERT INTO " + table + " (id, " + columns + ") "
+                + "SELECT b.hi - " + (ID_ALLOCATION - 1) + " + f.rn % "
+                + ID_ALLOCATION + ", f." + columns.replace(", ", ", f.")
+                + " FROM fresh f JOIN blocks b "
+                + "ON b.block = f.rn / " + ID_ALLOCATION;
+    }
+}
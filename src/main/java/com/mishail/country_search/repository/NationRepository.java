@@ -1,11 +1,14 @@
 package com.mishail.country_search.repository;
 
 import com.mishail.country_search.model.Nation;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,6 +16,10 @@ public interface NationRepository extends JpaRepository<Nation, Long> {
 
     Nation findNationByName(String name);
 
+    List<Nation> findByNameIn(Collection<String> names);
+
+    List<Nation> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
     @Query("SELECT n FROM Nation n LEFT JOIN FETCH n.countries c "
             + "LEFT JOIN FETCH c.cities "
             + "LEFT JOIN FETCH c.nations WHERE n.id = :id")
@@ -21,4 +28,7 @@ public interface NationRepository extends JpaRepository<Nation, Long> {
     @Query("SELECT n FROM Nation n "
             + "LEFT JOIN FETCH n.countries WHERE n.id = :id")
     Optional<Nation> findByIdWithCountries(@Param("id") Long id);
+
+    @Query("SELECT c.id, n.id FROM Nation n JOIN n.countries c")
+    List<Object[]> findCountryNationIds();
 }
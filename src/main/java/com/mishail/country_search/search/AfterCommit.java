@@ -0,0 +1,28 @@
+package com.mishail.country_search.search;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    // In-memory indexes only see committed rows, a rollback leaves them
+    // untouched. Callers read what they need from the entities before
+    // calling, the update then only touches those values once the
+    // transaction commits, or at once outside a transaction.
+    public static void run(final Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            update.run();
+                        }
+                    });
+        } else {
+            update.run();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.mishail.country_search.search;
+
+import com.mishail.country_search.cache.ETag;
+import com.mishail.country_search.dto.AggregateRow;
+import com.mishail.country_search.repository.AggregationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// The columns are reloaded lazily: every write moves the version, the
+// first aggregation after it pays for one reload.
+@RequiredArgsConstructor
+@Component
+public class AggregationColumns {
+
+    private final AggregationRepository aggregationRepository;
+
+    // A lock, not a monitor, as in ColumnIndex.locked
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Snapshot snapshot;
+
+    public List<AggregateRow> aggregate(final GroupBy groupBy,
+                                        final NumericColumn column,
+                                        final ETag version) {
+        return columns(version).aggregate(groupBy, column);
+    }
+
+    private MembershipColumns columns(final ETag version) {
+        lock.lock();
+        try {
+            if (snapshot == null || !snapshot.version().equals(version)) {
+                snapshot = new Snapshot(version,
+                        aggregationRepository.loadColumns());
+            }
+            return snapshot.columns();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Snapshot(ETag version, MembershipColumns columns) {
+    }
+}
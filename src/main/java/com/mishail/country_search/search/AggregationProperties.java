@@ -0,0 +1,15 @@
+package com.mishail.country_search.search;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "aggregation")
+public class AggregationProperties {
+
+    // Aggregates from the in-memory columns instead of a GROUP BY query,
+    // useful when the database is far away and the tables are small.
+    private boolean inMemory;
+}
@@ -0,0 +1,330 @@
+package com.mishail.country_search.search;
+
+import java.util.Arrays;
+
+// Roaring-style compressed bitmap of non-negative ints. Values are split
+// by their high 16 bits into chunks: a chunk of up to 4096 values is a
+// sorted char[], a denser one is a 65536-bit long[]. Bitmaps are immutable,
+// operations return new bitmaps that share the chunks they didn't touch.
+public final class Bitmap {
+
+    public static final Bitmap EMPTY = new Bitmap(new char[0], new Object[0]);
+
+    private static final int ARRAY_LIMIT = 4096;
+
+    private static final int WORDS = 1 << 10;
+
+    private final char[] keys;
+
+    private final Object[] chunks;
+
+    private Bitmap(final char[] keys, final Object[] chunks) {
+        this.keys = keys;
+        this.chunks = chunks;
+    }
+
+    public static Bitmap of(final int... values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        if (sorted.length > 0 && sorted[0] < 0) {
+            throw new IllegalArgumentException("bitmap values can't be "
+                    + "negative: " + sorted[0]);
+        }
+        char[] keys = new char[sorted.length];
+        Object[] chunks = new Object[sorted.length];
+        int size = 0;
+        char[] lows = new char[Math.min(sorted.length, 1 << Character.SIZE)];
+        for (int i = 0; i < sorted.length;) {
+            int key = sorted[i] >>> Character.SIZE;
+            int count = 0;
+            for (; i < sorted.length && sorted[i] >>> Character.SIZE == key;
+                 i++) {
+                char low = (char) sorted[i];
+                if (count == 0 || lows[count - 1] != low) {
+                    lows[count++] = low;
+                }
+            }
+            keys[size] = (char) key;
+            chunks[size++] = count > ARRAY_LIMIT
+                    ? toWords(lows, count) : Arrays.copyOf(lows, count);
+        }
+        return new Bitmap(Arrays.copyOf(keys, size),
+                Arrays.copyOf(chunks, size));
+    }
+
+    public Bitmap with(final int value) {
+        return or(of(value));
+    }
+
+    public Bitmap without(final int value) {
+        return andNot(of(value));
+    }
+
+    public Bitmap and(final Bitmap other) {
+        int capacity = Math.min(keys.length, other.keys.length);
+        char[] resultKeys = new char[capacity];
+        Object[] resultChunks = new Object[capacity];
+        int size = 0;
+        for (int i = 0, j = 0; i < keys.length && j < other.keys.length;) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object chunk = and(chunks[i], other.chunks[j]);
+                if (chunk != null) {
+                    resultKeys[size] = keys[i];
+                    resultChunks[size++] = chunk;
+                }
+                i++;
+                j++;
+            }
+        }
+        return of(resultKeys, resultChunks, size);
+    }
+
+    public Bitmap or(final Bitmap other) {
+        if (other.keys.length == 0) {
+            return this;
+        }
+        int capacity = keys.length + other.keys.length;
+        char[] resultKeys = new char[capacity];
+        Object[] resultChunks = new Object[capacity];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j == other.keys.length
+                    || i < keys.length && keys[i] < other.keys[j]) {
+                resultKeys[size] = keys[i];
+                resultChunks[size++] = chunks[i++];
+            } else if (i == keys.length || keys[i] > other.keys[j]) {
+                resultKeys[size] = other.keys[j];
+                resultChunks[size++] = other.chunks[j++];
+            } else {
+                resultKeys[size] = keys[i];
+                resultChunks[size++] = or(chunks[i++], other.chunks[j++]);
+            }
+        }
+        return of(resultKeys, resultChunks, size);
+    }
+
+    public Bitmap andNot(final Bitmap other) {
+        if (other.keys.length == 0) {
+            return this;
+        }
+        char[] resultKeys = new char[keys.length];
+        Object[] resultChunks = new Object[keys.length];
+        int size = 0;
+        for (int i = 0, j = 0; i < keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < keys[i]) {
+                j++;
+            }
+            Object chunk = j < other.keys.length && other.keys[j] == keys[i]
+                    ? andNot(chunks[i], other.chunks[j]) : chunks[i];
+            if (chunk != null) {
+                resultKeys[size] = keys[i];
+                resultChunks[size++] = chunk;
+            }
+        }
+        return of(resultKeys, resultChunks, size);
+    }
+
+    public boolean intersects(final Bitmap other) {
+        return !and(other).isEmpty();
+    }
+
+    public boolean contains(final int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys,
+                (char) (value >>> Character.SIZE));
+        return index >= 0 && contains(chunks[index], (char) value);
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (Object chunk : chunks) {
+            cardinality += cardinality(chunk);
+        }
+        return cardinality;
+    }
+
+    public int[] toArray() {
+        return toArray(Integer.MAX_VALUE);
+    }
+
+    // The smallest values first, at most limit of them
+    public int[] toArray(final int limit) {
+        int[] values = new int[Math.min(limit, cardinality())];
+        int size = 0;
+        for (int i = 0; i < keys.length && size < values.length; i++) {
+            int high = keys[i] << Character.SIZE;
+            if (chunks[i] instanceof char[] lows) {
+                for (int k = 0; k < lows.length && size < values.length;
+                     k++) {
+                    values[size++] = high | lows[k];
+                }
+            } else {
+                long[] words = (long[]) chunks[i];
+                for (int w = 0; w < WORDS && size < values.length; w++) {
+                    long word = words[w];
+                    while (word != 0 && size < values.length) {
+                        values[size++] = high | w << 6
+                                | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    private static Bitmap of(final char[] keys, final Object[] chunks,
+                             final int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        return new Bitmap(Arrays.copyOf(keys, size),
+                Arrays.copyOf(chunks, size));
+    }
+
+    private static Object and(final Object left, final Object right) {
+        if (left instanceof long[] leftWords
+                && right instanceof long[] rightWords) {
+            long[] words = new long[WORDS];
+            for (int w = 0; w < WORDS; w++) {
+                words[w] = leftWords[w] & rightWords[w];
+            }
+            return compact(words);
+        }
+        char[] lows = left instanceof char[] array ? array : (char[]) right;
+        Object other = lows == left ? right : left;
+        return filter(lows, other, true);
+    }
+
+    private static Object or(final Object left, final Object right) {
+        if (left instanceof char[] leftLows
+                && right instanceof char[] rightLows) {
+            char[] lows = new char[leftLows.length + rightLows.length];
+            int size = 0;
+            int i = 0;
+            int j = 0;
+            while (i < leftLows.length || j < rightLows.length) {
+                if (j == rightLows.length || i < leftLows.length
+                        && leftLows[i] < rightLows[j]) {
+                    lows[size++] = leftLows[i++];
+                } else if (i == leftLows.length
+                        || leftLows[i] > rightLows[j]) {
+                    lows[size++] = rightLows[j++];
+                } else {
+                    lows[size++] = leftLows[i++];
+                    j++;
+                }
+            }
+            return size > ARRAY_LIMIT
+                    ? toWords(lows, size) : Arrays.copyOf(lows, size);
+        }
+        long[] words = left instanceof long[] leftWords
+                ? leftWords.clone() : toWords((char[]) left);
+        if (right instanceof long[] rightWords) {
+            for (int w = 0; w < WORDS; w++) {
+                words[w] |= rightWords[w];
+            }
+        } else {
+            for (char low : (char[]) right) {
+                words[low >>> 6] |= 1L << low;
+            }
+        }
+        return words;
+    }
+
+    private static Object andNot(final Object left, final Object right) {
+        if (left instanceof char[] lows) {
+            return filter(lows, right, false);
+        }
+        long[] words = ((long[]) left).clone();
+        if (right instanceof long[] rightWords) {
+            for (int w = 0; w < WORDS; w++) {
+                words[w] &= ~rightWords[w];
+            }
+        } else {
+            for (char low : (char[]) right) {
+                words[low >>> 6] &= ~(1L << low);
+            }
+        }
+        return compact(words);
+    }
+
+    private static Object filter(final char[] lows, final Object other,
+                                 final boolean keepContained) {
+        char[] kept = new char[lows.length];
+        int size = 0;
+        for (char low : lows) {
+            if (contains(other, low) == keepContained) {
+                kept[size++] = low;
+            }
+        }
+        if (size == lows.length) {
+            return lows;
+        }
+        return size == 0 ? null : Arrays.copyOf(kept, size);
+    }
+
+    private static boolean contains(final Object chunk, final char low) {
+        if (chunk instanceof char[] lows) {
+            return Arrays.binarySearch(lows, low) >= 0;
+        }
+        return (((long[]) chunk)[low >>> 6] & 1L << low) != 0;
+    }
+
+    private static int cardinality(final Object chunk) {
+        if (chunk instanceof char[] lows) {
+            return lows.length;
+        }
+        int cardinality = 0;
+        for (long word : (long[]) chunk) {
+            cardinality += Long.bitCount(word);
+        }
+        return cardinality;
+    }
+
+    // A chunk that became sparse goes back to the array form
+    private static Object compact(final long[] words) {
+        int cardinality = cardinality(words);
+        if (cardinality == 0) {
+            return null;
+        }
+        if (cardinality > ARRAY_LIMIT) {
+            return words;
+        }
+        char[] lows = new char[cardinality];
+        int size = 0;
+        for (int w = 0; w < WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                lows[size++] = (char) (w << 6
+                        | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return lows;
+    }
+
+    private static long[] toWords(final char[] lows) {
+        return toWords(lows, lows.length);
+    }
+
+    private static long[] toWords(final char[] lows, final int size) {
+        long[] words = new long[WORDS];
+        for (int i = 0; i < size; i++) {
+            words[lows[i] >>> 6] |= 1L << lows[i];
+        }
+        return words;
+    }
+}
@@ -0,0 +1,209 @@
+package com.mishail.country_search.search;
+
+import com.mishail.country_search.model.City;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.repository.CityRepository;
+import com.mishail.country_search.repository.CountryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+@RequiredArgsConstructor
+@Component
+public class ColumnIndex {
+
+    private static final NumericColumn[] COUNTRY_COLUMNS = {
+            NumericColumn.COUNTRY_POPULATION, NumericColumn.COUNTRY_AREA,
+            NumericColumn.COUNTRY_GDP};
+
+    private static final NumericColumn[] CITY_COLUMNS = {
+            NumericColumn.CITY_POPULATION, NumericColumn.CITY_AREA};
+
+    private record Change(NumericColumn column, long id, Double value) {
+    }
+
+    private final CountryRepository countryRepository;
+
+    private final CityRepository cityRepository;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final AtomicReferenceArray<SortedColumn> columns =
+            emptyColumns();
+
+    public long[] range(final NumericColumn column, final double min,
+                        final double max, final int limit) {
+        return columns.get(column.ordinal()).range(min, max, limit);
+    }
+
+    public long[] top(final NumericColumn column, final int k,
+                      final boolean largest) {
+        return columns.get(column.ordinal()).top(k, largest);
+    }
+
+    public int size(final NumericColumn column) {
+        return columns.get(column.ordinal()).size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        locked(this::rebuildLocked);
+    }
+
+    private void rebuildLocked() {
+        List<Country> countries = countryRepository.findAll();
+        List<City> cities = cityRepository.findAll();
+        columns.set(NumericColumn.COUNTRY_POPULATION.ordinal(),
+                build(countries, Country::getId, Country::getPopulation));
+        columns.set(NumericColumn.COUNTRY_AREA.ordinal(),
+                build(countries, Country::getId, Country::getAreaSquareKm));
+        columns.set(NumericColumn.COUNTRY_GDP.ordinal(),
+                build(countries, Country::getId, Country::getGdp));
+        columns.set(NumericColumn.CITY_POPULATION.ordinal(),
+                build(cities, City::getId, City::getPopulation));
+        columns.set(NumericColumn.CITY_AREA.ordinal(),
+                build(cities, City::getId, City::getAreaSquareKm));
+    }
+
+    public void indexCountries(final Collection<Country> countries) {
+        List<Change> changes = new ArrayList<>();
+        for (Country country : countries) {
+            changes.add(new Change(NumericColumn.COUNTRY_POPULATION,
+                    country.getId(), country.getPopulation()));
+            changes.add(new Change(NumericColumn.COUNTRY_AREA,
+                    country.getId(), country.getAreaSquareKm()));
+            changes.add(new Change(NumericColumn.COUNTRY_GDP,
+                    country.getId(), country.getGdp()));
+        }
+        apply(changes);
+    }
+
+    public void indexCountry(final Country country) {
+        indexCountries(List.of(country));
+    }
+
+    public void removeCountry(final Country country) {
+        List<Change> changes = new ArrayList<>();
+        for (NumericColumn column : COUNTRY_COLUMNS) {
+            changes.add(new Change(column, country.getId(), null));
+        }
+        for (City city : country.getCities()) {
+            for (NumericColumn column : CITY_COLUMNS) {
+                changes.add(new Change(column, city.getId(), null));
+            }
+        }
+        apply(changes);
+    }
+
+    public void removeCountries() {
+        AfterCommit.run(() -> locked(() -> {
+            for (NumericColumn column : COUNTRY_COLUMNS) {
+                columns.set(column.ordinal(), SortedColumn.EMPTY);
+            }
+            for (NumericColumn column : CITY_COLUMNS) {
+                columns.set(column.ordinal(), SortedColumn.EMPTY);
+            }
+        }));
+    }
+
+    public void indexCities(final Collection<City> cities) {
+        List<Change> changes = new ArrayList<>();
+        for (City city : cities) {
+            changes.add(new Change(NumericColumn.CITY_POPULATION,
+                    city.getId(), city.getPopulation()));
+            changes.add(new Change(NumericColumn.CITY_AREA,
+                    city.getId(), city.getAreaSquareKm()));
+        }
+        apply(changes);
+    }
+
+    public void indexCity(final City city) {
+        indexCities(List.of(city));
+    }
+
+    public void removeCities(final Collection<City> cities) {
+        List<Change> changes = new ArrayList<>();
+        for (City city : cities) {
+            for (NumericColumn column : CITY_COLUMNS) {
+                changes.add(new Change(column, city.getId(), null));
+            }
+        }
+        apply(changes);
+    }
+
+    // A null value removes the id from its column
+    private void apply(final List<Change> changes) {
+        AfterCommit.run(() -> locked(() -> {
+            for (NumericColumn column : NumericColumn.values()) {
+                update(column, changes);
+            }
+        }));
+    }
+
+    // The last change of an id in the batch wins
+    private void update(final NumericColumn column,
+                        final List<Change> changes) {
+        Set<Long> seen = new HashSet<>();
+        long[] ids = new long[changes.size()];
+        double[] values = new double[changes.size()];
+        int size = 0;
+        for (int i = changes.size() - 1; i >= 0; i--) {
+            Change change = changes.get(i);
+            if (change.column() == column && seen.add(change.id())) {
+                ids[size] = change.id();
+                values[size++] = change.value() == null
+                        ? Double.NaN : change.value();
+            }
+        }
+        if (size > 0) {
+            int slot = column.ordinal();
+            columns.set(slot, columns.get(slot).update(
+                    Arrays.copyOf(ids, size), Arrays.copyOf(values, size)));
+        }
+    }
+
+    private static <T> SortedColumn build(final List<T> rows,
+                                          final Function<T, Long> id,
+                                          final Function<T, Double> value) {
+        double[] values = new double[rows.size()];
+        long[] ids = new long[rows.size()];
+        int size = 0;
+        for (T row : rows) {
+            Double rowValue = value.apply(row);
+            if (rowValue != null && !rowValue.isNaN()) {
+                values[size] = rowValue;
+                ids[size++] = id.apply(row);
+            }
+        }
+        return SortedColumn.of(Arrays.copyOf(values, size),
+                Arrays.copyOf(ids, size));
+    }
+
+    private static AtomicReferenceArray<SortedColumn> emptyColumns() {
+        AtomicReferenceArray<SortedColumn> empty =
+                new AtomicReferenceArray<>(NumericColumn.values().length);
+        for (int i = 0; i < empty.length(); i++) {
+            empty.set(i, SortedColumn.EMPTY);
+        }
+        return empty;
+    }
+
+    // Not synchronized: a rebuild holds the lock while it reads from the
+    // database, and a virtual thread blocked inside a monitor would keep
+    // its carrier pinned. MembershipIndex and AggregationColumns lock the
+    // same way for the same reason.
+    private void locked(final Runnable update) {
+        lock.lock();
+        try {
+            update.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.mishail.country_search.search;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Comparator;
+
+public record FuzzyHit(
+        NameKind kind,
+        Long id,
+        @Schema(example = "Belarus") String name,
+        @Schema(example = "0.7") double similarity) {
+
+    static final Comparator<FuzzyHit> BEST_FIRST = Comparator
+            .comparingDouble(FuzzyHit::similarity).reversed()
+            .thenComparing(FuzzyHit::kind)
+            .thenComparing(FuzzyHit::id);
+}
@@ -0,0 +1,25 @@
+package com.mishail.country_search.search;
+
+import com.mishail.country_search.exception.BadRequestException;
+
+public enum GroupBy {
+    NATION("nation"),
+    LANGUAGE("language"),
+    RELIGION("religion");
+
+    private final String name;
+
+    GroupBy(final String name) {
+        this.name = name;
+    }
+
+    public static GroupBy of(final String name) {
+        for (GroupBy groupBy : values()) {
+            if (groupBy.name.equals(name)) {
+                return groupBy;
+            }
+        }
+        throw new BadRequestException("countries can't be grouped by "
+                + name + ", use nation, language or religion");
+    }
+}
@@ -0,0 +1,182 @@
+package com.mishail.country_search.search;
+
+import com.mishail.country_search.dto.AggregateRow;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Country values are kept as one double[] per column, NaN standing for
+// null. For every grouping the (group, country) pairs are deduplicated and
+// sorted once, so a group is a contiguous run of country slots and a
+// country speaking a language through two nations is counted once.
+public final class MembershipColumns {
+
+    private static final int COLUMNS = 3;
+
+    private final double[][] values;
+
+    private final Grouping[] groupings;
+
+    private MembershipColumns(final double[][] values,
+                              final Grouping[] groupings) {
+        this.values = values;
+        this.groupings = groupings;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<AggregateRow> aggregate(final GroupBy groupBy,
+                                        final NumericColumn column) {
+        Grouping grouping = groupings[groupBy.ordinal()];
+        double[] countryValues = values[slotOf(column)];
+        return IntStream.range(0, grouping.names.length).parallel()
+                .mapToObj(group -> grouping.aggregate(group, countryValues))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static int slotOf(final NumericColumn column) {
+        return switch (column) {
+            case COUNTRY_POPULATION -> 0;
+            case COUNTRY_AREA -> 1;
+            case COUNTRY_GDP -> 2;
+            default -> throw new IllegalArgumentException(
+                    column + " is not a country column");
+        };
+    }
+
+    private record Grouping(String[] names, int[] starts, int[] countries) {
+
+        AggregateRow aggregate(final int group, final double[] column) {
+            long count = 0;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = starts[group]; i < starts[group + 1]; i++) {
+                double value = column[countries[i]];
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                count++;
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (count == 0) {
+                return null;
+            }
+            return new AggregateRow(names[group], count, sum, sum / count,
+                    min, max);
+        }
+    }
+
+    public static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final Map<Long, Integer> countrySlots = new HashMap<>();
+
+        private double[][] values = new double[COLUMNS][INITIAL_CAPACITY];
+
+        private final Map<Long, String[]> nations = new HashMap<>();
+
+        private long[] members = new long[INITIAL_CAPACITY * 2];
+
+        private int memberCount;
+
+        private Builder() {
+        }
+
+        public Builder country(final long id, final Double population,
+                               final Double area, final Double gdp) {
+            int slot = countrySlots.size();
+            if (countrySlots.putIfAbsent(id, slot) != null) {
+                return this;
+            }
+            if (slot == values[0].length) {
+                for (int i = 0; i < COLUMNS; i++) {
+                    values[i] = Arrays.copyOf(values[i], slot * 2);
+                }
+            }
+            values[0][slot] = population == null ? Double.NaN : population;
+            values[1][slot] = area == null ? Double.NaN : area;
+            values[2][slot] = gdp == null ? Double.NaN : gdp;
+            return this;
+        }
+
+        public Builder nation(final long id, final String name,
+                              final String language, final String religion) {
+            String[] attributes = new String[GroupBy.values().length];
+            attributes[GroupBy.NATION.ordinal()] = name;
+            attributes[GroupBy.LANGUAGE.ordinal()] = language;
+            attributes[GroupBy.RELIGION.ordinal()] = religion;
+            nations.put(id, attributes);
+            return this;
+        }
+
+        public Builder member(final long countryId, final long nationId) {
+            if (memberCount == members.length) {
+                members = Arrays.copyOf(members, memberCount * 2);
+            }
+            members[memberCount++] = countryId;
+            members[memberCount++] = nationId;
+            return this;
+        }
+
+        public MembershipColumns build() {
+            int countries = countrySlots.size();
+            double[][] columns = new double[COLUMNS][];
+            for (int i = 0; i < COLUMNS; i++) {
+                columns[i] = Arrays.copyOf(values[i], countries);
+            }
+            Grouping[] groupings = new Grouping[GroupBy.values().length];
+            for (GroupBy groupBy : GroupBy.values()) {
+                groupings[groupBy.ordinal()] = grouping(groupBy.ordinal());
+            }
+            return new MembershipColumns(columns, groupings);
+        }
+
+        private Grouping grouping(final int attribute) {
+            String[] names = nations.values().stream()
+                    .map(attributes -> attributes[attribute])
+                    .filter(Objects::nonNull)
+                    .distinct().sorted()
+                    .toArray(String[]::new);
+            Map<String, Integer> codes = new HashMap<>();
+            for (int i = 0; i < names.length; i++) {
+                codes.put(names[i], i);
+            }
+            long[] pairs = new long[memberCount / 2];
+            int size = 0;
+            for (int i = 0; i < memberCount; i += 2) {
+                Integer slot = countrySlots.get(members[i]);
+                String[] attributes = nations.get(members[i + 1]);
+                if (slot == null || attributes == null
+                        || attributes[attribute] == null) {
+                    continue;
+                }
+                long code = codes.get(attributes[attribute]);
+                pairs[size++] = code << Integer.SIZE | slot;
+            }
+            Arrays.sort(pairs, 0, size);
+
+            int[] starts = new int[names.length + 1];
+            int[] countries = new int[size];
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (i > 0 && pairs[i] == pairs[i - 1]) {
+                    continue;
+                }
+                starts[(int) (pairs[i] >>> Integer.SIZE) + 1]++;
+                countries[distinct++] = (int) pairs[i];
+            }
+            for (int i = 0; i < names.length; i++) {
+                starts[i + 1] += starts[i];
+            }
+            return new Grouping(names,
+                    starts, Arrays.copyOf(countries, distinct));
+        }
+    }
+}
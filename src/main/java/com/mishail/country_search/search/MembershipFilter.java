@@ -0,0 +1,24 @@
+package com.mishail.country_search.search;
+
+import java.util.Collection;
+import java.util.List;
+
+public record MembershipFilter(Collection<Long> allNations,
+                               Collection<Long> anyNations,
+                               Collection<Long> excludedNations,
+                               String language,
+                               String religion,
+                               Double minPopulation,
+                               Double maxPopulation) {
+
+    public MembershipFilter {
+        allNations = allNations == null ? List.of() : allNations;
+        anyNations = anyNations == null ? List.of() : anyNations;
+        excludedNations = excludedNations == null
+                ? List.of() : excludedNations;
+    }
+
+    public boolean hasPopulationRange() {
+        return minPopulation != null || maxPopulation != null;
+    }
+}
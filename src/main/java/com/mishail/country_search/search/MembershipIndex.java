@@ -0,0 +1,486 @@
+package com.mishail.country_search.search;
+
+import com.mishail.country_search.exception.BadRequestException;
+import com.mishail.country_search.model.AttributeDictionary;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.model.Nation;
+import com.mishail.country_search.repository.CountryRepository;
+import com.mishail.country_search.repository.NationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Country and nation ids are the bitmap values, so both id sequences have
+// to stay within int range. Bitmaps are immutable: a write swaps the
+// bitmaps it changes and readers combine whatever they see at the moment.
+@RequiredArgsConstructor
+@Component
+public class MembershipIndex {
+
+    // Bucket 0 holds populations below 1, bucket b those in
+    // [10^(b-1), 10^b) and the last bucket everything larger.
+    static final int BUCKETS = 12;
+
+    // Dictionary codes, so attribute filters compare ints
+    private record Attributes(int language, int religion) {
+    }
+
+    private record Member(int country, int nation) {
+    }
+
+    // Everything a query reads. A rebuild fills a fresh state and
+    // publishes it with a single write of the field below, incremental
+    // updates change the current one bitmap by bitmap.
+    private static final class State {
+
+        private final Map<Integer, Bitmap> countriesByNation =
+                new ConcurrentHashMap<>();
+
+        private final Map<Integer, Attributes> attributes;
+
+        private final Map<Integer, Bitmap> nationsByLanguage;
+
+        private final Map<Integer, Bitmap> nationsByReligion;
+
+        private final Map<Integer, Double> populations =
+                new ConcurrentHashMap<>();
+
+        private final AtomicReferenceArray<Bitmap> countriesByBucket =
+                emptyBuckets();
+
+        private volatile Bitmap countries = Bitmap.EMPTY;
+
+        private volatile Bitmap nations;
+
+        State() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                    new ConcurrentHashMap<>(), Bitmap.EMPTY);
+        }
+
+        // Shares the nation side of another state
+        State(final Map<Integer, Attributes> attributes,
+              final Map<Integer, Bitmap> nationsByLanguage,
+              final Map<Integer, Bitmap> nationsByReligion,
+              final Bitmap nations) {
+            this.attributes = attributes;
+            this.nationsByLanguage = nationsByLanguage;
+            this.nationsByReligion = nationsByReligion;
+            this.nations = nations;
+        }
+    }
+
+    private final CountryRepository countryRepository;
+
+    private final NationRepository nationRepository;
+
+    private final AttributeDictionary dictionary;
+
+    // Guards every change of the state below
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile State state = new State();
+
+    public Bitmap countries(final MembershipFilter filter) {
+        State current = state;
+        List<Bitmap> required = new ArrayList<>();
+        for (Long nationId : filter.allNations()) {
+            required.add(countriesOf(current, nationId));
+        }
+        if (!filter.anyNations().isEmpty()) {
+            required.add(countriesOf(current, filter.anyNations()));
+        }
+        if (filter.language() != null) {
+            required.add(countriesOf(current,
+                    current.nationsByLanguage.getOrDefault(
+                            dictionary.find(filter.language()),
+                            Bitmap.EMPTY)));
+        }
+        if (filter.religion() != null) {
+            required.add(countriesOf(current,
+                    current.nationsByReligion.getOrDefault(
+                            dictionary.find(filter.religion()),
+                            Bitmap.EMPTY)));
+        }
+        if (filter.hasPopulationRange()) {
+            required.add(population(current, filter.minPopulation(),
+                    filter.maxPopulation()));
+        }
+
+        // Smallest first, the intermediate results never grow
+        required.sort(Comparator.comparingInt(Bitmap::cardinality));
+        Bitmap result = current.countries;
+        for (Bitmap bitmap : required) {
+            if (result.isEmpty()) {
+                return result;
+            }
+            result = result.and(bitmap);
+        }
+        return result.andNot(countriesOf(current,
+                filter.excludedNations()));
+    }
+
+    public Bitmap nations(final String language, final String religion,
+                          final Double minPopulation,
+                          final Double maxPopulation) {
+        State current = state;
+        Bitmap result = current.nations;
+        if (language != null) {
+            result = result.and(current.nationsByLanguage.getOrDefault(
+                    dictionary.find(language), Bitmap.EMPTY));
+        }
+        if (religion != null) {
+            result = result.and(current.nationsByReligion.getOrDefault(
+                    dictionary.find(religion), Bitmap.EMPTY));
+        }
+        if (minPopulation == null && maxPopulation == null) {
+            return result;
+        }
+        Bitmap inRange = population(current, minPopulation, maxPopulation);
+        List<Integer> living = new ArrayList<>();
+        for (int nation : result.toArray()) {
+            if (current.countriesByNation.getOrDefault(nation, Bitmap.EMPTY)
+                    .intersects(inRange)) {
+                living.add(nation);
+            }
+        }
+        return bitmap(living);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        locked(this::rebuildLocked);
+    }
+
+    private void rebuildLocked() {
+        List<Country> allCountries = countryRepository.findAll();
+        List<Nation> allNations = nationRepository.findAll();
+        List<Object[]> members = nationRepository.findCountryNationIds();
+        State built = new State();
+
+        Map<Integer, List<Integer>> byBucket = new HashMap<>();
+        int[] countryIds = new int[allCountries.size()];
+        for (int i = 0; i < countryIds.length; i++) {
+            Country country = allCountries.get(i);
+            countryIds[i] = id(country.getId());
+            if (country.getPopulation() != null) {
+                built.populations.put(countryIds[i],
+                        country.getPopulation());
+                byBucket.computeIfAbsent(bucket(country.getPopulation()),
+                        bucket -> new ArrayList<>()).add(countryIds[i]);
+            }
+        }
+        byBucket.forEach((bucket, ids) ->
+                built.countriesByBucket.set(bucket, bitmap(ids)));
+        built.countries = Bitmap.of(countryIds);
+
+        Map<Integer, List<Integer>> byLanguage = new HashMap<>();
+        Map<Integer, List<Integer>> byReligion = new HashMap<>();
+        int[] nationIds = new int[allNations.size()];
+        for (int i = 0; i < nationIds.length; i++) {
+            Nation nation = allNations.get(i);
+            Attributes codes = attributes(nation);
+            nationIds[i] = id(nation.getId());
+            built.attributes.put(nationIds[i], codes);
+            if (codes.language() != AttributeDictionary.NONE) {
+                byLanguage.computeIfAbsent(codes.language(),
+                        language -> new ArrayList<>()).add(nationIds[i]);
+            }
+            if (codes.religion() != AttributeDictionary.NONE) {
+                byReligion.computeIfAbsent(codes.religion(),
+                        religion -> new ArrayList<>()).add(nationIds[i]);
+            }
+        }
+        byLanguage.forEach((language, ids) ->
+                built.nationsByLanguage.put(language, bitmap(ids)));
+        byReligion.forEach((religion, ids) ->
+                built.nationsByReligion.put(religion, bitmap(ids)));
+        built.nations = Bitmap.of(nationIds);
+
+        Map<Integer, List<Integer>> byNation = new HashMap<>();
+        for (Object[] member : members) {
+            byNation.computeIfAbsent(id((Long) member[1]),
+                    nation -> new ArrayList<>()).add(id((Long) member[0]));
+        }
+        byNation.forEach((nation, ids) ->
+                built.countriesByNation.put(nation, bitmap(ids)));
+
+        // Readers see either the old state or the complete new one
+        state = built;
+    }
+
+    public void indexCountries(final Collection<Country> changed) {
+        Map<Integer, Double> values = new HashMap<>();
+        List<Member> members = new ArrayList<>();
+        for (Country country : changed) {
+            int countryId = id(country.getId());
+            values.put(countryId, country.getPopulation() == null
+                    ? Double.NaN : country.getPopulation());
+            if (country.getNations() != null) {
+                for (Nation nation : country.getNations()) {
+                    if (nation.getId() != null) {
+                        members.add(new Member(countryId,
+                                id(nation.getId())));
+                    }
+                }
+            }
+        }
+        AfterCommit.run(() -> locked(() -> {
+            State current = state;
+            values.forEach((country, population) ->
+                    setPopulation(current, country, population));
+            current.countries = current.countries.or(bitmap(List.copyOf(
+                    values.keySet())));
+            members.forEach(member -> addMember(current,
+                    member.country(), member.nation()));
+        }));
+    }
+
+    public void indexCountry(final Country country) {
+        indexCountries(List.of(country));
+    }
+
+    public void removeCountry(final Country country) {
+        int countryId = id(country.getId());
+        List<Integer> nationIds = country.getNations().stream()
+                .map(nation -> id(nation.getId())).toList();
+        AfterCommit.run(() -> locked(() -> {
+            State current = state;
+            setPopulation(current, countryId, Double.NaN);
+            current.countries = current.countries.without(countryId);
+            nationIds.forEach(nation ->
+                    removeMember(current, countryId, nation));
+        }));
+    }
+
+    public void removeCountries() {
+        AfterCommit.run(() -> locked(() -> {
+            State current = state;
+            state = new State(current.attributes,
+                    current.nationsByLanguage, current.nationsByReligion,
+                    current.nations);
+        }));
+    }
+
+    public void indexNations(final Collection<Nation> changed) {
+        Map<Integer, Attributes> values = new HashMap<>();
+        for (Nation nation : changed) {
+            values.put(id(nation.getId()), attributes(nation));
+        }
+        AfterCommit.run(() -> locked(() -> {
+            State current = state;
+            values.forEach((nation, codes) ->
+                    setAttributes(current, nation, codes));
+        }));
+    }
+
+    public void indexNation(final Nation nation) {
+        indexNations(List.of(nation));
+    }
+
+    public void addMembers(final Long countryId,
+                           final Collection<Nation> added) {
+        int country = id(countryId);
+        List<Integer> nationIds = added.stream()
+                .map(nation -> id(nation.getId())).toList();
+        indexNations(added);
+        AfterCommit.run(() -> locked(() -> {
+            State current = state;
+            nationIds.forEach(nation ->
+                    addMember(current, country, nation));
+        }));
+    }
+
+    public void removeMember(final Long countryId, final Long nationId) {
+        int country = id(countryId);
+        int nation = id(nationId);
+        AfterCommit.run(() -> locked(() -> {
+            removeMember(state, country, nation);
+        }));
+    }
+
+    public void removeNation(final Long nationId) {
+        int nation = id(nationId);
+        AfterCommit.run(() -> locked(() -> {
+            State current = state;
+            setAttributes(current, nation, null);
+            current.countriesByNation.remove(nation);
+            current.nations = current.nations.without(nation);
+        }));
+    }
+
+    private static Bitmap countriesOf(final State current,
+                                      final Long nationId) {
+        return current.countriesByNation.getOrDefault(id(nationId),
+                Bitmap.EMPTY);
+    }
+
+    private static Bitmap countriesOf(final State current,
+                                      final Collection<Long> nationIds) {
+        Bitmap result = Bitmap.EMPTY;
+        for (Long nationId : nationIds) {
+            result = result.or(countriesOf(current, nationId));
+        }
+        return result;
+    }
+
+    private static Bitmap countriesOf(final State current,
+                                      final Bitmap nationIds) {
+        Bitmap result = Bitmap.EMPTY;
+        for (int nation : nationIds.toArray()) {
+            result = result.or(current.countriesByNation.getOrDefault(
+                    nation, Bitmap.EMPTY));
+        }
+        return result;
+    }
+
+    // Buckets fully inside the range are taken as they are, only the two
+    // boundary buckets are checked value by value.
+    private static Bitmap population(final State current,
+                                     final Double min, final Double max) {
+        double from = min == null ? Double.NEGATIVE_INFINITY : min;
+        double to = max == null ? Double.POSITIVE_INFINITY : max;
+        Bitmap result = Bitmap.EMPTY;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            double lower = bucket == 0
+                    ? Double.NEGATIVE_INFINITY : Math.pow(10, bucket - 1);
+            double upper = bucket == BUCKETS - 1
+                    ? Double.POSITIVE_INFINITY : Math.pow(10, bucket);
+            if (upper <= from || lower > to) {
+                continue;
+            }
+            Bitmap members = current.countriesByBucket.get(bucket);
+            if (lower >= from && upper <= to) {
+                result = result.or(members);
+                continue;
+            }
+            List<Integer> kept = new ArrayList<>();
+            for (int country : members.toArray()) {
+                Double population = current.populations.get(country);
+                if (population != null && population >= from
+                        && population <= to) {
+                    kept.add(country);
+                }
+            }
+            result = result.or(bitmap(kept));
+        }
+        return result;
+    }
+
+    private static void setPopulation(final State current,
+                                      final int country,
+                                      final double population) {
+        Double previous = Double.isNaN(population)
+                ? current.populations.remove(country)
+                : current.populations.put(country, population);
+        AtomicReferenceArray<Bitmap> buckets = current.countriesByBucket;
+        if (previous != null) {
+            int bucket = bucket(previous);
+            buckets.set(bucket, buckets.get(bucket).without(country));
+        }
+        if (!Double.isNaN(population)) {
+            int bucket = bucket(population);
+            buckets.set(bucket, buckets.get(bucket).with(country));
+        }
+    }
+
+    private static void setAttributes(final State current, final int nation,
+                                      final Attributes value) {
+        Attributes previous = value == null
+                ? current.attributes.remove(nation)
+                : current.attributes.put(nation, value);
+        if (previous != null) {
+            move(current.nationsByLanguage, previous.language(), nation,
+                    false);
+            move(current.nationsByReligion, previous.religion(), nation,
+                    false);
+        }
+        if (value != null) {
+            move(current.nationsByLanguage, value.language(), nation, true);
+            move(current.nationsByReligion, value.religion(), nation, true);
+            current.nations = current.nations.with(nation);
+        }
+    }
+
+    private static void addMember(final State current, final int country,
+                                  final int nation) {
+        current.countriesByNation.merge(nation, Bitmap.of(country),
+                Bitmap::or);
+    }
+
+    private static void removeMember(final State current, final int country,
+                                     final int nation) {
+        current.countriesByNation.computeIfPresent(nation,
+                (key, members) -> members.without(country));
+    }
+
+    private static void move(final Map<Integer, Bitmap> index,
+                             final int key, final int nation,
+                             final boolean add) {
+        if (key == AttributeDictionary.NONE) {
+            return;
+        }
+        index.compute(key, (code, members) -> {
+            Bitmap current = members == null ? Bitmap.EMPTY : members;
+            Bitmap updated = add ? current.with(nation)
+                    : current.without(nation);
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    static int bucket(final double population) {
+        if (population < 1) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, (int) Math.log10(population) + 1);
+    }
+
+    private Attributes attributes(final Nation nation) {
+        return new Attributes(dictionary.encode(nation.getLanguage()),
+                dictionary.encode(nation.getReligion()));
+    }
+
+    // For writers, inside their transaction: an id the bitmaps cannot hold
+    // rolls the write back instead of failing once it has committed
+    public static void checkId(final Long id) {
+        if (id != null) {
+            id(id);
+        }
+    }
+
+    // Ids also come straight from request parameters
+    private static int id(final Long id) {
+        if (id < Integer.MIN_VALUE || id > Integer.MAX_VALUE) {
+            throw new BadRequestException("id out of range: " + id);
+        }
+        return id.intValue();
+    }
+
+    private static Bitmap bitmap(final List<Integer> ids) {
+        return Bitmap.of(ids.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    private static AtomicReferenceArray<Bitmap> emptyBuckets() {
+        AtomicReferenceArray<Bitmap> empty =
+                new AtomicReferenceArray<>(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            empty.set(i, Bitmap.EMPTY);
+        }
+        return empty;
+    }
+
+    // A lock, not a monitor, as in ColumnIndex.locked
+    private void locked(final Runnable update) {
+        lock.lock();
+        try {
+            update.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.mishail.country_search.search;
+
+public enum NameKind {
+    COUNTRY,
+    CAPITAL,
+    CITY,
+    NATION
+}
@@ -0,0 +1,46 @@
+package com.mishail.country_search.search;
+
+import com.mishail.country_search.exception.BadRequestException;
+
+public enum NumericColumn {
+    COUNTRY_POPULATION("population"),
+    COUNTRY_AREA("area"),
+    COUNTRY_GDP("gdp"),
+    CITY_POPULATION("population"),
+    CITY_AREA("area");
+
+    private final String field;
+
+    NumericColumn(final String field) {
+        this.field = field;
+    }
+
+    public static NumericColumn country(final String field) {
+        return of(field, COUNTRY_POPULATION, COUNTRY_AREA, COUNTRY_GDP);
+    }
+
+    public static NumericColumn city(final String field) {
+        return of(field, CITY_POPULATION, CITY_AREA);
+    }
+
+    private static NumericColumn of(final String field,
+                                    final NumericColumn... columns) {
+        for (NumericColumn column : columns) {
+            if (column.field.equals(field)) {
+                return column;
+            }
+        }
+        throw new BadRequestException("field " + field
+                + " can't be queried, use " + fields(columns));
+    }
+
+    // "population or area", "population, area or gdp"
+    private static String fields(final NumericColumn... columns) {
+        StringBuilder text = new StringBuilder(columns[0].field);
+        for (int i = 1; i < columns.length; i++) {
+            text.append(i == columns.length - 1 ? " or " : ", ")
+                    .append(columns[i].field);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package com.mishail.country_search.search;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Names are kept in a skip list ordered by their normalized form, so all
+// names with a prefix are one contiguous range found in O(log n). The hit
+// sets are immutable and replaced with compute, which makes concurrent
+// updates of the same name safe without locks.
+final class PrefixIndex {
+
+    private record Key(NameKind kind, Long id) {
+    }
+
+    private final ConcurrentSkipListMap<String, Set<SearchHit>> byName =
+            new ConcurrentSkipListMap<>();
+
+    private final ConcurrentHashMap<Key, SearchHit> byId =
+            new ConcurrentHashMap<>();
+
+    static String normalize(final String name) {
+        return name.strip().toLowerCase(Locale.ROOT);
+    }
+
+    void put(final NameKind kind, final Long id, final String name) {
+        if (name == null || name.isBlank()) {
+            remove(kind, id);
+            return;
+        }
+        SearchHit hit = new SearchHit(kind, id, name);
+        byId.compute(new Key(kind, id), (key, old) -> {
+            if (old != null) {
+                unlink(old);
+            }
+            link(hit);
+            return hit;
+        });
+    }
+
+    void remove(final NameKind kind, final Long id) {
+        byId.computeIfPresent(new Key(kind, id), (key, old) -> {
+            unlink(old);
+            return null;
+        });
+    }
+
+    void clear(final NameKind kind) {
+        for (Key key : byId.keySet()) {
+            if (key.kind() == kind) {
+                remove(key.kind(), key.id());
+            }
+        }
+    }
+
+    List<SearchHit> search(final String prefix, final int limit) {
+        String normalized = normalize(prefix);
+        List<SearchHit> hits = new ArrayList<>(Math.min(limit, 16));
+        ConcurrentNavigableMap<String, Set<SearchHit>> tail =
+                byName.tailMap(normalized);
+        for (Map.Entry<String, Set<SearchHit>> entry : tail.entrySet()) {
+            if (!entry.getKey().startsWith(normalized)) {
+                break;
+            }
+            for (SearchHit hit : sorted(entry.getValue())) {
+                if (hits.size() == limit) {
+                    return hits;
+                }
+                hits.add(hit);
+            }
+        }
+        return hits;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    private void link(final SearchHit hit) {
+        byName.compute(normalize(hit.name()), (name, hits) -> {
+            if (hits == null) {
+                return Set.of(hit);
+            }
+            Set<SearchHit> copy = new HashSet<>(hits);
+            copy.add(hit);
+            return Set.copyOf(copy);
+        });
+    }
+
+    private void unlink(final SearchHit hit) {
+        byName.computeIfPresent(normalize(hit.name()), (name, hits) -> {
+            Set<SearchHit> copy = new HashSet<>(hits);
+            copy.remove(hit);
+            return copy.isEmpty() ? null : Set.copyOf(copy);
+        });
+    }
+
+    private static Collection<SearchHit> sorted(final Set<SearchHit> hits) {
+        if (hits.size() == 1) {
+            return hits;
+        }
+        List<SearchHit> list = new ArrayList<>(hits);
+        list.sort(SearchHit.ORDER);
+        return list;
+    }
+}
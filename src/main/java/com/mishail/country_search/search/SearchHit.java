@@ -0,0 +1,14 @@
+package com.mishail.country_search.search;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Comparator;
+
+public record SearchHit(
+        NameKind kind,
+        Long id,
+        @Schema(example = "Belarus") String name) {
+
+    static final Comparator<SearchHit> ORDER = Comparator
+            .comparing(SearchHit::kind).thenComparing(SearchHit::id);
+}
@@ -0,0 +1,190 @@
+package com.mishail.country_search.search;
+
+import com.mishail.country_search.model.City;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.model.Nation;
+import com.mishail.country_search.repository.CityRepository;
+import com.mishail.country_search.repository.CountryRepository;
+import com.mishail.country_search.repository.NationRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+public class SearchIndex {
+
+    private final CountryRepository countryRepository;
+
+    private final CityRepository cityRepository;
+
+    private final NationRepository nationRepository;
+
+    private final SearchProperties properties;
+
+    // Serializes rebuilds against incremental updates, so an update that
+    // commits while a rebuild reads the tables lands in the new index
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile PrefixIndex names = new PrefixIndex();
+
+    // Stays null when fuzzy search is served by Postgres
+    private volatile TrigramIndex trigrams;
+
+    public SearchIndex(final CountryRepository countryRepository,
+                       final CityRepository cityRepository,
+                       final NationRepository nationRepository,
+                       final SearchProperties properties) {
+        this.countryRepository = countryRepository;
+        this.cityRepository = cityRepository;
+        this.nationRepository = nationRepository;
+        this.properties = properties;
+        this.trigrams = newTrigramIndex();
+    }
+
+    public List<SearchHit> search(final String prefix, final int limit) {
+        return names.search(prefix, limit);
+    }
+
+    public List<FuzzyHit> searchFuzzy(final String query, final int limit) {
+        TrigramIndex current = trigrams;
+        if (current == null) {
+            return List.of();
+        }
+        return current.search(query, limit,
+                properties.getSimilarityThreshold());
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    // Writes made directly in the database, like bulk imports, are picked
+    // up by building a new index and swapping it in.
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        locked(this::rebuildLocked);
+    }
+
+    private void rebuildLocked() {
+        List<SearchHit> hits = new ArrayList<>();
+        for (Country country : countryRepository.findAll()) {
+            hits.add(new SearchHit(NameKind.COUNTRY, country.getId(),
+                    country.getName()));
+            hits.add(new SearchHit(NameKind.CAPITAL, country.getId(),
+                    country.getCapital()));
+        }
+        for (City city : cityRepository.findAll()) {
+            hits.add(new SearchHit(NameKind.CITY, city.getId(),
+                    city.getName()));
+        }
+        for (Nation nation : nationRepository.findAll()) {
+            hits.add(new SearchHit(NameKind.NATION, nation.getId(),
+                    nation.getName()));
+        }
+        PrefixIndex rebuiltNames = new PrefixIndex();
+        TrigramIndex rebuiltTrigrams = newTrigramIndex();
+        apply(hits, rebuiltNames, rebuiltTrigrams);
+        names = rebuiltNames;
+        trigrams = rebuiltTrigrams;
+    }
+
+    public void indexCountries(final Collection<Country> countries) {
+        List<SearchHit> hits = new ArrayList<>();
+        for (Country country : countries) {
+            hits.add(new SearchHit(NameKind.COUNTRY, country.getId(),
+                    country.getName()));
+            hits.add(new SearchHit(NameKind.CAPITAL, country.getId(),
+                    country.getCapital()));
+        }
+        put(hits);
+    }
+
+    public void indexCountry(final Country country) {
+        indexCountries(List.of(country));
+    }
+
+    public void removeCountry(final Country country) {
+        List<SearchHit> hits = new ArrayList<>();
+        hits.add(new SearchHit(NameKind.COUNTRY, country.getId(), null));
+        hits.add(new SearchHit(NameKind.CAPITAL, country.getId(), null));
+        for (City city : country.getCities()) {
+            hits.add(new SearchHit(NameKind.CITY, city.getId(), null));
+        }
+        put(hits);
+    }
+
+    public void removeCountries() {
+        AfterCommit.run(() -> locked(() -> {
+            PrefixIndex currentNames = names;
+            TrigramIndex currentTrigrams = trigrams;
+            for (NameKind kind : List.of(NameKind.COUNTRY,
+                    NameKind.CAPITAL, NameKind.CITY)) {
+                currentNames.clear(kind);
+                if (currentTrigrams != null) {
+                    currentTrigrams.clear(kind);
+                }
+            }
+        }));
+    }
+
+    public void indexCities(final Collection<City> cities) {
+        put(cities.stream().map(city -> new SearchHit(NameKind.CITY,
+                city.getId(), city.getName())).toList());
+    }
+
+    public void indexCity(final City city) {
+        indexCities(List.of(city));
+    }
+
+    public void removeCities(final Collection<City> cities) {
+        put(cities.stream().map(city -> new SearchHit(NameKind.CITY,
+                city.getId(), null)).toList());
+    }
+
+    public void indexNations(final Collection<Nation> nations) {
+        put(nations.stream().map(nation -> new SearchHit(NameKind.NATION,
+                nation.getId(), nation.getName())).toList());
+    }
+
+    public void indexNation(final Nation nation) {
+        indexNations(List.of(nation));
+    }
+
+    public void removeNation(final Long nationId) {
+        put(List.of(new SearchHit(NameKind.NATION, nationId, null)));
+    }
+
+    // A null name removes the entry
+    private void put(final List<SearchHit> hits) {
+        AfterCommit.run(() -> locked(() -> apply(hits, names, trigrams)));
+    }
+
+    private static void apply(final List<SearchHit> hits,
+                              final PrefixIndex names,
+                              final TrigramIndex trigrams) {
+        for (SearchHit hit : hits) {
+            names.put(hit.kind(), hit.id(), hit.name());
+            if (trigrams != null) {
+                trigrams.put(hit.kind(), hit.id(), hit.name());
+            }
+        }
+    }
+
+    private TrigramIndex newTrigramIndex() {
+        return properties.isPostgresFuzzy() ? null : new TrigramIndex();
+    }
+
+    private void locked(final Runnable update) {
+        lock.lock();
+        try {
+            update.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
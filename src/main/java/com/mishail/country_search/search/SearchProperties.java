@@ -0,0 +1,18 @@
+package com.mishail.country_search.search;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "search")
+public class SearchProperties {
+
+    // Datasets too large for the in-memory trigram index are searched
+    // with pg_trgm instead, see FuzzySearchIndexes for the indexes.
+    private boolean postgresFuzzy;
+
+    // Also applied as pg_trgm.similarity_threshold for the % operator
+    private double similarityThreshold = 0.3;
+}
@@ -0,0 +1,174 @@
+package com.mishail.country_search.search;
+
+import java.util.Arrays;
+
+// An immutable column of (value, id) pairs kept in two primitive arrays
+// sorted by value, then id. Range scans are two binary searches and the
+// top k values are the last k slots, so neither boxes a single value.
+// Writers build new arrays, which is cheap next to the database write
+// that caused them, and readers never lock.
+final class SortedColumn {
+
+    static final SortedColumn EMPTY =
+            new SortedColumn(new double[0], new long[0]);
+
+    private final double[] values;
+
+    private final long[] ids;
+
+    private SortedColumn(final double[] values, final long[] ids) {
+        this.values = values;
+        this.ids = ids;
+    }
+
+    // The arrays are sorted in place and owned by the column afterwards
+    static SortedColumn of(final double[] values, final long[] ids) {
+        sort(values, ids, 0, values.length - 1);
+        return new SortedColumn(values, ids);
+    }
+
+    int size() {
+        return values.length;
+    }
+
+    // Every id in the batch is dropped first and inserted again with its
+    // new value unless that is NaN. The kept rows and the sorted batch are
+    // merged in one pass, so a bulk write costs one copy of the column.
+    SortedColumn update(final long[] changedIds, final double[] newValues) {
+        long[] changed = changedIds.clone();
+        Arrays.sort(changed);
+        int added = 0;
+        for (double value : newValues) {
+            if (!Double.isNaN(value)) {
+                added++;
+            }
+        }
+        double[] addedValues = new double[added];
+        long[] addedIds = new long[added];
+        added = 0;
+        for (int i = 0; i < newValues.length; i++) {
+            if (!Double.isNaN(newValues[i])) {
+                addedValues[added] = newValues[i];
+                addedIds[added++] = changedIds[i];
+            }
+        }
+        sort(addedValues, addedIds, 0, added - 1);
+
+        double[] mergedValues = new double[values.length + added];
+        long[] mergedIds = new long[ids.length + added];
+        int size = 0;
+        int next = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (Arrays.binarySearch(changed, ids[i]) >= 0) {
+                continue;
+            }
+            while (next < added && compare(addedValues[next],
+                    addedIds[next], values[i], ids[i]) < 0) {
+                mergedValues[size] = addedValues[next];
+                mergedIds[size++] = addedIds[next++];
+            }
+            mergedValues[size] = values[i];
+            mergedIds[size++] = ids[i];
+        }
+        while (next < added) {
+            mergedValues[size] = addedValues[next];
+            mergedIds[size++] = addedIds[next++];
+        }
+        return new SortedColumn(Arrays.copyOf(mergedValues, size),
+                Arrays.copyOf(mergedIds, size));
+    }
+
+    // Ids with min <= value <= max, smallest values first
+    long[] range(final double min, final double max, final int limit) {
+        int from = lowerBound(min);
+        int to = upperBound(max);
+        if (from >= to) {
+            return new long[0];
+        }
+        return Arrays.copyOfRange(ids, from, Math.min(to, from + limit));
+    }
+
+    long[] top(final int k, final boolean largest) {
+        int count = Math.min(k, ids.length);
+        long[] top = new long[count];
+        for (int i = 0; i < count; i++) {
+            top[i] = largest ? ids[ids.length - 1 - i] : ids[i];
+        }
+        return top;
+    }
+
+    private int lowerBound(final double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(final double value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(final double value, final long id,
+                               final double otherValue, final long otherId) {
+        int byValue = Double.compare(value, otherValue);
+        return byValue != 0 ? byValue : Long.compare(id, otherId);
+    }
+
+    private static void sort(final double[] values, final long[] ids,
+                             final int from, final int to) {
+        if (to - from < 16) {
+            for (int i = from + 1; i <= to; i++) {
+                for (int j = i; j > from && compare(values[j], ids[j],
+                        values[j - 1], ids[j - 1]) < 0; j--) {
+                    swap(values, ids, j, j - 1);
+                }
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        double pivotValue = values[middle];
+        long pivotId = ids[middle];
+        int i = from;
+        int j = to;
+        while (i <= j) {
+            while (compare(values[i], ids[i], pivotValue, pivotId) < 0) {
+                i++;
+            }
+            while (compare(values[j], ids[j], pivotValue, pivotId) > 0) {
+                j--;
+            }
+            if (i <= j) {
+                swap(values, ids, i++, j--);
+            }
+        }
+        sort(values, ids, from, j);
+        sort(values, ids, i, to);
+    }
+
+    private static void swap(final double[] values, final long[] ids,
+                             final int i, final int j) {
+        double value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+        long id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+    }
+}
@@ -0,0 +1,201 @@
+package com.mishail.country_search.search;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+// Names are split into the same trigrams as pg_trgm builds: every word is
+// lower-cased and padded with two spaces in front and one behind. Each
+// trigram is packed into a long and kept in a sorted array, so comparing
+// a candidate with the query is a merge over two small primitive arrays.
+// The best candidates by similarity are kept in a heap bounded by the limit.
+final class TrigramIndex {
+
+    private static final Pattern WORD_SEPARATOR =
+            Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Comparator<FuzzyHit> WORST_FIRST =
+            FuzzyHit.BEST_FIRST.reversed();
+
+    private record Key(NameKind kind, Long id) {
+    }
+
+    // Compared by identity, which is also cheaper to hash than the name,
+    // and a renamed entry is never mistaken for the one it replaced.
+    private static final class Entry {
+
+        private final SearchHit hit;
+
+        private final long[] trigrams;
+
+        private Entry(final SearchHit hit, final long[] trigrams) {
+            this.hit = hit;
+            this.trigrams = trigrams;
+        }
+    }
+
+    private final ConcurrentHashMap<Key, Entry> entries =
+            new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Long, Set<Entry>> postings =
+            new ConcurrentHashMap<>();
+
+    static long trigram(final CharSequence chars, final int from) {
+        return (long) chars.charAt(from) << 32
+                | (long) chars.charAt(from + 1) << 16
+                | chars.charAt(from + 2);
+    }
+
+    static long[] trigrams(final String text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (String word : WORD_SEPARATOR
+                .split(text.toLowerCase(Locale.ROOT))) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(trigram(padded, i));
+            }
+        }
+        return trigrams.stream().mapToLong(Long::longValue).sorted()
+                .toArray();
+    }
+
+    void put(final NameKind kind, final Long id, final String name) {
+        long[] trigrams = name == null ? new long[0] : trigrams(name);
+        if (trigrams.length == 0) {
+            remove(kind, id);
+            return;
+        }
+        Entry entry = new Entry(new SearchHit(kind, id, name), trigrams);
+        entries.compute(new Key(kind, id), (key, old) -> {
+            if (old != null) {
+                unlink(old);
+            }
+            for (long trigram : trigrams) {
+                postings.compute(trigram, (gram, linked) -> {
+                    Set<Entry> result = linked == null
+                            ? ConcurrentHashMap.newKeySet() : linked;
+                    result.add(entry);
+                    return result;
+                });
+            }
+            return entry;
+        });
+    }
+
+    void remove(final NameKind kind, final Long id) {
+        entries.computeIfPresent(new Key(kind, id), (key, old) -> {
+            unlink(old);
+            return null;
+        });
+    }
+
+    void clear(final NameKind kind) {
+        for (Key key : entries.keySet()) {
+            if (key.kind() == kind) {
+                remove(key.kind(), key.id());
+            }
+        }
+    }
+
+    // A name with similarity t shares at least t * |query| trigrams with
+    // the query. Skipping the k longest posting lists, which belong to
+    // common trigrams, a candidate must still be counted that many times
+    // minus k in the rest. The mandatory short lists are always scanned,
+    // longer ones only while they are no bigger than everything scanned so
+    // far, and just the candidates counted often enough are scored exactly.
+    List<FuzzyHit> search(final String query, final int limit,
+                          final double threshold) {
+        long[] trigrams = trigrams(query);
+        List<Set<Entry>> lists = new ArrayList<>(trigrams.length);
+        for (long trigram : trigrams) {
+            Set<Entry> linked = postings.get(trigram);
+            if (linked != null) {
+                lists.add(linked);
+            }
+        }
+        int minCommon = Math.max(1,
+                (int) Math.ceil(threshold * trigrams.length - 1e-9));
+        int scanned = lists.size() - minCommon + 1;
+        if (scanned <= 0) {
+            return List.of();
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        long scannedSize = 0;
+        for (int i = 0; i < scanned; i++) {
+            scannedSize += lists.get(i).size();
+        }
+        while (scanned < lists.size()
+                && lists.get(scanned).size() <= scannedSize) {
+            scannedSize += lists.get(scanned++).size();
+        }
+        int required = minCommon - (lists.size() - scanned);
+        Map<Entry, int[]> counts = new HashMap<>();
+        for (Set<Entry> linked : lists.subList(0, scanned)) {
+            for (Entry entry : linked) {
+                int[] count = counts.get(entry);
+                if (count == null) {
+                    counts.put(entry, new int[] {1});
+                } else {
+                    count[0]++;
+                }
+            }
+        }
+        PriorityQueue<FuzzyHit> best =
+                new PriorityQueue<>(limit + 1, WORST_FIRST);
+        for (Map.Entry<Entry, int[]> candidate : counts.entrySet()) {
+            if (candidate.getValue()[0] < required) {
+                continue;
+            }
+            Entry entry = candidate.getKey();
+            int common = common(trigrams, entry.trigrams);
+            double similarity = (double) common
+                    / (trigrams.length + entry.trigrams.length - common);
+            if (similarity < threshold) {
+                continue;
+            }
+            SearchHit hit = entry.hit;
+            best.offer(new FuzzyHit(hit.kind(), hit.id(), hit.name(),
+                    similarity));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<FuzzyHit> hits = new ArrayList<>(best);
+        hits.sort(FuzzyHit.BEST_FIRST);
+        return hits;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static int common(final long[] first, final long[] second) {
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    private void unlink(final Entry entry) {
+        for (long trigram : entry.trigrams) {
+            postings.computeIfPresent(trigram, (gram, linked) -> {
+                linked.remove(entry);
+                return linked.isEmpty() ? null : linked;
+            });
+        }
+    }
+}
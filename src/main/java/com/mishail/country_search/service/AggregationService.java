@@ -0,0 +1,62 @@
+package com.mishail.country_search.service;
+
+import com.mishail.country_search.cache.CacheService;
+import com.mishail.country_search.cache.ETag;
+import com.mishail.country_search.dto.AggregateRow;
+import com.mishail.country_search.repository.AggregationRepository;
+import com.mishail.country_search.search.AggregationColumns;
+import com.mishail.country_search.search.AggregationProperties;
+import com.mishail.country_search.search.GroupBy;
+import com.mishail.country_search.search.NumericColumn;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Service
+public class AggregationService {
+
+    private final AggregationRepository aggregationRepository;
+
+    private final AggregationColumns aggregationColumns;
+
+    private final AggregationProperties properties;
+
+    private final CacheService cacheService;
+
+    private static final String AGGREGATE = "aggregate_";
+    private static final String ALL_COUNTRIES = "allCountries";
+
+    public List<AggregateRow> aggregate(final String groupBy,
+                                        final String field) {
+        GroupBy group = GroupBy.of(groupBy);
+        NumericColumn column = NumericColumn.country(field);
+        int spec = group.ordinal() * NumericColumn.values().length
+                + column.ordinal();
+
+        // Every country and nation write moves the allCountries version,
+        // so an aggregate computed at an older version is simply reloaded.
+        ETag version = cacheService.eTag(ALL_COUNTRIES);
+        Aggregate aggregate = cacheService.computeIfAbsent(AGGREGATE, spec,
+                () -> load(group, column, version), null);
+        if (!aggregate.version().equals(version)) {
+            cacheService.remove(AGGREGATE + spec);
+            aggregate = cacheService.computeIfAbsent(AGGREGATE, spec,
+                    () -> load(group, column, version), null);
+        }
+        return aggregate.rows();
+    }
+
+    private Aggregate load(final GroupBy groupBy,
+                           final NumericColumn column,
+                           final ETag version) {
+        List<AggregateRow> rows = properties.isInMemory()
+                ? aggregationColumns.aggregate(groupBy, column, version)
+                : aggregationRepository.aggregate(groupBy, column);
+        return new Aggregate(version, rows);
+    }
+
+    private record Aggregate(ETag version, List<AggregateRow> rows) {
+    }
+}
@@ -1,19 +1,29 @@
 package com.mishail.country_search.service;
 
+import com.mishail.country_search.cache.CacheEntity;
 import com.mishail.country_search.cache.CacheService;
+import com.mishail.country_search.cache.CacheTag;
+import com.mishail.country_search.cache.ETag;
+import com.mishail.country_search.cache.EncodedBody;
+import com.mishail.country_search.cache.ResponseBodyCache;
+import com.mishail.country_search.dto.CityDto;
+import com.mishail.country_search.dto.CountryDto;
 import com.mishail.country_search.exception.ObjectExistedException;
 import com.mishail.country_search.exception.ObjectNotFoundException;
-import com.mishail.country_search.model.Nation;
 import com.mishail.country_search.repository.CountryRepository;
 import com.mishail.country_search.model.City;
 import com.mishail.country_search.model.Country;
 import com.mishail.country_search.repository.CityRepository;
+import com.mishail.country_search.search.AfterCommit;
+import com.mishail.country_search.search.ColumnIndex;
+import com.mishail.country_search.search.SearchIndex;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
-import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 @Service
 @AllArgsConstructor
@@ -25,64 +35,67 @@ public class CityService {
 
     private final CacheService cacheService;
 
+    private final SearchIndex searchIndex;
+
+    private final ColumnIndex columnIndex;
+
+    private final ResponseBodyCache responseBodyCache;
+
     private static final String ALL_CITIES_BY_COUNTRY_ID =
             "allCitiesByCountryId_";
     private static final String ALL_CITIES = "allCities";
-    private static final String ALL_COUNTRIES_BY_NATION_ID =
-            "allCountriesByNationId_";
     private static final String ALL_COUNTRIES = "allCountries";
-    private static final String COUNTRY_ID = "countryId_";
 
 
     private void updateCache(final Country country) {
+        cacheService.invalidate(CacheEntity.COUNTRY, country.getId());
+        cacheService.bumpVersion(ALL_CITIES, ALL_COUNTRIES);
+    }
 
-        if (cacheService.containsKey(ALL_CITIES_BY_COUNTRY_ID
-                + country.getId())) {
-            cacheService.put(ALL_CITIES_BY_COUNTRY_ID + country.getId(),
-                    country.getCities());
-        }
+    // Patched once the rows are committed, a rollback leaves the list as
+    // it is
+    private void updateAllCities(
+            final UnaryOperator<List<CityDto>> remapping) {
+        AfterCommit.run(() -> cacheService.computeIfPresent(ALL_CITIES,
+                remapping, CacheTag::forCities));
+    }
 
-        if (cacheService.containsKey(COUNTRY_ID + country.getId())) {
-            cacheService.remove(COUNTRY_ID + country.getId());
-        }
+    public List<CityDto> getCities() {
+        return cacheService.computeIfAbsent(ALL_CITIES,
+                () -> cityRepository.findAll().stream()
+                        .map(CityDto::from).toList(),
+                CacheTag::forCities);
+    }
 
-        if (cacheService.containsKey(ALL_COUNTRIES)) {
-            cacheService.remove(ALL_COUNTRIES);
-        }
+    public List<CityDto> getCities(final Long after, final int limit) {
+        return cityRepository.findByIdGreaterThanOrderByIdAsc(after,
+                        Limit.of(limit)).stream()
+                .map(CityDto::from).toList();
+    }
 
-        for(Nation nation : country.getNations()) {
-            if (cacheService.containsKey(
-                    ALL_COUNTRIES_BY_NATION_ID + nation.getId())) {
-                cacheService.remove(ALL_COUNTRIES_BY_NATION_ID + nation.getId());
-            }
-        }
+    public EncodedBody encodeCities(final List<CityDto> cities) {
+        return responseBodyCache.encode(ALL_CITIES, cities);
     }
 
-    public List<City> getCities() {
-        if (cacheService.containsKey(ALL_CITIES)) {
-            return (List<City>) cacheService.get(ALL_CITIES);
-        } else {
-            List<City> cities = cityRepository.findAll();
-            cacheService.put(ALL_CITIES, cities);
-            return cities;
-        }
+    public ETag getCitiesETag() {
+        return cacheService.eTag(ALL_CITIES);
     }
 
-    public Set<City> getCitiesByCountryId(final Long countryId) {
-        if (cacheService.containsKey(ALL_CITIES_BY_COUNTRY_ID + countryId)) {
-            return (Set<City>) cacheService
-                    .get(ALL_CITIES_BY_COUNTRY_ID + countryId);
-        } else {
-            Country country = countryRepository
-                    .findCountryWithCitiesById(countryId)
-                    .orElseThrow(() -> new ObjectNotFoundException(
-                            "country with id " + countryId
-                                    + " doesn't exist, that's why "
-                                    + "you can't view cities from its"));
-            Set<City> cities = country.getCities();
-            cacheService.put(ALL_CITIES_BY_COUNTRY_ID + countryId, cities);
-            return cities;
-        }
+    public Set<CityDto> getCitiesByCountryId(final Long countryId) {
+        return cacheService.computeIfAbsent(
+                ALL_CITIES_BY_COUNTRY_ID, countryId,
+                () -> CountryDto.snapshot(countryRepository
+                        .findCountryWithCitiesById(countryId)
+                        .orElseThrow(() -> new ObjectNotFoundException(
+                                "country with id " + countryId
+                                        + " doesn't exist, that's why "
+                                        + "you can't view cities from its"))
+                        .getCities(), CityDto::from),
+                cities -> {
+                    Set<CacheTag> tags = CacheTag.forCities(cities);
+                    tags.add(new CacheTag(CacheEntity.COUNTRY, countryId));
+                    return tags;
+                });
     }
 
     @Transactional
@@ -107,13 +120,13 @@ public class CityService {
                     + country.getName() + ".");
         }
 
-        if (cacheService.containsKey(ALL_CITIES)) {
-            List<City> allCities = (List<City>) cacheService.get(ALL_CITIES);
-            allCities.add(cityRequest);
-            cacheService.put(ALL_CITIES, allCities);
-        }
+        List<CityDto> snapshot = List.of(CityDto.from(cityRequest));
+        updateAllCities(cities -> Snapshots.upsert(cities, snapshot,
+                CityDto::id));
 
         updateCache(country);
+        searchIndex.indexCity(cityRequest);
+        columnIndex.indexCity(cityRequest);
 
         return cityRequest;
     }
@@ -122,12 +135,37 @@ public class CityService {
     public List<City> addNewCitiesByCountryId(final Long countryId,
                                       final List<City> citiesRequest) {
 
-        List<City> addedCities = new ArrayList<>();
+        Country country = countryRepository
+                .findCountryWithCitiesById(countryId)
+                .orElseThrow(() -> new ObjectNotFoundException(
+                        "country, which id " + countryId + " does not exist, "
+                                + "that's why you can't add new cities"));
+
+        Set<String> names = new HashSet<>();
+        country.getCities().forEach(city -> names.add(city.getName()));
+        for (City city : citiesRequest) {
+            if (!names.add(city.getName())) {
+                throw new ObjectExistedException("city with name "
+                        + city.getName()
+                        + " already exists in the country "
+                        + country.getName() + ".");
+            }
+        }
+
+        cityRepository.saveAll(citiesRequest);
+        country.getCities().addAll(citiesRequest);
+        countryRepository.saveAndFlush(country);
 
-        citiesRequest.forEach(city -> addedCities
-                .add(addNewCityByCountryId(countryId, city)));
+        List<CityDto> snapshots = citiesRequest.stream()
+                .map(CityDto::from).toList();
+        updateAllCities(cities -> Snapshots.upsert(cities, snapshots,
+                CityDto::id));
 
-        return addedCities;
+        updateCache(country);
+        searchIndex.indexCities(citiesRequest);
+        columnIndex.indexCities(citiesRequest);
+
+        return citiesRequest;
     }
 
     @Transactional
@@ -148,9 +186,6 @@ public class CityService {
                                 + " can not be updated, "
                                 + "because it does not exist"));
 
-        City cityBeforeChanges = new City();
-        BeanUtils.copyProperties(city, cityBeforeChanges);
-
         Set<City> cities = country.getCities();
 
         if (name != null && !name.isEmpty()
@@ -172,14 +207,15 @@ public class CityService {
             city.setAreaSquareKm(areaSquareKm);
         }
 
-        if (cacheService.containsKey(ALL_CITIES)) {
-            List<City> allCities = (List<City>) cacheService.get(ALL_CITIES);
-            allCities.remove(cityBeforeChanges);
-            allCities.add(city);
-            cacheService.put(ALL_CITIES, allCities);
-        }
+        CityDto snapshot = CityDto.from(city);
+        updateAllCities(allCities -> allCities.stream()
+                .map(cityTemp -> Objects.equals(cityTemp.id(), cityId)
+                        ? snapshot : cityTemp)
+                .toList());
 
         updateCache(country);
+        searchIndex.indexCity(city);
+        columnIndex.indexCity(city);
 
         return city;
     }
@@ -192,23 +228,22 @@ public class CityService {
                                 + " does not exist, that's why "
                                 + "you can't delete cities from its"));
 
-        Set<City> citiesBeforeChanges = new HashSet<>(country.getCities());
+        Set<Long> deletedIds = new HashSet<>();
         Set<City> cities = country.getCities();
+        searchIndex.removeCities(cities);
+        columnIndex.removeCities(cities);
 
         for (City city : cities) {
+            deletedIds.add(city.getId());
             cityRepository.deleteById(city.getId());
         }
 
         country.getCities().clear();
         countryRepository.save(country);
 
-        if (cacheService.containsKey(ALL_CITIES)) {
-            List<City> allCities = (List<City>) cacheService.get(ALL_CITIES);
-            for (City city : citiesBeforeChanges) {
-                allCities.remove(city);
-            }
-            cacheService.put(ALL_CITIES, allCities);
-        }
+        updateAllCities(allCities -> allCities.stream()
+                .filter(city -> !deletedIds.contains(city.id()))
+                .toList());
 
         updateCache(country);
     }
@@ -229,15 +264,16 @@ public class CityService {
                                 + "you can't delete its"));
 
         cityRepository.deleteById(city.getId());
+        searchIndex.removeCities(List.of(city));
+        columnIndex.removeCities(List.of(city));
 
         country.getCities().remove(city);
         countryRepository.save(country);
 
-        if (cacheService.containsKey(ALL_CITIES)) {
-            List<City> allCities = (List<City>) cacheService.get(ALL_CITIES);
-            allCities.remove(city);
-            cacheService.put(ALL_CITIES, allCities);
-        }
+        updateAllCities(allCities -> allCities.stream()
+                .filter(cityTemp -> !Objects.equals(cityTemp.id(),
+                        city.getId()))
+                .toList());
 
         updateCache(country);
     }
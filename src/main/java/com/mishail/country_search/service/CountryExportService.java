@@ -0,0 +1,71 @@
+package com.mishail.country_search.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mishail.country_search.dto.CountryDto;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.repository.CountryRepository;
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@AllArgsConstructor
+@Service
+public class CountryExportService {
+
+    private final CountryRepository countryRepository;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    // Countries are read through a cursor and written chunk by chunk,
+    // the persistence context is cleared after every chunk, so memory
+    // doesn't depend on the number of rows.
+    @Transactional(readOnly = true)
+    public long exportCountries(final OutputStream output) {
+        long exported = 0;
+        ObjectWriter writer = objectMapper.writerFor(CountryDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (Stream<Country> countries =
+                     countryRepository.streamAllByOrderByIdAsc();
+             JsonGenerator generator = objectMapper.getFactory()
+                     .createGenerator(output)
+                     .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                     .setRootValueSeparator(null)) {
+            Iterator<Country> iterator = countries.iterator();
+            List<Country> chunk =
+                    new ArrayList<>(CountryRepository.FETCH_BATCH_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CountryRepository.FETCH_BATCH_SIZE
+                        || !iterator.hasNext()) {
+                    countryRepository.fetchCitiesAndNations(chunk);
+                    for (Country country : chunk) {
+                        writer.writeValue(generator,
+                                CountryDto.from(country));
+                        generator.writeRaw('\n');
+                    }
+                    generator.flush();
+                    exported += chunk.size();
+                    chunk.clear();
+                    entityManager.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return exported;
+    }
+}
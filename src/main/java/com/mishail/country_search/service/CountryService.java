@@ -1,14 +1,25 @@
 package com.mishail.country_search.service;
 
+import com.mishail.country_search.cache.CacheEntity;
 import com.mishail.country_search.cache.CacheService;
+import com.mishail.country_search.cache.CacheTag;
+import com.mishail.country_search.cache.ETag;
+import com.mishail.country_search.cache.EncodedBody;
+import com.mishail.country_search.cache.ResponseBodyCache;
+import com.mishail.country_search.dto.CountryDto;
+import com.mishail.country_search.model.City;
 import com.mishail.country_search.exception.ObjectExistedException;
 import com.mishail.country_search.exception.ObjectNotFoundException;
 import com.mishail.country_search.model.Country;
-import com.mishail.country_search.model.Nation;
 import com.mishail.country_search.repository.CountryRepository;
+import com.mishail.country_search.search.AfterCommit;
+import com.mishail.country_search.search.ColumnIndex;
+import com.mishail.country_search.search.MembershipIndex;
+import com.mishail.country_search.search.SearchIndex;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -21,43 +32,56 @@ public class CountryService {
 
     private final CacheService cacheService;
 
+    private final SearchIndex searchIndex;
+
+    private final ColumnIndex columnIndex;
+
+    private final MembershipIndex membershipIndex;
+
+    private final ResponseBodyCache responseBodyCache;
+
     private static final String ALL_COUNTRIES = "allCountries";
     private static final String COUNTRY_ID = "countryId_";
-    private static final String ALL_CITIES_BY_COUNTRY_ID =
-            "allCitiesByCountryId_";
     private static final String ALL_CITIES = "allCities";
-    private static final String ALL_NATIONS_BY_COUNTRY_ID =
-            "allNationsByCountryId_";
-    private static final String ALL_COUNTRIES_BY_NATION_ID =
-            "allCountriesByNationId_";
-
-    public List<Country> getCountries() {
-
-        if (cacheService.containsKey(ALL_COUNTRIES)) {
-            return (List<Country>) cacheService.get(ALL_COUNTRIES);
-        } else {
-            List<Country> countries = countryRepository
-                    .findAllWithCitiesAndNations();
-            cacheService.put(ALL_COUNTRIES, countries);
-            return countries;
-        }
+
+    public List<CountryDto> getCountries() {
+
+        return cacheService.computeIfAbsent(ALL_COUNTRIES,
+                () -> countryRepository.findAllWithCitiesAndNations()
+                        .stream().map(CountryDto::from).toList(),
+                CacheTag::forCountries);
     }
 
-    public Country getCountryById(final Long countryId) {
-
-        if (cacheService.containsKey(COUNTRY_ID + countryId)) {
-            return (Country) cacheService.get(COUNTRY_ID + countryId);
-        } else {
-            Country country = countryRepository
-                    .findCountryWithCitiesAndNationsById(countryId)
-                    .orElseThrow(() -> new ObjectNotFoundException(
-                            "country with id " + countryId
-                                    + " does not exist"));
-            cacheService.put(COUNTRY_ID + countryId, country);
-            return country;
+    public List<CountryDto> getCountries(final Long after, final int limit) {
+        List<Long> ids = countryRepository.findIdsAfter(after,
+                Limit.of(limit));
+        if (ids.isEmpty()) {
+            return List.of();
         }
+        return countryRepository.findAllWithCitiesAndNationsByIdIn(ids)
+                .stream().map(CountryDto::from).toList();
     }
 
+    public EncodedBody encodeCountries(final List<CountryDto> countries) {
+        return responseBodyCache.encode(ALL_COUNTRIES, countries);
+    }
+
+    public ETag getCountriesETag() {
+        return cacheService.eTag(ALL_COUNTRIES);
+    }
+
+    public CountryDto getCountryById(final Long countryId) {
+
+        return cacheService.computeIfAbsent(COUNTRY_ID, countryId,
+                () -> CountryDto.from(countryRepository
+                        .findCountryWithCitiesAndNationsById(countryId)
+                        .orElseThrow(() -> new ObjectNotFoundException(
+                                "country with id " + countryId
+                                        + " does not exist"))),
+                CacheTag::forCountry);
+    }
+
+    @Transactional
     public Country addNewCountry(final Country country) {
 
         Optional<Country> countryOptional = countryRepository
@@ -72,40 +96,68 @@ public class CountryService {
             country.setCities(new HashSet<>());
         }
         countryRepository.save(country);
-        if (cacheService.containsKey(ALL_COUNTRIES)) {
-            List<Country> countries = (List<Country>) cacheService
-                    .get(ALL_COUNTRIES);
-            countries.add(country);
-            cacheService.put(ALL_COUNTRIES, countries);
-        }
-        cacheService.put(COUNTRY_ID + country.getId(), country);
+        CountryDto snapshot = CountryDto.from(country);
+        updateAllCountries(List.of(snapshot));
+        AfterCommit.run(() -> cacheService.put(COUNTRY_ID + snapshot.id(),
+                snapshot, CacheTag.forCountry(snapshot)));
+        cacheService.bumpVersion(ALL_COUNTRIES);
+        searchIndex.indexCountry(country);
+        columnIndex.indexCountry(country);
+        membershipIndex.indexCountry(country);
 
         return country;
     }
 
+    // One name check and batched inserts for the whole list: ids come from
+    // the pooled sequence, so Hibernate can group the inserts into JDBC
+    // batches instead of a round trip per row.
+    @Transactional
     public List<Country> addNewCountries(final List<Country> countries) {
 
-        List<Country> addedCountries = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (Country country : countries) {
+            if (!names.add(country.getName())) {
+                throw new ObjectExistedException("country "
+                        + country.getName() + " is repeated in the request");
+            }
+        }
+        List<String> existingNames = countryRepository
+                .findExistingNames(names);
+        if (!existingNames.isEmpty()) {
+            throw new ObjectExistedException("countries "
+                    + existingNames + " exist");
+        }
+        for (Country country : countries) {
+            if (country.getNations() == null) {
+                country.setNations(new HashSet<>());
+            }
+            if (country.getCities() == null) {
+                country.setCities(new HashSet<>());
+            }
+        }
+        countryRepository.saveAllAndFlush(countries);
+
+        List<CountryDto> snapshots = countries.stream()
+                .map(CountryDto::from).toList();
+        updateAllCountries(snapshots);
+        cacheService.bumpVersion(ALL_COUNTRIES);
+        searchIndex.indexCountries(countries);
+        columnIndex.indexCountries(countries);
+        membershipIndex.indexCountries(countries);
 
-        countries.forEach(country -> addedCountries
-                .add(addNewCountry(country)));
+        return countries;
+    }
 
-        return addedCountries;
+    private void updateAllCountries(final List<CountryDto> added) {
+        AfterCommit.run(() -> cacheService.<List<CountryDto>>computeIfPresent(
+                ALL_COUNTRIES,
+                cached -> Snapshots.upsert(cached, added, CountryDto::id),
+                CacheTag::forCountries));
     }
 
     void updateCacheForCountry(Country countryChanged) {
-        if (cacheService.containsKey(ALL_COUNTRIES)) {
-            cacheService.remove(ALL_COUNTRIES);
-        }
-        if (cacheService.containsKey(COUNTRY_ID + countryChanged.getId())) {
-            cacheService.put(COUNTRY_ID + countryChanged.getId(), countryChanged);
-        }
-        for(Nation nation : countryChanged.getNations()) {
-            if (cacheService.containsKey(
-                    ALL_COUNTRIES_BY_NATION_ID + nation.getId())) {
-                cacheService.remove(ALL_COUNTRIES_BY_NATION_ID + nation.getId());
-            }
-        }
+        cacheService.invalidate(CacheEntity.COUNTRY, countryChanged.getId());
+        cacheService.bumpVersion(ALL_COUNTRIES);
     }
 
     @Transactional
@@ -155,6 +207,9 @@ public class CountryService {
         }
 
         updateCacheForCountry(countryChanged);
+        searchIndex.indexCountry(countryChanged);
+        columnIndex.indexCountry(countryChanged);
+        membershipIndex.indexCountry(countryChanged);
 
         return countryChanged;
     }
@@ -165,30 +220,14 @@ public class CountryService {
                 .findCountryWithCitiesAndNationsById(countryId)
                 .orElseThrow(() -> new ObjectNotFoundException(
                         "country, which id " + countryId + " does not exist"));
-        if (cacheService.containsKey(COUNTRY_ID + country.getId())) {
-            cacheService.remove(COUNTRY_ID + country.getId());
-        }
-        if (cacheService.containsKey(ALL_COUNTRIES)) {
-            cacheService.remove(ALL_COUNTRIES);
-        }
-        if (cacheService.containsKey(ALL_CITIES_BY_COUNTRY_ID
-                + country.getId())) {
-            cacheService.remove(ALL_CITIES_BY_COUNTRY_ID + country.getId());
-        }
-        if (cacheService.containsKey(ALL_CITIES)) {
-            cacheService.remove(ALL_CITIES);
-        }
-        if (cacheService.containsKey(
-                ALL_NATIONS_BY_COUNTRY_ID + country.getId())) {
-            cacheService.remove(
-                    ALL_NATIONS_BY_COUNTRY_ID + country.getId());
-        }
-        for(Nation nation : country.getNations()) {
-            if (cacheService.containsKey(
-                    ALL_COUNTRIES_BY_NATION_ID + nation.getId())) {
-                cacheService.remove(ALL_COUNTRIES_BY_NATION_ID + nation.getId());
-            }
-        }
+        cacheService.invalidate(CacheEntity.COUNTRY, country.getId());
+        for (City city : country.getCities()) {
+            cacheService.invalidate(CacheEntity.CITY, city.getId());
+        }
+        cacheService.bumpVersion(ALL_COUNTRIES, ALL_CITIES);
+        searchIndex.removeCountry(country);
+        columnIndex.removeCountry(country);
+        membershipIndex.removeCountry(country);
         country.getCities().clear();
         countryRepository.deleteById(countryId);
     }
@@ -201,5 +240,9 @@ public class CountryService {
         }
         countryRepository.deleteAll();
         cacheService.clear();
+        cacheService.bumpVersion(ALL_COUNTRIES, ALL_CITIES);
+        searchIndex.removeCountries();
+        columnIndex.removeCountries();
+        membershipIndex.removeCountries();
     }
 }
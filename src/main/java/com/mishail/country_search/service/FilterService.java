@@ -0,0 +1,66 @@
+package com.mishail.country_search.service;
+
+import com.mishail.country_search.dto.CountryDto;
+import com.mishail.country_search.dto.NationDto;
+import com.mishail.country_search.exception.BadRequestException;
+import com.mishail.country_search.repository.CountryRepository;
+import com.mishail.country_search.repository.NationRepository;
+import com.mishail.country_search.search.MembershipFilter;
+import com.mishail.country_search.search.MembershipIndex;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+@AllArgsConstructor
+@Service
+public class FilterService {
+
+    private final MembershipIndex membershipIndex;
+
+    private final CountryRepository countryRepository;
+
+    private final NationRepository nationRepository;
+
+    public List<CountryDto> filterCountries(final MembershipFilter filter,
+                                            final int limit) {
+        checkRange(filter.minPopulation(), filter.maxPopulation());
+        List<Long> ids = ids(membershipIndex.countries(filter)
+                .toArray(limit));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return countryRepository.findAllWithCitiesAndNationsByIdIn(ids)
+                .stream().map(CountryDto::from).toList();
+    }
+
+    public List<NationDto> filterNations(final String language,
+                                         final String religion,
+                                         final Double minPopulation,
+                                         final Double maxPopulation,
+                                         final int limit) {
+        checkRange(minPopulation, maxPopulation);
+        List<Long> ids = ids(membershipIndex.nations(language, religion,
+                minPopulation, maxPopulation).toArray(limit));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return nationRepository.findAllById(ids).stream()
+                .map(NationDto::from)
+                .sorted(Comparator.comparing(NationDto::id))
+                .toList();
+    }
+
+    private static void checkRange(final Double min, final Double max) {
+        if (min != null && max != null && min > max) {
+            throw new BadRequestException("minPopulation should not be "
+                    + "greater than maxPopulation");
+        }
+    }
+
+    private static List<Long> ids(final int[] ids) {
+        return Arrays.stream(ids).mapToObj(Long::valueOf).toList();
+    }
+}
@@ -0,0 +1,95 @@
+package com.mishail.country_search.service;
+
+import com.mishail.country_search.cache.CacheService;
+import com.mishail.country_search.dto.ImportResult;
+import com.mishail.country_search.repository.BulkImportRepository;
+import com.mishail.country_search.repository.ImportFormat;
+import com.mishail.country_search.repository.ImportKind;
+import com.mishail.country_search.search.ColumnIndex;
+import com.mishail.country_search.search.MembershipIndex;
+import com.mishail.country_search.search.SearchIndex;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+@RequiredArgsConstructor
+@Service
+public class ImportService {
+
+    private final BulkImportRepository bulkImportRepository;
+
+    private final CacheService cacheService;
+
+    private final SearchIndex searchIndex;
+
+    private final ColumnIndex columnIndex;
+
+    private final MembershipIndex membershipIndex;
+
+    private static final String ALL_COUNTRIES = "allCountries";
+    private static final String ALL_CITIES = "allCities";
+    private static final String ALL_NATIONS = "allNations";
+
+    private final Logger logger =
+            LoggerFactory.getLogger(ImportService.class);
+
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    @Transactional
+    public ImportResult importRows(final ImportKind kind,
+                                   final ImportFormat format,
+                                   final InputStream input) {
+        ImportResult result = bulkImportRepository.importRows(kind, format,
+                input);
+        MembershipIndex.checkId(bulkImportRepository.maxMembershipId(kind));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            refreshAfterImport();
+                        }
+                    });
+        } else {
+            refreshAfterImport();
+        }
+        return result;
+    }
+
+    // Any cached value or indexed row may be stale after an import, so the
+    // cache is dropped at once and the indexes are rebuilt for the whole
+    // file in the background, which the response does not wait for.
+    // Imports committed while a rebuild is still queued share it.
+    private void refreshAfterImport() {
+        cacheService.clear();
+        cacheService.bumpVersion(ALL_COUNTRIES, ALL_CITIES, ALL_NATIONS);
+        if (rebuildPending.compareAndSet(false, true)) {
+            cacheService.runInBackground(this::rebuildIndexes);
+        }
+    }
+
+    // One rebuild at a time, a later one reads the newer rows
+    private void rebuildIndexes() {
+        rebuildLock.lock();
+        try {
+            rebuildPending.set(false);
+            searchIndex.rebuild();
+            columnIndex.rebuild();
+            membershipIndex.rebuild();
+        } catch (RuntimeException e) {
+            logger.error("index rebuild after import failed", e);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+}
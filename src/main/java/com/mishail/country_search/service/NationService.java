@@ -1,14 +1,24 @@
 package com.mishail.country_search.service;
 
+import com.mishail.country_search.cache.CacheEntity;
 import com.mishail.country_search.cache.CacheService;
+import com.mishail.country_search.cache.CacheTag;
+import com.mishail.country_search.cache.ETag;
+import com.mishail.country_search.cache.EncodedBody;
+import com.mishail.country_search.cache.ResponseBodyCache;
+import com.mishail.country_search.dto.CountryDto;
+import com.mishail.country_search.dto.NationDto;
 import com.mishail.country_search.exception.ObjectExistedException;
 import com.mishail.country_search.exception.ObjectNotFoundException;
 import com.mishail.country_search.model.Country;
 import com.mishail.country_search.model.Nation;
 import com.mishail.country_search.repository.CountryRepository;
+import com.mishail.country_search.search.MembershipIndex;
+import com.mishail.country_search.search.SearchIndex;
 import com.mishail.country_search.repository.NationRepository;
 import jakarta.transaction.Transactional;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -23,89 +33,81 @@ public class NationService {
 
     private final CacheService cacheService;
 
+    private final SearchIndex searchIndex;
+
+    private final MembershipIndex membershipIndex;
+
+    private final ResponseBodyCache responseBodyCache;
+
     private static final String ALL_NATIONS_BY_COUNTRY_ID =
             "allNationsByCountryId_";
     private static final String ALL_COUNTRIES_BY_NATION_ID =
             "allCountriesByNationId_";
     private static final String ALL_NATIONS = "allNations";
-    private static final String COUNTRY_ID = "countryId_";
     private static final String ALL_COUNTRIES = "allCountries";
 
-    private void cleanCache(final Long nationId, final Nation nation) {
-
-        List<Country> countries = countryRepository
-                .findCountriesWithNationsByNationByNationId(nationId);
-
-        for (Country country : countries) {
-            if (cacheService.containsKey(
-                    ALL_NATIONS_BY_COUNTRY_ID + country.getId())) {
-                cacheService.remove(
-                        ALL_NATIONS_BY_COUNTRY_ID + country.getId());
-            }
-            if (cacheService.containsKey(COUNTRY_ID + country.getId())) {
-                cacheService.remove(COUNTRY_ID + country.getId());
-            }
-        }
-
-        if (cacheService.containsKey(ALL_NATIONS)) {
-            cacheService.remove(ALL_NATIONS);
-        }
+    private void cleanCache(final Long nationId) {
+        cacheService.invalidate(CacheEntity.NATION, nationId);
+        cacheService.bumpVersion(ALL_NATIONS, ALL_COUNTRIES);
+    }
 
-        if (cacheService.containsKey(
-                ALL_COUNTRIES_BY_NATION_ID + nation.getId())) {
-            cacheService.remove(ALL_COUNTRIES_BY_NATION_ID + nation.getId());
-        }
+    public Set<NationDto> getNationsByCountryId(final Long countryId) {
+        return cacheService.computeIfAbsent(
+                ALL_NATIONS_BY_COUNTRY_ID, countryId,
+                () -> CountryDto.snapshot(countryRepository
+                        .findCountryWithNationsById(countryId)
+                        .orElseThrow(() -> new ObjectNotFoundException(
+                                "country, which id " + countryId
+                                        + " doesn't exist, that's why "
+                                        + "you can't view nations from its"))
+                        .getNations(), NationDto::from),
+                nations -> {
+                    Set<CacheTag> tags = CacheTag.forNations(nations);
+                    tags.add(new CacheTag(CacheEntity.COUNTRY, countryId));
+                    return tags;
+                });
+    }
 
-        if (cacheService.containsKey(ALL_COUNTRIES)) {
-            cacheService.remove(ALL_COUNTRIES);
-        }
+    public List<NationDto> getNations() {
+        return cacheService.computeIfAbsent(ALL_NATIONS,
+                () -> nationRepository.findAll().stream()
+                        .map(NationDto::from).toList(),
+                CacheTag::forNations);
     }
 
-    public Set<Nation> getNationsByCountryId(final Long countryId) {
-        if (cacheService.containsKey(ALL_NATIONS_BY_COUNTRY_ID + countryId)) {
-            return (Set<Nation>) cacheService
-                    .get(ALL_NATIONS_BY_COUNTRY_ID + countryId);
-        } else {
-            Country country = countryRepository
-                    .findCountryWithNationsById(countryId)
-                    .orElseThrow(() -> new ObjectNotFoundException(
-                            "country, which id " + countryId
-                                    + " doesn't exist, that's why "
-                                    + "you can't view nations from its"));
-            Set<Nation> nations = country.getNations();
-            cacheService.put(ALL_NATIONS_BY_COUNTRY_ID + countryId, nations);
-            return nations;
-        }
+    public List<NationDto> getNations(final Long after, final int limit) {
+        return nationRepository.findByIdGreaterThanOrderByIdAsc(after,
+                        Limit.of(limit)).stream()
+                .map(NationDto::from).toList();
     }
 
-    public List<Nation> getNations() {
-        if (cacheService.containsKey(ALL_NATIONS)) {
-            return (List<Nation>) cacheService.get(ALL_NATIONS);
-        } else {
-            List<Nation> nations = nationRepository.findAll();
-            cacheService.put(ALL_NATIONS, nations);
-            return nations;
-        }
+    public EncodedBody encodeNations(final List<NationDto> nations) {
+        return responseBodyCache.encode(ALL_NATIONS, nations);
     }
 
-    public Set<Country> getCountriesByNationId(final Long nationId) {
+    public ETag getNationsETag() {
+        return cacheService.eTag(ALL_NATIONS);
+    }
 
-        if (cacheService.containsKey(ALL_COUNTRIES_BY_NATION_ID + nationId)) {
-            return (Set<Country>) cacheService
-                    .get(ALL_COUNTRIES_BY_NATION_ID + nationId);
-        } else {
-            Nation nation = nationRepository
-                    .findByIdWithCountriesWithCities(nationId)
-                    .orElseThrow(() -> new ObjectNotFoundException(
-                            "nation, which id " + nationId
-                                    + " does not exist, that's why "
-                                    + "you can't view countries from its"));
-            Set<Country> countries = new HashSet<>(nation.getCountries());
-            cacheService.put(ALL_COUNTRIES_BY_NATION_ID + nationId, countries);
-            return countries;
-        }
+    public Set<CountryDto> getCountriesByNationId(final Long nationId) {
+
+        return cacheService.computeIfAbsent(
+                ALL_COUNTRIES_BY_NATION_ID, nationId,
+                () -> CountryDto.snapshot(nationRepository
+                        .findByIdWithCountriesWithCities(nationId)
+                        .orElseThrow(() -> new ObjectNotFoundException(
+                                "nation, which id " + nationId
+                                        + " does not exist, that's why "
+                                        + "you can't view countries from its"))
+                        .getCountries(), CountryDto::from),
+                countries -> {
+                    Set<CacheTag> tags = CacheTag.forCountries(countries);
+                    tags.add(new CacheTag(CacheEntity.NATION, nationId));
+                    return tags;
+                });
     }
 
+    @Transactional
     public Nation addNewNationByCountryId(final Long countryId,
                                           final Nation nationRequest) {
 
@@ -139,17 +141,65 @@ public class NationService {
                             + country.getName() + ".");
         }
 
-        cleanCache(nation.getId(), nation);
+        cleanCache(nation.getId());
+        cacheService.invalidate(CacheEntity.COUNTRY, countryId);
+        cacheService.remove(ALL_NATIONS);
+        searchIndex.indexNation(nation);
+        membershipIndex.addMembers(countryId, List.of(nation));
 
         return nation;
     }
 
+    @Transactional
     public List<Nation> addNewNationsByCountryId(final Long countryId,
                                           final List<Nation> nationsRequest) {
+        Country country = countryRepository
+                .findCountryWithNationsById(countryId)
+                .orElseThrow(() -> new ObjectNotFoundException(
+                        "country, which id " + countryId
+                                + " doesn't exist, that is why "
+                                + "you can't add nations to its"));
+
+        Set<String> names = new HashSet<>();
+        country.getNations().forEach(nation -> names.add(nation.getName()));
+        for (Nation nation : nationsRequest) {
+            if (!names.add(nation.getName())) {
+                throw new ObjectExistedException(
+                        "nation with name " + nation.getName()
+                                + " already exists in the country "
+                                + country.getName() + ".");
+            }
+        }
+
+        Map<String, Nation> existingNations = new HashMap<>();
+        nationRepository.findByNameIn(nationsRequest.stream()
+                        .map(Nation::getName).toList())
+                .forEach(nation -> existingNations
+                        .put(nation.getName(), nation));
+
         List<Nation> addedNations = new ArrayList<>();
+        List<Nation> createdNations = new ArrayList<>();
+        for (Nation nationRequest : nationsRequest) {
+            Nation nation = existingNations.get(nationRequest.getName());
+            if (nation == null) {
+                nation = nationRequest;
+                createdNations.add(nation);
+            }
+            addedNations.add(nation);
+        }
+        nationRepository.saveAll(createdNations);
+        country.getNations().addAll(addedNations);
+        countryRepository.saveAndFlush(country);
 
-        nationsRequest.forEach(nation -> addedNations
-                .add(addNewNationByCountryId(countryId, nation)));
+        // Only nations that existed before can have cached dependents
+        for (Nation nation : existingNations.values()) {
+            cacheService.invalidate(CacheEntity.NATION, nation.getId());
+        }
+        cacheService.invalidate(CacheEntity.COUNTRY, countryId);
+        cacheService.remove(ALL_NATIONS);
+        cacheService.bumpVersion(ALL_NATIONS, ALL_COUNTRIES);
+        searchIndex.indexNations(createdNations);
+        membershipIndex.addMembers(countryId, addedNations);
 
         return addedNations;
     }
@@ -165,7 +215,7 @@ public class NationService {
                                 + " does not exist, that is why "
                                 + "you can't update this"));
 
-        cleanCache(nationId, nation);
+        cleanCache(nationId);
 
         if (name != null && !name.isEmpty()
                 && !Objects.equals(nation.getName(), name)) {
@@ -187,6 +237,8 @@ public class NationService {
                 && !Objects.equals(nation.getReligion(), religion)) {
             nation.setReligion(religion);
         }
+        searchIndex.indexNation(nation);
+        membershipIndex.indexNation(nation);
 
         return nation;
     }
@@ -200,7 +252,7 @@ public class NationService {
                                 + " doesn't exist, that is why "
                                 + "you can't delete its"));
 
-        cleanCache(nationId, nation);
+        cleanCache(nationId);
 
         List<Country> countries = countryRepository
                 .findCountriesWithNationsByNationByNationId(nationId);
@@ -211,6 +263,8 @@ public class NationService {
         }
 
         nationRepository.delete(nation);
+        searchIndex.removeNation(nationId);
+        membershipIndex.removeNation(nationId);
     }
 
     @Transactional
@@ -230,9 +284,10 @@ public class NationService {
                                 + " does not exist, that's why "
                                 + "you can't delete its"));
 
-        cleanCache(nationId, nation);
+        cleanCache(nationId);
 
         country.getNations().remove(nation);
         countryRepository.save(country);
+        membershipIndex.removeMember(countryId, nationId);
     }
 }
@@ -0,0 +1,88 @@
+package com.mishail.country_search.service;
+
+import com.mishail.country_search.dto.CityDto;
+import com.mishail.country_search.dto.CountryDto;
+import com.mishail.country_search.exception.BadRequestException;
+import com.mishail.country_search.repository.CityRepository;
+import com.mishail.country_search.repository.CountryRepository;
+import com.mishail.country_search.search.ColumnIndex;
+import com.mishail.country_search.search.NumericColumn;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@AllArgsConstructor
+@Service
+public class QueryService {
+
+    private final ColumnIndex columnIndex;
+
+    private final CountryRepository countryRepository;
+
+    private final CityRepository cityRepository;
+
+    public List<CountryDto> getCountriesInRange(final String field,
+                                                final Double min,
+                                                final Double max,
+                                                final int limit) {
+        return countries(range(NumericColumn.country(field), min, max,
+                limit));
+    }
+
+    public List<CountryDto> getTopCountries(final String field,
+                                            final int k,
+                                            final boolean largest) {
+        return countries(columnIndex.top(NumericColumn.country(field), k,
+                largest));
+    }
+
+    public List<CityDto> getCitiesInRange(final String field,
+                                          final Double min,
+                                          final Double max,
+                                          final int limit) {
+        return cities(range(NumericColumn.city(field), min, max, limit));
+    }
+
+    public List<CityDto> getTopCities(final String field, final int k,
+                                      final boolean largest) {
+        return cities(columnIndex.top(NumericColumn.city(field), k,
+                largest));
+    }
+
+    private long[] range(final NumericColumn column, final Double min,
+                         final Double max, final int limit) {
+        double from = min == null ? Double.NEGATIVE_INFINITY : min;
+        double to = max == null ? Double.POSITIVE_INFINITY : max;
+        if (from > to) {
+            throw new BadRequestException("min should not be greater "
+                    + "than max");
+        }
+        return columnIndex.range(column, from, to, limit);
+    }
+
+    private List<CountryDto> countries(final long[] ids) {
+        List<Long> order = Arrays.stream(ids).boxed().toList();
+        return inOrder(order, countryRepository
+                .findAllWithCitiesAndNationsByIdIn(order).stream()
+                .map(CountryDto::from).toList(), CountryDto::id);
+    }
+
+    private List<CityDto> cities(final long[] ids) {
+        List<Long> order = Arrays.stream(ids).boxed().toList();
+        return inOrder(order, cityRepository.findAllById(order).stream()
+                .map(CityDto::from).toList(), CityDto::id);
+    }
+
+    // Rows come back in id order, the index order is restored here
+    private static <T> List<T> inOrder(final List<Long> order,
+                                       final List<T> rows,
+                                       final Function<T, Long> id) {
+        Map<Long, T> byId = rows.stream()
+                .collect(Collectors.toMap(id, Function.identity()));
+        return order.stream().map(byId::get).filter(Objects::nonNull)
+                .toList();
+    }
+}
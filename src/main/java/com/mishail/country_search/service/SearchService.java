@@ -0,0 +1,50 @@
+package com.mishail.country_search.service;
+
+import com.mishail.country_search.exception.BadRequestException;
+import com.mishail.country_search.repository.FuzzySearchRepository;
+import com.mishail.country_search.search.FuzzyHit;
+import com.mishail.country_search.search.SearchHit;
+import com.mishail.country_search.search.SearchIndex;
+import com.mishail.country_search.search.SearchProperties;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Service
+public class SearchService {
+
+    public static final int MAX_LIMIT = 100;
+
+    private final SearchIndex searchIndex;
+
+    private final FuzzySearchRepository fuzzySearchRepository;
+
+    private final SearchProperties properties;
+
+    private static void checkArguments(final String text, final int limit) {
+        if (text == null || text.isBlank()) {
+            throw new BadRequestException("search text must not be empty");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("limit must be between 1 and "
+                    + MAX_LIMIT);
+        }
+    }
+
+    public List<SearchHit> searchByPrefix(final String prefix,
+                                          final int limit) {
+        checkArguments(prefix, limit);
+        return searchIndex.search(prefix, limit);
+    }
+
+    public List<FuzzyHit> searchFuzzy(final String query, final int limit) {
+        checkArguments(query, limit);
+        if (properties.isPostgresFuzzy()) {
+            return fuzzySearchRepository.search(query, limit,
+                    properties.getSimilarityThreshold());
+        }
+        return searchIndex.searchFuzzy(query, limit);
+    }
+}
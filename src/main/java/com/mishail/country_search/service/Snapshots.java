@@ -0,0 +1,24 @@
+package com.mishail.country_search.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class Snapshots {
+
+    private Snapshots() {
+    }
+
+    // Replaces the snapshots with the same ids and appends the rest, so a
+    // patch applied to a list that already has the rows changes nothing.
+    static <T> List<T> upsert(final List<T> cached, final List<T> changed,
+                              final Function<T, Long> id) {
+        Set<Long> ids = changed.stream().map(id)
+                .collect(Collectors.toSet());
+        return Stream.concat(cached.stream()
+                        .filter(item -> !ids.contains(id.apply(item))),
+                changed.stream()).toList();
+    }
+}
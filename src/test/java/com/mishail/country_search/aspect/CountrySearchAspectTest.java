@@ -0,0 +1,88 @@
+package com.mishail.country_search.aspect;
+
+import com.mishail.country_search.metrics.EndpointStats;
+import com.mishail.country_search.metrics.RequestMetrics;
+import com.mishail.country_search.metrics.SqlMonitor;
+import com.mishail.country_search.metrics.SqlProperties;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CountrySearchAspectTest {
+
+    @Mock
+    private ProceedingJoinPoint jp;
+
+    @Mock
+    private MethodSignature signature;
+
+    private final RequestMetrics requestMetrics = new RequestMetrics();
+
+    private final SqlProperties sqlProperties = new SqlProperties();
+
+    private final SqlMonitor sqlMonitor =
+            new SqlMonitor(requestMetrics, sqlProperties);
+
+    private CountrySearchAspect aspect;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        RequestLoggingProperties properties = new RequestLoggingProperties();
+        properties.setMode(RequestLogMode.OFF);
+        aspect = new CountrySearchAspect(requestMetrics, properties,
+                sqlMonitor);
+        when(jp.getSignature()).thenReturn(signature);
+        when(signature.getMethod())
+                .thenReturn(Object.class.getMethod("toString"));
+    }
+
+    @Test
+    void streamedBodyIsRecordedOnceWritten() throws Throwable {
+        sqlProperties.setStatementBudget(1);
+        sqlProperties.setFailOverBudget(true);
+        StreamingResponseBody body = output -> {
+            for (int i = 0; i < 3; i++) {
+                sqlMonitor.inspect("select * from country");
+                output.write('x');
+            }
+        };
+        when(jp.proceed()).thenReturn(new ResponseEntity<>(body,
+                HttpStatus.OK));
+
+        ResponseEntity<?> response =
+                (ResponseEntity<?>) aspect.aroundCallMethod(jp);
+
+        assertEquals(0, requestMetrics.totalRequests());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(output);
+
+        EndpointStats stats = requestMetrics.stats().get("Object.toString");
+        assertEquals("xxx", output.toString());
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, stats.getSuccesses());
+        assertEquals(3, stats.getStatements());
+        assertEquals(0, stats.getOverBudget());
+    }
+
+    @Test
+    void plainResultIsRecordedRightAway() throws Throwable {
+        when(jp.proceed()).thenReturn("Belarus");
+
+        assertEquals("Belarus", aspect.aroundCallMethod(jp));
+        assertEquals(1, requestMetrics.stats().get("Object.toString")
+                .getSuccesses());
+    }
+}
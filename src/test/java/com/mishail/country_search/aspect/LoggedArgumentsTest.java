@@ -0,0 +1,51 @@
+package com.mishail.country_search.aspect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoggedArgumentsTest {
+
+    @Test
+    void rendersShortArgumentsInFull() {
+        Object[] args = {7L, null, "Belarus", List.of(1, 2)};
+
+        assertEquals("7,Belarus,[1,2]",
+                new LoggedArguments(args, 256).toString());
+    }
+
+    @Test
+    void cutsLongArguments() {
+        Object[] args = {"Belarus", "a".repeat(100)};
+
+        assertEquals("Belarus," + "a".repeat(12) + "...",
+                new LoggedArguments(args, 20).toString());
+    }
+
+    @Test
+    void stopsRenderingCollectionAtLimit() {
+        int[] rendered = new int[1];
+        List<Object> items = new AbstractList<>() {
+            @Override
+            public Object get(final int index) {
+                rendered[0]++;
+                return "country" + index;
+            }
+
+            @Override
+            public int size() {
+                return 1_000_000;
+            }
+        };
+
+        String text = new LoggedArguments(new Object[] {items}, 30)
+                .toString();
+
+        assertEquals("[country0,country1,country2,co... of 1000000 items]",
+                text);
+        assertEquals(4, rendered[0]);
+    }
+}
@@ -0,0 +1,152 @@
+package com.mishail.country_search.benchmark;
+
+import com.mishail.country_search.model.AttributeDictionary;
+import com.mishail.country_search.model.City;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.model.Nation;
+import com.mishail.country_search.repository.CountryRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@DataJpaTest(properties = {
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "spring.jpa.properties.hibernate.highlight_sql=false"})
+@Import(AttributeDictionary.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CountryGraphBenchmark {
+
+    private static final int COUNTRIES = 200;
+    private static final int CITIES_PER_COUNTRY = 50;
+    private static final int NATIONS_PER_COUNTRY = 10;
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 20;
+
+    private static final String SINGLE_STATEMENT = "SELECT DISTINCT c "
+            + "FROM Country c LEFT JOIN FETCH c.nations "
+            + "LEFT JOIN FETCH c.cities";
+
+    private static final String SINGLE_STATEMENT_ROWS = "SELECT count(*) "
+            + "FROM country c "
+            + "LEFT JOIN city ct ON ct.country_id = c.id "
+            + "LEFT JOIN country_nations cn ON cn.country_id = c.id";
+
+    private static final String BATCHED_ROWS = "SELECT "
+            + "(SELECT count(*) FROM country) "
+            + "+ (SELECT count(*) FROM country c "
+            + "LEFT JOIN city ct ON ct.country_id = c.id) "
+            + "+ (SELECT count(*) FROM country c "
+            + "LEFT JOIN country_nations cn ON cn.country_id = c.id)";
+
+    private final Logger logger =
+            LoggerFactory.getLogger(CountryGraphBenchmark.class);
+
+    @Autowired
+    private CountryRepository countryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void batchedLoadingReadsFewerRows() {
+        TransactionTemplate transaction =
+                new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> seed());
+
+        long singleRows = count(transaction, SINGLE_STATEMENT_ROWS);
+        long batchedRows = count(transaction, BATCHED_ROWS);
+        double singleMillis = medianMillis(() -> transaction.execute(
+                status -> entityManager
+                        .createQuery(SINGLE_STATEMENT, Country.class)
+                        .getResultList()));
+        double batchedMillis = medianMillis(
+                countryRepository::findAllWithCitiesAndNations);
+
+        logger.info("single statement: {} rows, {} ms; "
+                        + "batched: {} rows, {} ms",
+                singleRows, singleMillis, batchedRows, batchedMillis);
+        assertEquals((long) COUNTRIES * CITIES_PER_COUNTRY
+                * NATIONS_PER_COUNTRY, singleRows);
+        assertTrue(batchedRows * 5 < singleRows);
+        List<Country> countries =
+                countryRepository.findAllWithCitiesAndNations();
+        assertEquals(COUNTRIES, countries.size());
+        assertTrue(countries.stream().allMatch(country ->
+                Hibernate.isInitialized(country.getCities())
+                        && Hibernate.isInitialized(country.getNations())));
+
+        transaction.executeWithoutResult(status -> {
+            countryRepository.deleteAll();
+            entityManager.createQuery("DELETE FROM Nation").executeUpdate();
+        });
+    }
+
+    private void seed() {
+        List<Nation> nations = new ArrayList<>();
+        for (int i = 0; i < NATIONS_PER_COUNTRY * 2; i++) {
+            Nation nation = new Nation();
+            nation.setName("nation " + i);
+            entityManager.persist(nation);
+            nations.add(nation);
+        }
+        for (int i = 0; i < COUNTRIES; i++) {
+            Country country = new Country();
+            country.setName("country " + i);
+            country.setCities(new HashSet<>());
+            int first = i % NATIONS_PER_COUNTRY;
+            country.setNations(new HashSet<>(nations.subList(first,
+                    first + NATIONS_PER_COUNTRY)));
+            for (int j = 0; j < CITIES_PER_COUNTRY; j++) {
+                City city = new City();
+                city.setName("city " + i + "-" + j);
+                country.getCities().add(city);
+            }
+            entityManager.persist(country);
+        }
+    }
+
+    private long count(final TransactionTemplate transaction,
+                       final String sql) {
+        return transaction.execute(status -> ((Number) entityManager
+                .createNativeQuery(sql).getSingleResult()).longValue());
+    }
+
+    private static double medianMillis(final Supplier<?> load) {
+        for (int i = 0; i < WARMUP; i++) {
+            load.get();
+        }
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            load.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[ITERATIONS / 2] / 1_000_000.0;
+    }
+}
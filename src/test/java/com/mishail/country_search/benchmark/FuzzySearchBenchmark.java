@@ -0,0 +1,84 @@
+package com.mishail.country_search.benchmark;
+
+import com.mishail.country_search.model.City;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.model.Nation;
+import com.mishail.country_search.repository.CityRepository;
+import com.mishail.country_search.repository.CountryRepository;
+import com.mishail.country_search.repository.NationRepository;
+import com.mishail.country_search.search.SearchIndex;
+import com.mishail.country_search.search.SearchProperties;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+class FuzzySearchBenchmark {
+
+    private static final int CITIES = 100_000;
+    private static final int QUERIES = 20_000;
+
+    private final Logger logger =
+            LoggerFactory.getLogger(FuzzySearchBenchmark.class);
+
+    @Test
+    void fuzzySearchSustainsThousandsOfQueriesPerSecond() {
+        Random random = new Random(42);
+        List<City> cities = new ArrayList<>();
+        for (int i = 0; i < CITIES; i++) {
+            City city = new City();
+            city.setId((long) i);
+            city.setName(word(random) + " " + word(random));
+            cities.add(city);
+        }
+        CountryRepository countryRepository = mock(CountryRepository.class);
+        CityRepository cityRepository = mock(CityRepository.class);
+        NationRepository nationRepository = mock(NationRepository.class);
+        when(countryRepository.findAll()).thenReturn(List.<Country>of());
+        when(cityRepository.findAll()).thenReturn(cities);
+        when(nationRepository.findAll()).thenReturn(List.<Nation>of());
+        SearchIndex index = new SearchIndex(countryRepository,
+                cityRepository, nationRepository, new SearchProperties());
+        index.rebuild();
+
+        for (int i = 0; i < QUERIES / 10; i++) {
+            index.searchFuzzy(typo(cities, random), 10);
+        }
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            found += index.searchFuzzy(typo(cities, random), 10).size();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        logger.info("{} fuzzy queries over {} names: {} per second",
+                QUERIES, CITIES, Math.round(QUERIES / seconds));
+        assertTrue(found > QUERIES);
+        assertTrue(QUERIES / seconds > 1000);
+    }
+
+    private static String word(final Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 4 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    private static String typo(final List<City> cities,
+                               final Random random) {
+        String name = cities.get(random.nextInt(cities.size())).getName();
+        int position = random.nextInt(name.length());
+        return name.substring(0, position) + name.substring(position + 1);
+    }
+}
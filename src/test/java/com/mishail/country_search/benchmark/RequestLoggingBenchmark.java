@@ -0,0 +1,149 @@
+package com.mishail.country_search.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import com.mishail.country_search.aspect.CountrySearchAspect;
+import com.mishail.country_search.aspect.RequestLogMode;
+import com.mishail.country_search.aspect.RequestLoggingProperties;
+import com.mishail.country_search.controller.CountryController;
+import com.mishail.country_search.metrics.RequestMetrics;
+import com.mishail.country_search.metrics.SqlMonitor;
+import com.mishail.country_search.metrics.SqlProperties;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.service.CountryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+class RequestLoggingBenchmark {
+
+    private static final int COUNTRIES = 200;
+    private static final int CALLS = 20_000;
+
+    private final Logger logger =
+            LoggerFactory.getLogger(RequestLoggingBenchmark.class);
+
+    private final ch.qos.logback.classic.Logger aspectLogger =
+            (ch.qos.logback.classic.Logger) LoggerFactory
+                    .getLogger(CountrySearchAspect.class);
+
+    // Formats every message like a real appender, then drops it
+    private final AppenderBase<ILoggingEvent> formatting =
+            new AppenderBase<>() {
+                @Override
+                protected void append(final ILoggingEvent event) {
+                    event.getFormattedMessage();
+                }
+            };
+
+    private final List<Country> countries = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < COUNTRIES; i++) {
+            Country country = new Country();
+            country.setId((long) i);
+            country.setName("Country " + i);
+            country.setCapital("Capital " + i);
+            country.setPopulation(1e6 + i);
+            countries.add(country);
+        }
+        formatting.start();
+        aspectLogger.setLevel(Level.INFO);
+        aspectLogger.setAdditive(false);
+        aspectLogger.addAppender(formatting);
+    }
+
+    @AfterEach
+    void tearDown() {
+        aspectLogger.detachAppender(formatting);
+        aspectLogger.setAdditive(true);
+        aspectLogger.setLevel(null);
+    }
+
+    @Test
+    void sampledLoggingAllocatesFarLessPerRequest() {
+        CountryController controller = proxy(RequestLogMode.OFF);
+        long off = bytesPerCall(() -> controller.addNewCountries(countries));
+        long eager = bytesPerCall(() -> {
+            controller.addNewCountries(countries);
+            logEagerly(controller);
+        });
+        CountryController full = proxy(RequestLogMode.FULL);
+        long lazy = bytesPerCall(() -> full.addNewCountries(countries));
+        CountryController sampled = proxy(RequestLogMode.SAMPLED);
+        long rare = bytesPerCall(() -> sampled.addNewCountries(countries));
+
+        logger.info("Bytes per request with {} countries in the body: "
+                        + "no logging {}, eager rendering {}, truncated {}, "
+                        + "sampled 1/100 {}", COUNTRIES, off, eager, lazy,
+                rare);
+        assertTrue(lazy * 10 < eager);
+        assertTrue(rare < lazy);
+    }
+
+    // What the aspect did before: render every argument, then log
+    // four lines per call
+    private void logEagerly(final Object call) {
+        Object[] args = {countries};
+        String rendered = Arrays.stream(args)
+                .filter(Objects::nonNull)
+                .map(Object::toString)
+                .collect(Collectors.joining(","));
+        aspectLogger.info("Before {}, args={}", call.getClass(), rendered);
+        aspectLogger.info("After {}", call.getClass());
+        aspectLogger.info("Count of your accessing the service: {}", 1);
+        aspectLogger.info("After returning {}", call.getClass());
+    }
+
+    private CountryController proxy(final RequestLogMode mode) {
+        CountryService countryService = new CountryService(null, null, null,
+                null, null, null) {
+            @Override
+            public List<Country> addNewCountries(
+                    final List<Country> added) {
+                return added;
+            }
+        };
+        RequestLoggingProperties properties = new RequestLoggingProperties();
+        properties.setMode(mode);
+        AspectJProxyFactory factory = new AspectJProxyFactory(
+                new CountryController(countryService, null));
+        factory.setProxyTargetClass(true);
+        RequestMetrics requestMetrics = new RequestMetrics();
+        factory.addAspect(new CountrySearchAspect(requestMetrics, properties,
+                new SqlMonitor(requestMetrics, new SqlProperties())));
+        return factory.getProxy();
+    }
+
+    private static long bytesPerCall(final Runnable call) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory
+                        .getThreadMXBean();
+        for (int i = 0; i < CALLS / 10; i++) {
+            call.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < CALLS; i++) {
+            call.run();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / CALLS;
+    }
+}
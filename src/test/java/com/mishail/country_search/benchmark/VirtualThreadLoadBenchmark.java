@@ -0,0 +1,193 @@
+package com.mishail.country_search.benchmark;
+
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.repository.CountryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Run with: mvn test -Pbenchmark
+// A running server on H2 under 1000 concurrent HTTP clients, once with
+// Tomcat's platform thread pool and once with a virtual thread per
+// request. Spring Boot ignores the virtual thread switch before Java 21,
+// so the nested run is disabled there.
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:${random.uuid}",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.jpa.show-sql=false",
+                "spring.jpa.properties.hibernate.format_sql=false",
+                "request-logging.mode=off"})
+@TestPropertySource(properties = "spring.threads.virtual.enabled=false")
+class VirtualThreadLoadBenchmark {
+
+    private static final int COUNTRIES = 1_000;
+    private static final int CLIENTS = 1_000;
+    private static final int REQUESTS_PER_CLIENT = 10;
+    private static final int PAGE = 20;
+    private static final int WARMUP = 2_000;
+
+    private final Logger logger =
+            LoggerFactory.getLogger(VirtualThreadLoadBenchmark.class);
+
+    private List<Long> ids;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CountryRepository countryRepository;
+
+    @BeforeEach
+    void setUp() {
+        seed(countryRepository);
+    }
+
+    @Test
+    void platformThreads() throws Exception {
+        load(port, "platform threads");
+    }
+
+    @Nested
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    @TestPropertySource(properties = "spring.threads.virtual.enabled=true")
+    class VirtualThreads {
+
+        @LocalServerPort
+        private int virtualPort;
+
+        @Autowired
+        private CountryRepository virtualCountryRepository;
+
+        @BeforeEach
+        void setUp() {
+            seed(virtualCountryRepository);
+        }
+
+        @Test
+        void virtualThreads() throws Exception {
+            load(virtualPort, "virtual threads");
+        }
+    }
+
+    private void seed(final CountryRepository repository) {
+        List<Country> countries = new ArrayList<>();
+        for (int i = 0; i < COUNTRIES; i++) {
+            Country country = new Country();
+            country.setName("Country " + i);
+            country.setCapital("Capital " + i);
+            country.setPopulation(1_000.0 * (i + 1));
+            countries.add(country);
+        }
+        if (repository.count() == 0) {
+            repository.saveAll(countries);
+        }
+        ids = repository.findAll().stream().map(Country::getId).toList();
+    }
+
+    // Every client alternates a keyset page, two queries on a pooled
+    // connection, with a cached lookup of one country.
+    private void load(final int port, final String mode)
+            throws Exception {
+        String base = "http://localhost:" + port + "/api/country";
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        for (int i = 0; i < WARMUP; i++) {
+            assertEquals(2, get(client, request(base, i)) / 100);
+        }
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(CLIENTS);
+        AtomicInteger ok = new AtomicInteger();
+        long[] latencies = new long[CLIENTS * REQUESTS_PER_CLIENT];
+        try {
+            for (int c = 0; c < CLIENTS; c++) {
+                int offset = c * REQUESTS_PER_CLIENT;
+                clients.execute(() -> {
+                    try {
+                        start.await();
+                        for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                            long begin = System.nanoTime();
+                            int status = get(client, request(base, r));
+                            latencies[offset + r] =
+                                    System.nanoTime() - begin;
+                            if (status / 100 == 2) {
+                                ok.incrementAndGet();
+                            }
+                        }
+                    } catch (Exception e) {
+                        logger.warn("client failed", e);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            assertTrue(done.await(10, TimeUnit.MINUTES));
+            double seconds = (System.nanoTime() - begin) / 1e9;
+
+            Arrays.sort(latencies);
+            logger.info("{}: {} clients, {} requests per second, "
+                            + "p50 {} ms, p99 {} ms, max {} ms", mode,
+                    CLIENTS, Math.round(latencies.length / seconds),
+                    millis(latencies, 0.50), millis(latencies, 0.99),
+                    millis(latencies, 1.0));
+            assertEquals(latencies.length, ok.get());
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private String request(final String base, final int n) {
+        long id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        return n % 2 == 0
+                ? base + "?limit=" + PAGE + "&after=" + id
+                : base + "/" + id;
+    }
+
+    private static int get(final HttpClient client, final String uri)
+            throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri))
+                .timeout(Duration.ofMinutes(2)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    private static long millis(final long[] sorted, final double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(index, 0)]);
+    }
+}
@@ -0,0 +1,505 @@
+package com.mishail.country_search.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheServiceTest {
+
+    private CacheService cacheService(final EvictionType eviction,
+                                      final long maximumSize,
+                                      final long maximumWeight) {
+        CacheProperties properties = new CacheProperties();
+        properties.setEviction(eviction);
+        properties.setMaximumSize(maximumSize);
+        properties.setMaximumWeight(maximumWeight);
+        return new CacheService(properties);
+    }
+
+    @Test
+    void putAndGet() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 10, 0);
+
+        cacheService.put("countryId_1", "Belarus");
+
+        assertTrue(cacheService.containsKey("countryId_1"));
+        assertEquals("Belarus", cacheService.get("countryId_1"));
+
+        cacheService.remove("countryId_1");
+
+        assertFalse(cacheService.containsKey("countryId_1"));
+        assertNull(cacheService.get("countryId_1"));
+    }
+
+    @Test
+    void lruEvictsLeastRecentlyUsed() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 2, 0);
+
+        cacheService.put("countryId_1", 1);
+        cacheService.put("countryId_2", 2);
+        cacheService.get("countryId_1");
+        cacheService.put("countryId_3", 3);
+
+        assertTrue(cacheService.containsKey("countryId_1"));
+        assertFalse(cacheService.containsKey("countryId_2"));
+        assertTrue(cacheService.containsKey("countryId_3"));
+    }
+
+    @Test
+    void tinyLfuKeepsFrequentKeyDuringScan() {
+        CacheService cacheService =
+                cacheService(EvictionType.W_TINY_LFU, 100, 0);
+
+        cacheService.put("allCountries", List.of());
+        for (int i = 0; i < 10; i++) {
+            cacheService.get("allCountries");
+        }
+        for (int i = 0; i < 1_000; i++) {
+            cacheService.put("countryId_" + i, i);
+        }
+
+        assertTrue(cacheService.containsKey("allCountries"));
+        assertTrue(cacheService.size() <= 100);
+    }
+
+    @Test
+    void maximumWeightCountsCollectionElements() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 0, 10);
+
+        cacheService.put("allCities", List.of(1, 2, 3, 4, 5));
+        cacheService.put("allNations", List.of(1, 2, 3, 4, 5));
+
+        assertFalse(cacheService.containsKey("allCities"));
+        assertTrue(cacheService.containsKey("allNations"));
+    }
+
+    @Test
+    void concurrentWritesStayBounded() throws InterruptedException {
+        CacheService cacheService =
+                cacheService(EvictionType.W_TINY_LFU, 50, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        for (int thread = 0; thread < 8; thread++) {
+            int offset = thread * 1_000;
+            executor.execute(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    cacheService.put("countryId_" + (offset + i), i);
+                    cacheService.get("countryId_" + (offset + i / 2));
+                }
+            });
+        }
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertTrue(cacheService.size() <= 50);
+    }
+
+    @Test
+    void computeIfAbsentLoadsOnceForConcurrentMisses()
+            throws InterruptedException {
+        CacheService cacheService = cacheService(EvictionType.LRU, 10, 0);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Object> results = new CopyOnWriteArrayList<>();
+
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                results.add(cacheService.computeIfAbsent("allCountries",
+                        () -> {
+                            loads.incrementAndGet();
+                            sleep(200);
+                            return List.of("Belarus");
+                        }));
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        assertEquals(8, results.size());
+        results.forEach(result -> assertEquals(List.of("Belarus"), result));
+    }
+
+    @Test
+    void computeIfAbsentDoesNotCacheFailedLoad() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 10, 0);
+
+        assertThrows(IllegalStateException.class, () -> cacheService
+                .computeIfAbsent("countryId_1", () -> {
+                    throw new IllegalStateException("not found");
+                }));
+
+        assertFalse(cacheService.containsKey("countryId_1"));
+        assertEquals("Belarus", cacheService
+                .computeIfAbsent("countryId_1", () -> "Belarus"));
+    }
+
+    @Test
+    void removeDuringLoadDiscardsLoadedValue() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 10, 0);
+
+        Object result = cacheService.computeIfAbsent("allCountries", () -> {
+            cacheService.remove("allCountries");
+            return List.of("Belarus");
+        });
+
+        assertEquals(List.of("Belarus"), result);
+        assertFalse(cacheService.containsKey("allCountries"));
+    }
+
+    @Test
+    void expireAfterWriteDropsEntry() {
+        AtomicLong ticker = new AtomicLong();
+        CacheProperties.Region region = new CacheProperties.Region();
+        region.setExpireAfterWrite(Duration.ofMinutes(10));
+        CacheService cacheService = cacheService(ticker, "countryId_", region);
+
+        cacheService.put("countryId_1", "Belarus");
+        ticker.addAndGet(Duration.ofMinutes(9).toNanos());
+
+        assertEquals("Belarus", cacheService.get("countryId_1"));
+
+        ticker.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        assertFalse(cacheService.containsKey("countryId_1"));
+        assertNull(cacheService.get("countryId_1"));
+    }
+
+    @Test
+    void expireAfterAccessKeepsReadEntry() {
+        AtomicLong ticker = new AtomicLong();
+        CacheProperties.Region region = new CacheProperties.Region();
+        region.setExpireAfterAccess(Duration.ofMinutes(10));
+        CacheService cacheService = cacheService(ticker, "countryId_", region);
+
+        cacheService.put("countryId_1", "Belarus");
+        cacheService.put("countryId_2", "Poland");
+        ticker.addAndGet(Duration.ofMinutes(6).toNanos());
+        cacheService.get("countryId_1");
+        ticker.addAndGet(Duration.ofMinutes(6).toNanos());
+        cacheService.cleanUp();
+
+        assertTrue(cacheService.containsKey("countryId_1"));
+        assertFalse(cacheService.containsKey("countryId_2"));
+        assertEquals(1, cacheService.size());
+    }
+
+    @Test
+    void refreshAfterWriteServesOldValueWhileReloading()
+            throws InterruptedException {
+        AtomicLong ticker = new AtomicLong();
+        AtomicInteger version = new AtomicInteger();
+        CacheProperties.Region region = new CacheProperties.Region();
+        region.setRefreshAfterWrite(Duration.ofSeconds(30));
+        CacheService cacheService =
+                cacheService(ticker, "allCountries", region);
+
+        assertEquals(0, (int) cacheService.computeIfAbsent("allCountries",
+                version::getAndIncrement));
+        ticker.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertEquals(0, cacheService.get("allCountries"));
+
+        for (int i = 0; i < 100
+                && !Integer.valueOf(1).equals(cacheService
+                .get("allCountries")); i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, cacheService.get("allCountries"));
+        assertEquals(2, version.get());
+    }
+
+    @Test
+    void refreshRetriesAfterLoaderError() throws InterruptedException {
+        AtomicLong ticker = new AtomicLong();
+        AtomicInteger version = new AtomicInteger();
+        CacheProperties.Region region = new CacheProperties.Region();
+        region.setRefreshAfterWrite(Duration.ofSeconds(30));
+        CacheService cacheService =
+                cacheService(ticker, "allCountries", region);
+
+        cacheService.computeIfAbsent("allCountries", () -> {
+            if (version.getAndIncrement() == 1) {
+                throw new StackOverflowError();
+            }
+            return version.get();
+        });
+        ticker.addAndGet(Duration.ofSeconds(31).toNanos());
+        cacheService.get("allCountries");
+        for (int i = 0; i < 100 && version.get() < 2; i++) {
+            Thread.sleep(20);
+        }
+
+        for (int i = 0; i < 100
+                && !Integer.valueOf(3).equals(cacheService
+                .get("allCountries")); i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(3, cacheService.get("allCountries"));
+    }
+
+    // Virtual threads on Java 21, the maintenance threads before it
+    @Test
+    void refreshRunsWhenVirtualThreadsAreRequested()
+            throws InterruptedException {
+        AtomicLong ticker = new AtomicLong();
+        AtomicInteger version = new AtomicInteger();
+        CacheProperties.Region region = new CacheProperties.Region();
+        region.setRefreshAfterWrite(Duration.ofSeconds(30));
+        CacheProperties properties = new CacheProperties();
+        properties.setCleanupInterval(Duration.ZERO);
+        properties.setVirtualThreads(true);
+        properties.getRegions().put("allCountries", region);
+        CacheService cacheService = new CacheService(properties, ticker::get);
+
+        cacheService.computeIfAbsent("allCountries", version::getAndIncrement);
+        ticker.addAndGet(Duration.ofSeconds(31).toNanos());
+        cacheService.get("allCountries");
+
+        for (int i = 0; i < 100
+                && !Integer.valueOf(1).equals(cacheService
+                .get("allCountries")); i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, cacheService.get("allCountries"));
+        cacheService.shutdown();
+    }
+
+    @Test
+    void invalidateDropsEveryDependentEntry() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 10, 0);
+        CacheTag belarus = new CacheTag(CacheEntity.COUNTRY, 1L);
+        CacheTag poland = new CacheTag(CacheEntity.COUNTRY, 2L);
+        CacheTag russian = new CacheTag(CacheEntity.NATION, 5L);
+
+        cacheService.put("allCountries", List.of("Belarus", "Poland"),
+                Set.of(belarus, poland, russian));
+        cacheService.put("countryId_1", "Belarus", Set.of(belarus, russian));
+        cacheService.put("countryId_2", "Poland", Set.of(poland));
+        cacheService.computeIfAbsent("allCountriesByNationId_5",
+                () -> List.of("Belarus"), countries -> Set.of(russian));
+
+        cacheService.invalidate(CacheEntity.NATION, 5L);
+
+        assertFalse(cacheService.containsKey("allCountries"));
+        assertFalse(cacheService.containsKey("countryId_1"));
+        assertFalse(cacheService.containsKey("allCountriesByNationId_5"));
+        assertTrue(cacheService.containsKey("countryId_2"));
+
+        cacheService.invalidate(CacheEntity.COUNTRY, 2L);
+
+        assertEquals(0, cacheService.size());
+    }
+
+    @Test
+    void invalidateDuringLoadDiscardsLoadedValue() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 10, 0);
+
+        cacheService.computeIfAbsent("countryId_1", () -> {
+            cacheService.invalidate(CacheEntity.COUNTRY, 1L);
+            return "Belarus";
+        }, country -> Set.of(new CacheTag(CacheEntity.COUNTRY, 1L)));
+
+        assertFalse(cacheService.containsKey("countryId_1"));
+    }
+
+    @Test
+    void computeIfPresentReplacesValueWithoutMutatingIt() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 10, 0);
+        List<String> countries = List.of("Belarus");
+        CacheTag poland = new CacheTag(CacheEntity.COUNTRY, 2L);
+
+        cacheService.put("allCountries", countries);
+        cacheService.<List<String>>computeIfPresent("allCountries",
+                cached -> List.of(cached.get(0), "Poland"),
+                cached -> Set.of(poland));
+        cacheService.<List<String>>computeIfPresent("allCities",
+                cached -> List.of("Minsk"), cached -> Set.of());
+
+        assertEquals(List.of("Belarus"), countries);
+        assertEquals(List.of("Belarus", "Poland"),
+                cacheService.get("allCountries"));
+        assertFalse(cacheService.containsKey("allCities"));
+
+        cacheService.invalidate(CacheEntity.COUNTRY, 2L);
+
+        assertFalse(cacheService.containsKey("allCountries"));
+    }
+
+    @Test
+    void encodedBodyIsKeptUntilValueChanges() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 10, 0);
+        AtomicInteger encodings = new AtomicInteger();
+        Function<Object, EncodedBody> encoder = value -> {
+            encodings.incrementAndGet();
+            return EncodedBody.of(value.toString()
+                    .getBytes(StandardCharsets.UTF_8), 1024);
+        };
+        List<String> countries = List.of("Belarus");
+        cacheService.put("allCountries", countries);
+
+        EncodedBody body = cacheService.encoded("allCountries",
+                countries, encoder);
+
+        assertSame(body, cacheService.encoded("allCountries",
+                countries, encoder));
+        assertArrayEquals("[Belarus]".getBytes(StandardCharsets.UTF_8),
+                body.json());
+        assertNull(body.gzip());
+        assertEquals(1, encodings.get());
+
+        cacheService.<List<String>>computeIfPresent("allCountries",
+                cached -> List.of("Belarus", "Poland"), cached -> Set.of());
+        Object updated = cacheService.get("allCountries");
+
+        assertNotSame(body, cacheService.encoded("allCountries",
+                updated, encoder));
+        cacheService.encoded("allCountries", countries, encoder);
+        assertEquals(3, encodings.get());
+    }
+
+    @Test
+    void gzipIsChosenByAcceptEncodingWeights() {
+        assertTrue(EncodedBody.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(EncodedBody.acceptsGzip("br, *"));
+        assertTrue(EncodedBody.acceptsGzip("*;q=0, gzip"));
+        assertFalse(EncodedBody.acceptsGzip("gzip;q=0, br"));
+        assertFalse(EncodedBody.acceptsGzip("gzip; q=0.000"));
+        assertFalse(EncodedBody.acceptsGzip("x-gzipped, br"));
+        assertFalse(EncodedBody.acceptsGzip("*, gzip;q=0"));
+        assertFalse(EncodedBody.acceptsGzip("gzip;q=high"));
+        assertFalse(EncodedBody.acceptsGzip(null));
+    }
+
+    @Test
+    void bumpVersionChangesETagOfResource() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 10, 0);
+
+        ETag countries = cacheService.eTag("allCountries");
+        ETag cities = cacheService.eTag("allCities");
+
+        assertEquals(countries.value(),
+                countries.match(countries.value(), null));
+        assertEquals(countries.gzipValue(), countries.match(
+                "\"x\", W/" + countries.gzipValue(), "gzip, br"));
+        assertNull(countries.match(countries.gzipValue(), null));
+        assertEquals(countries.value(), countries.match("*", null));
+        assertNull(countries.match(null, "gzip"));
+        assertEquals(countries.gzipValue(), ETag.notModified(
+                countries.gzipValue()).getHeaders().getETag());
+
+        cacheService.bumpVersion("allCountries");
+
+        assertNull(cacheService.eTag("allCountries")
+                .match(countries.value(), null));
+        assertEquals(cities, cacheService.eTag("allCities"));
+    }
+
+    @Test
+    void statsAreKeptPerRegion() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 2, 0);
+
+        cacheService.computeIfAbsent("countryId_1", () -> "Belarus");
+        cacheService.computeIfAbsent("countryId_1", () -> "Belarus");
+        cacheService.get("countryId_2");
+        cacheService.put("countryId_2", "Poland");
+        cacheService.put("allCountries", List.of());
+
+        CacheStats countryStats = cacheService.stats().get("countryId_");
+        assertEquals(1, countryStats.getHits());
+        assertEquals(2, countryStats.getMisses());
+        assertEquals(1, countryStats.getLoadSuccesses());
+        assertEquals(1, countryStats.getEvictions());
+        assertEquals(1, countryStats.getSize());
+        assertEquals(1, cacheService.stats().get("allCountries").getSize());
+    }
+
+    @Test
+    void typedLookupSharesEntriesWithStringKeys() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 10, 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        cacheService.put("countryId_7", "Belarus");
+        Object loaded = cacheService.computeIfAbsent("countryId_", 7L,
+                () -> "country" + loads.incrementAndGet(), null);
+
+        assertEquals("Belarus", loaded);
+        assertEquals(0, loads.get());
+        assertEquals("Belarus", cacheService.get("countryId_", 7));
+
+        cacheService.computeIfAbsent("countryId_", 8L, () -> "Poland",
+                country -> Set.of(new CacheTag(CacheEntity.COUNTRY, 8L)));
+        assertEquals("Poland", cacheService.get("countryId_8"));
+
+        cacheService.invalidate(CacheEntity.COUNTRY, 8L);
+        assertNull(cacheService.get("countryId_", 8));
+        assertFalse(cacheService.containsKey("countryId_8"));
+    }
+
+    @Test
+    void nonCanonicalIdKeysStayApart() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 10, 0);
+
+        cacheService.put("countryId_7", "Belarus");
+        cacheService.put("countryId_07", "Poland");
+
+        assertEquals("Belarus", cacheService.get("countryId_", 7));
+        assertEquals("Poland", cacheService.get("countryId_07"));
+        assertEquals(2, cacheService.size());
+    }
+
+    @Test
+    void negativeIdKeepsItsSign() {
+        CacheService cacheService = cacheService(EvictionType.LRU, 10, 0);
+
+        cacheService.put("countryId_-5", "Belarus");
+        cacheService.put("countryId_-05", "Poland");
+        cacheService.put("countryId_-0", "Latvia");
+
+        assertEquals("Belarus", cacheService.get("countryId_", -5));
+        assertNull(cacheService.get("countryId_", 5));
+        assertEquals("Poland", cacheService.get("countryId_-05"));
+        assertEquals("Latvia", cacheService.get("countryId_-0"));
+        assertEquals("countryId_", CacheService.regionOf("countryId_-5"));
+        assertEquals("count-", CacheService.regionOf("count-"));
+        assertEquals(-1, EntryStore.idStart("-5"));
+        assertEquals(10, EntryStore.idStart("countryId_-5"));
+    }
+
+    private CacheService cacheService(final AtomicLong ticker,
+                                      final String regionName,
+                                      final CacheProperties.Region region) {
+        CacheProperties properties = new CacheProperties();
+        properties.setCleanupInterval(Duration.ZERO);
+        properties.getRegions().put(regionName, region);
+        return new CacheService(properties, ticker::get);
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
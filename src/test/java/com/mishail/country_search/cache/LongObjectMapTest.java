@@ -0,0 +1,92 @@
+package com.mishail.country_search.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongObjectMapTest {
+
+    @Test
+    void putGetAndRemove() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+
+        assertNull(map.put(1, "Belarus"));
+        assertEquals("Belarus", map.put(1, "Poland"));
+        assertEquals("Poland", map.get(1));
+        assertNull(map.get(2));
+
+        assertEquals("Poland", map.remove(1));
+        assertNull(map.get(1));
+        assertNull(map.remove(1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void removedSlotIsReused() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+
+        map.put(7, "Belarus");
+        map.remove(7);
+        map.put(7, "Poland");
+
+        assertEquals("Poland", map.get(7));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void removeOnlyMatchingValue() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(3, "Belarus");
+
+        assertFalse(map.remove(3, "Poland"));
+        assertTrue(map.remove(3, "Belarus"));
+        assertNull(map.get(3));
+    }
+
+    @Test
+    void reservedKeyIsRejected() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> map.put(Long.MIN_VALUE, "Belarus"));
+    }
+
+    @Test
+    void behavesLikeHashMapUnderRandomOperations() {
+        LongObjectMap<Long> map = new LongObjectMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000) - 1_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                long value = i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        Map<Long, Long> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void clearDropsEverything() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        for (long id = 0; id < 100; id++) {
+            map.put(id, "country" + id);
+        }
+
+        map.clear();
+
+        assertEquals(0, map.size());
+        assertNull(map.get(50));
+    }
+}
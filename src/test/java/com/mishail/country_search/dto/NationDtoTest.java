@@ -0,0 +1,27 @@
+package com.mishail.country_search.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mishail.country_search.model.Nation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NationDtoTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void roundTripsThroughJson() throws Exception {
+        Nation nation = new Nation();
+        nation.setId(3L);
+        nation.setName("Belarusians");
+        nation.setLanguage("Belarusian");
+        NationDto dto = NationDto.from(nation);
+
+        String json = objectMapper.writeValueAsString(dto);
+
+        assertEquals("{\"id\":3,\"name\":\"Belarusians\","
+                + "\"language\":\"Belarusian\",\"religion\":null}", json);
+        assertEquals(dto, objectMapper.readValue(json, NationDto.class));
+    }
+}
@@ -0,0 +1,84 @@
+package com.mishail.country_search.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsAreContiguous() {
+        for (long micros = 0; micros < 1 << 20; micros++) {
+            int index = LatencyHistogram.index(micros);
+            assertTrue(micros <= LatencyHistogram.highestValue(index));
+            assertTrue(index == 0
+                    || micros > LatencyHistogram.highestValue(index - 1));
+        }
+    }
+
+    @Test
+    void percentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long millis = 1; millis <= 1_000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        assertEquals(1_000, histogram.count());
+        assertEquals(1_000_000, histogram.maxMicros());
+        assertWithin(500_000, histogram.percentileMicros(0.5));
+        assertWithin(950_000, histogram.percentileMicros(0.95));
+        assertWithin(990_000, histogram.percentileMicros(0.99));
+        assertEquals(1_000_000, histogram.percentileMicros(1.0));
+    }
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileMicros(0.99));
+    }
+
+    @Test
+    void hugeLatencyLandsInLastBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(TimeUnit.DAYS.toNanos(1));
+
+        assertEquals(1, histogram.count());
+        assertEquals(TimeUnit.DAYS.toMicros(1), histogram.maxMicros());
+    }
+
+    @Test
+    void oldSamplesLeaveTheWindow() {
+        AtomicLong clock = new AtomicLong();
+        LatencyHistogram histogram =
+                new LatencyHistogram(Duration.ofSeconds(60), clock::get);
+        histogram.record(TimeUnit.SECONDS.toNanos(30));
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertEquals(2, histogram.count());
+        assertEquals(30_000_000, histogram.maxMicros());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(35));
+
+        assertEquals(1, histogram.count());
+        assertEquals(5_000, histogram.maxMicros());
+        assertWithin(5_000, histogram.percentileMicros(0.99));
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(5));
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.maxMicros());
+    }
+
+    private static void assertWithin(final long expected, final long actual) {
+        assertTrue(actual >= expected && actual <= expected * 1.07,
+                "expected about " + expected + " but was " + actual);
+    }
+}
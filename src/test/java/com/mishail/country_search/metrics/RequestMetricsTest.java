@@ -0,0 +1,60 @@
+package com.mishail.country_search.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestMetricsTest {
+
+    @Test
+    void recordsPerEndpoint() throws NoSuchMethodException {
+        RequestMetrics requestMetrics = new RequestMetrics();
+        Method toString = Object.class.getMethod("toString");
+        Method hashCode = Object.class.getMethod("hashCode");
+
+        requestMetrics.record(toString, 1_000, true);
+        requestMetrics.record(toString, 2_000, false);
+        requestMetrics.record(hashCode, 3_000, true);
+
+        EndpointStats stats = requestMetrics.stats().get("Object.toString");
+        assertEquals(1, stats.getSuccesses());
+        assertEquals(1, stats.getFailures());
+        assertEquals(3_000, stats.getTotalNanos());
+        assertEquals(2, stats.getLatency().count());
+        assertEquals(3, requestMetrics.totalRequests());
+    }
+
+    @Test
+    void exportsEndpointsRecordedBeforeAndAfterBinding()
+            throws NoSuchMethodException {
+        RequestMetrics requestMetrics = new RequestMetrics();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        Method toString = Object.class.getMethod("toString");
+        Method hashCode = Object.class.getMethod("hashCode");
+
+        requestMetrics.record(toString, TimeUnit.MILLISECONDS.toNanos(4),
+                true);
+        new RequestMeterBinder(requestMetrics).bindTo(registry);
+        requestMetrics.record(hashCode, TimeUnit.MILLISECONDS.toNanos(2),
+                false);
+
+        assertEquals(1, registry.get("endpoint.requests")
+                .tags("endpoint", "Object.toString", "outcome", "success")
+                .functionCounter().count());
+        assertEquals(1, registry.get("endpoint.requests")
+                .tags("endpoint", "Object.hashCode", "outcome", "error")
+                .functionCounter().count());
+        double p99 = registry.get("endpoint.latency")
+                .tags("endpoint", "Object.toString", "quantile", "0.99")
+                .gauge().value();
+        assertEquals(0.004, p99, 0.0003);
+        assertEquals(1, registry.get("endpoint.duration")
+                .tag("endpoint", "Object.hashCode")
+                .functionTimer().count());
+    }
+}
@@ -0,0 +1,94 @@
+package com.mishail.country_search.metrics;
+
+import com.mishail.country_search.model.AttributeDictionary;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.repository.CountryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({SqlMonitor.class, QueryTimer.class, RequestMetrics.class,
+        SqlProperties.class, AttributeDictionary.class})
+class SqlMonitorJpaTest {
+
+    @Autowired
+    private SqlMonitor sqlMonitor;
+
+    @Autowired
+    private SqlProperties properties;
+
+    @Autowired
+    private CountryRepository countryRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @AfterEach
+    void tearDown() {
+        properties.setFailOverBudget(false);
+        properties.setSlowQuery(Duration.ofMillis(200));
+    }
+
+    @Test
+    void countsStatementsOfLoadingOneByOne() throws NoSuchMethodException {
+        List<Long> ids = countries(5);
+
+        SqlScope scope = sqlMonitor.begin(
+                CountryRepository.class.getMethod("findAll"));
+        ids.forEach(countryRepository::findById);
+        sqlMonitor.end(scope);
+
+        assertEquals(5, scope.statements());
+        assertEquals(5, scope.mostRepeated().getValue());
+    }
+
+    @Test
+    void timesQueriesThroughTheDataSource() throws NoSuchMethodException {
+        List<Long> ids = countries(3);
+        properties.setSlowQuery(Duration.ZERO);
+
+        SqlScope scope = sqlMonitor.begin(
+                CountryRepository.class.getMethod("findAll"));
+        ids.forEach(countryRepository::findById);
+        sqlMonitor.end(scope);
+
+        assertEquals(3, scope.slowQueries());
+    }
+
+    @Test
+    void failsWhenBudgetIsEnforced() throws NoSuchMethodException {
+        List<Long> ids = countries(30);
+        properties.setFailOverBudget(true);
+
+        SqlScope scope = sqlMonitor.begin(
+                CountryRepository.class.getMethod("findAll"));
+        try {
+            assertThrows(RuntimeException.class,
+                    () -> ids.forEach(countryRepository::findById));
+        } finally {
+            sqlMonitor.end(scope);
+        }
+    }
+
+    private List<Long> countries(final int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Country country = new Country();
+            country.setName("Country " + i);
+            ids.add(entityManager.persistAndGetId(country, Long.class));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return ids;
+    }
+}
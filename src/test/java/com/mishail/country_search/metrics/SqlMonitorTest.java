@@ -0,0 +1,105 @@
+package com.mishail.country_search.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlMonitorTest {
+
+    private final RequestMetrics requestMetrics = new RequestMetrics();
+
+    private final SqlProperties properties = new SqlProperties();
+
+    private final SqlMonitor sqlMonitor =
+            new SqlMonitor(requestMetrics, properties);
+
+    private final Method method = method();
+
+    @Test
+    void countsStatementsOnlyInsideScope() {
+        sqlMonitor.inspect("select 1");
+        SqlScope scope = sqlMonitor.begin(method);
+        assertNull(sqlMonitor.begin(method));
+        sqlMonitor.inspect("select * from country where id=?");
+        sqlMonitor.inspect("select * from country where id=?");
+        sqlMonitor.inspect("select * from nation");
+        sqlMonitor.end(scope);
+        sqlMonitor.inspect("select 1");
+
+        assertEquals(3, scope.statements());
+        assertEquals("select * from country where id=?",
+                scope.mostRepeated().getKey());
+        EndpointStats stats = requestMetrics.stats().get("Object.toString");
+        assertEquals(3, stats.getStatements());
+        assertEquals(0, stats.getOverBudget());
+    }
+
+    @Test
+    void flagsRequestsOverBudget() {
+        properties.setStatementBudget(2);
+
+        SqlScope scope = sqlMonitor.begin(method);
+        for (int i = 0; i < 5; i++) {
+            sqlMonitor.inspect("delete from city where id=?");
+        }
+        sqlMonitor.end(scope);
+
+        assertEquals(1, requestMetrics.stats().get("Object.toString")
+                .getOverBudget());
+    }
+
+    @Test
+    void failsOverBudgetWhenEnforced() {
+        properties.setStatementBudget(2);
+        properties.setFailOverBudget(true);
+
+        SqlScope scope = sqlMonitor.begin(method);
+        sqlMonitor.inspect("select 1");
+        sqlMonitor.inspect("select 2");
+
+        assertThrows(IllegalStateException.class,
+                () -> sqlMonitor.inspect("select 3"));
+        sqlMonitor.end(scope);
+    }
+
+    @Test
+    void streamingScopeCountsWithoutBudget() {
+        properties.setStatementBudget(2);
+        properties.setFailOverBudget(true);
+
+        SqlScope scope = sqlMonitor.beginStreaming(method);
+        for (int i = 0; i < 5; i++) {
+            sqlMonitor.inspect("select * from city where country_id in ?");
+        }
+        sqlMonitor.end(scope);
+
+        EndpointStats stats = requestMetrics.stats().get("Object.toString");
+        assertEquals(5, stats.getStatements());
+        assertEquals(0, stats.getOverBudget());
+    }
+
+    @Test
+    void countsSlowQueries() {
+        properties.setSlowQuery(Duration.ofMillis(100));
+
+        SqlScope scope = sqlMonitor.begin(method);
+        sqlMonitor.queryExecuted("select * from country", 50);
+        sqlMonitor.queryExecuted("select * from city", 150);
+        sqlMonitor.end(scope);
+
+        assertEquals(1, scope.slowQueries());
+        assertEquals(1, requestMetrics.stats().get("Object.toString")
+                .getSlowQueries());
+    }
+
+    private static Method method() {
+        try {
+            return Object.class.getMethod("toString");
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.mishail.country_search.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttributeDictionaryTest {
+
+    private final AttributeDictionary dictionary = new AttributeDictionary();
+
+    @Test
+    void encodeGivesOneCodePerValue() {
+        int code = dictionary.encode("Belarusian");
+
+        assertEquals(code, dictionary.encode(
+                new String("Belarusian")));
+        assertNotEquals(code, dictionary.encode("Polish"));
+        assertEquals("Belarusian", dictionary.decode(code));
+        assertEquals(code, dictionary.find("Belarusian"));
+    }
+
+    @Test
+    void missingAndUnknownValuesAreNone() {
+        assertEquals(AttributeDictionary.NONE,
+                dictionary.encode(null));
+        assertNull(dictionary.decode(AttributeDictionary.NONE));
+        int size = dictionary.size();
+
+        assertEquals(AttributeDictionary.NONE,
+                dictionary.find("never encoded"));
+        assertEquals(size, dictionary.size());
+    }
+
+    @Test
+    void stopsGrowingWhenFull() {
+        AttributeDictionary small = new AttributeDictionary(1);
+        int code = small.encode("Orthodox");
+
+        assertEquals(AttributeDictionary.NONE, small.encode("Catholic"));
+        assertEquals(code, small.encode("Orthodox"));
+        String value = new String("Catholic");
+        assertSame(value, small.intern(value));
+        assertEquals(1, small.size());
+    }
+
+    @Test
+    void internSharesInstancesWithoutAddingCodes() {
+        String unknown = new String("Catholic");
+
+        assertSame(unknown, dictionary.intern(unknown));
+        assertEquals(0, dictionary.size());
+
+        String first = dictionary.decode(dictionary.encode("Catholic"));
+
+        assertSame(first, dictionary.intern(
+                new String("Catholic")));
+        assertSame(first, new InternedStringConverter(dictionary)
+                .convertToEntityAttribute(new String("Catholic")));
+    }
+
+    @Test
+    void concurrentEncodesAgree() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Set<String> decoded = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    String value = "religion " + i;
+                    int code = dictionary.encode(value);
+                    assertEquals(value, dictionary.decode(code));
+                    decoded.add(value + "=" + code);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(500, decoded.size());
+    }
+}
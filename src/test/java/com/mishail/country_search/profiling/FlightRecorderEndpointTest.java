@@ -0,0 +1,113 @@
+package com.mishail.country_search.profiling;
+
+import com.mishail.country_search.aspect.RepositoryQueryAspect;
+import com.mishail.country_search.cache.CacheProperties;
+import com.mishail.country_search.cache.CacheService;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.repository.CountryRepository;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FlightRecorderEndpointTest {
+
+    private final FlightRecorderEndpoint endpoint =
+            new FlightRecorderEndpoint();
+
+    @AfterEach
+    void tearDown() {
+        endpoint.close();
+    }
+
+    @Test
+    void recordsCacheAndRepositoryEvents() throws IOException {
+        CacheService cacheService = new CacheService(new CacheProperties());
+        CountryRepository countryRepository = repository();
+
+        assertEquals("RUNNING", endpoint.start("profile").get("state")
+                .toString());
+        cacheService.put("countryId_1", "Belarus");
+        cacheService.get("countryId_", 1);
+        cacheService.get("countryId_2");
+        countryRepository.findAll();
+        countryRepository.findById(1L);
+        endpoint.stop();
+
+        String dump = endpoint.dump(FlightRecorderEndpoint.RECORDING_NAME);
+        List<RecordedEvent> events = RecordingFile.readAllEvents(
+                Path.of(dump));
+        List<RecordedEvent> gets = named(events, "CacheGet");
+        assertEquals(2, gets.size());
+        assertTrue(gets.stream().anyMatch(event ->
+                event.getString("key").equals("countryId_1")
+                        && event.getBoolean("hit")));
+        assertEquals(1, named(events, "CachePut").size());
+        List<RecordedEvent> queries = named(events, "RepositoryQuery");
+        assertEquals(2, queries.size());
+        assertTrue(queries.stream().allMatch(event ->
+                event.getString("repository").equals("CountryRepository")));
+        assertTrue(queries.stream().anyMatch(event ->
+                event.getString("method").equals("findAll")
+                        && event.getLong("rows") == 3));
+        cacheService.shutdown();
+    }
+
+    @Test
+    void leavesOutEnvironmentAndSystemProperties() throws IOException {
+        endpoint.start("profile");
+        endpoint.stop();
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(Path.of(
+                endpoint.dump(FlightRecorderEndpoint.RECORDING_NAME)));
+        assertFalse(events.isEmpty());
+        List<String> secrets = List.of("jdk.InitialEnvironmentVariable",
+                "jdk.InitialSystemProperty", "jdk.JVMInformation");
+        assertTrue(events.stream().noneMatch(event ->
+                secrets.contains(event.getEventType().getName())));
+    }
+
+    @Test
+    void rejectsUnknownSettings() {
+        assertThrows(InvalidEndpointRequestException.class,
+                () -> endpoint.start("no-such-settings"));
+        assertEquals("NONE", endpoint.status().get("state"));
+    }
+
+    @Test
+    void dumpsOnlyExistingRecording() {
+        assertNull(endpoint.dump(FlightRecorderEndpoint.RECORDING_NAME));
+        endpoint.start("default");
+
+        assertNull(endpoint.dump("other"));
+        assertNotNull(endpoint.dump(FlightRecorderEndpoint.RECORDING_NAME));
+    }
+
+    private static CountryRepository repository() {
+        CountryRepository target = mock(CountryRepository.class);
+        when(target.findAll()).thenReturn(List.of(new Country(),
+                new Country(), new Country()));
+        when(target.findById(1L)).thenReturn(Optional.of(new Country()));
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new RepositoryQueryAspect());
+        return factory.getProxy();
+    }
+
+    private static List<RecordedEvent> named(
+            final List<RecordedEvent> events, final String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName()
+                        .equals("com.mishail.country_search." + name))
+                .toList();
+    }
+}
@@ -0,0 +1,81 @@
+package com.mishail.country_search.repository;
+
+import com.mishail.country_search.dto.AggregateRow;
+import com.mishail.country_search.model.AttributeDictionary;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.model.Nation;
+import com.mishail.country_search.search.GroupBy;
+import com.mishail.country_search.search.NumericColumn;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({AggregationRepository.class, AttributeDictionary.class})
+class AggregationRepositoryTest {
+
+    @Autowired
+    private AggregationRepository aggregationRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        Nation belarusians = nation("Belarusians", "Orthodox");
+        Nation russians = nation("Russians", "Orthodox");
+        Nation poles = nation("Poles", "Catholic");
+        country("Belarus", 9_200_000.0, belarusians, russians, poles);
+        country("Poland", 38_000_000.0, poles);
+        country("Atlantis", null, poles);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void aggregateGroupsInDatabase() {
+        List<AggregateRow> rows = aggregationRepository.aggregate(
+                GroupBy.RELIGION, NumericColumn.COUNTRY_POPULATION);
+
+        assertEquals(List.of(
+                new AggregateRow("Catholic", 2, 47_200_000.0, 23_600_000.0,
+                        9_200_000.0, 38_000_000.0),
+                new AggregateRow("Orthodox", 1, 9_200_000.0, 9_200_000.0,
+                        9_200_000.0, 9_200_000.0)), rows);
+    }
+
+    @Test
+    void loadColumnsAggregatesLikeDatabase() {
+        for (GroupBy groupBy : GroupBy.values()) {
+            assertEquals(aggregationRepository.aggregate(groupBy,
+                            NumericColumn.COUNTRY_POPULATION),
+                    aggregationRepository.loadColumns().aggregate(groupBy,
+                            NumericColumn.COUNTRY_POPULATION));
+        }
+    }
+
+    private Nation nation(final String name, final String religion) {
+        Nation nation = new Nation();
+        nation.setName(name);
+        nation.setReligion(religion);
+        return entityManager.persist(nation);
+    }
+
+    private void country(final String name, final Double population,
+                         final Nation... nations) {
+        Country country = new Country();
+        country.setName(name);
+        country.setPopulation(population);
+        country.setNations(new HashSet<>(Set.of(nations)));
+        entityManager.persist(country);
+    }
+}
@@ -0,0 +1,92 @@
+package com.mishail.country_search.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mishail.country_search.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkImportRepositoryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writeCsvRowQuotesValuesAndLeavesNullsEmpty() throws IOException {
+        StringWriter writer = new StringWriter();
+
+        BulkImportRepository.writeCsvRow(objectMapper.readTree(
+                        "{\"name\":\"Minsk \\\"hero\\\", city\","
+                                + "\"country\":\"Belarus\","
+                                + "\"population\":2.0E6,\"area\":null}"),
+                ImportKind.CITIES.getColumns(), writer);
+
+        assertEquals("\"Belarus\",\"Minsk \"\"hero\"\", city\","
+                + "\"2000000.0\",\n", writer.toString());
+    }
+
+    @Test
+    void csvHeaderGivesTheColumnOrder() throws IOException {
+        InputStream input = new ByteArrayInputStream(("\uFEFF\"name\", "
+                + "Country,area,population\r\nMinsk,Belarus,348,2E6\n")
+                .getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of("name", "country", "area", "population"),
+                BulkImportRepository.readCsvHeader(ImportKind.CITIES,
+                        input));
+        assertEquals("Minsk,Belarus,348,2E6\n", new String(
+                input.readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals("COPY import_city (name, country, area, population) "
+                        + "FROM STDIN WITH (FORMAT csv)",
+                ImportKind.CITIES.copy(List.of("name", "country", "area",
+                        "population")));
+    }
+
+    @Test
+    void csvHeaderWithOtherColumnsIsRejected() {
+        for (String header : List.of("", "Minsk,Belarus,348,2E6",
+                "country,name,population", "country,name,name,area",
+                "country,name,population,area,gdp")) {
+            assertThrows(BadRequestException.class, () ->
+                    BulkImportRepository.readCsvHeader(ImportKind.CITIES,
+                            new ByteArrayInputStream((header + "\n")
+                                    .getBytes(StandardCharsets.UTF_8))));
+        }
+    }
+
+    @Test
+    void insertsTakeOneSequenceValuePerBlockOfIds() {
+        String insert = ImportKind.CITIES.insert();
+
+        assertEquals(1, insert.split("nextval", -1).length - 1);
+        assertTrue(insert.contains("b.hi - 49 + f.rn % 50"));
+        assertTrue(insert.contains("ON b.block = f.rn / 50"));
+        assertNull(ImportKind.CITIES.maxMembershipId());
+        assertEquals("SELECT max(id) FROM nation",
+                ImportKind.NATIONS.maxMembershipId());
+    }
+
+    @Test
+    void kindAndFormatAreResolvedFromRequest() {
+        assertEquals(ImportKind.COUNTRY_NATIONS,
+                ImportKind.of("country-nations"));
+        assertEquals(ImportFormat.CSV,
+                ImportFormat.of("text/csv;charset=UTF-8"));
+        assertEquals(ImportFormat.NDJSON,
+                ImportFormat.of("application/x-ndjson"));
+        assertThrows(BadRequestException.class,
+                () -> ImportKind.of("planets"));
+        assertThrows(BadRequestException.class,
+                () -> ImportFormat.of("application/json"));
+        assertThrows(BadRequestException.class,
+                () -> ImportFormat.of("not a type"));
+        assertEquals(List.of("country", "nation"),
+                ImportKind.COUNTRY_NATIONS.getColumns());
+    }
+}
@@ -0,0 +1,134 @@
+package com.mishail.country_search.repository;
+
+import com.mishail.country_search.model.AttributeDictionary;
+import com.mishail.country_search.model.City;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.model.Nation;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties =
+        "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(AttributeDictionary.class)
+class CountryRepositoryTest {
+
+    @Autowired
+    private CountryRepository countryRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Nation belarusians = nation("Belarusians");
+        Nation poles = nation("Poles");
+        ids.add(country("Belarus", Set.of(belarusians, poles),
+                "Minsk", "Grodno", "Brest").getId());
+        ids.add(country("Poland", Set.of(poles), "Warsaw").getId());
+        ids.add(country("Lithuania", Set.of()).getId());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findAllWithCitiesAndNationsRunsOneQueryPerCollection() {
+        Statistics statistics = entityManagerFactory
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Country> countries = countryRepository
+                .findAllWithCitiesAndNations();
+
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(3, countries.size());
+        for (Country country : countries) {
+            assertTrue(Hibernate.isInitialized(country.getCities()));
+            assertTrue(Hibernate.isInitialized(country.getNations()));
+        }
+        Country belarus = countries.stream()
+                .filter(country -> country.getName().equals("Belarus"))
+                .findFirst().orElseThrow();
+        assertEquals(3, belarus.getCities().size());
+        assertEquals(2, belarus.getNations().size());
+    }
+
+    @Test
+    void findIdsAfterReturnsKeysetPage() {
+        assertEquals(ids.subList(1, 3), countryRepository
+                .findIdsAfter(ids.get(0), Limit.of(5)));
+        assertEquals(ids.subList(0, 1), countryRepository
+                .findIdsAfter(0L, Limit.of(1)));
+    }
+
+    @Test
+    void findAllWithCitiesAndNationsByIdInKeepsIdOrder() {
+        List<Country> countries = countryRepository
+                .findAllWithCitiesAndNationsByIdIn(ids.subList(1, 3));
+
+        assertEquals(ids.subList(1, 3),
+                countries.stream().map(Country::getId).toList());
+        assertEquals(1, countries.get(0).getCities().size());
+        assertTrue(countries.get(1).getNations().isEmpty());
+    }
+
+    @Test
+    void saveAllInsertsInJdbcBatches() {
+        List<Country> countries = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Country country = new Country();
+            country.setName("country " + i);
+            countries.add(country);
+        }
+        Statistics statistics = entityManagerFactory
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        countryRepository.saveAllAndFlush(countries);
+
+        assertTrue(statistics.getPrepareStatementCount() < 10);
+        assertEquals(Set.of("country 0", "country 119"), Set.copyOf(
+                countryRepository.findExistingNames(List.of("country 0",
+                        "country 119", "Atlantis"))));
+    }
+
+    private Nation nation(final String name) {
+        Nation nation = new Nation();
+        nation.setName(name);
+        return entityManager.persist(nation);
+    }
+
+    private Country country(final String name, final Set<Nation> nations,
+                            final String... cities) {
+        Country country = new Country();
+        country.setName(name);
+        country.setNations(new HashSet<>(nations));
+        country.setCities(new HashSet<>());
+        for (String cityName : cities) {
+            City city = new City();
+            city.setName(cityName);
+            country.getCities().add(city);
+        }
+        return entityManager.persist(country);
+    }
+}
@@ -0,0 +1,103 @@
+package com.mishail.country_search.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitmapTest {
+
+    private static int[] toArray(final BitSet bits) {
+        return bits.stream().toArray();
+    }
+
+    // Dense and sparse chunks side by side, so every pair of chunk kinds
+    // meets in the operations below
+    private static BitSet random(final Random random, final int seed) {
+        BitSet bits = new BitSet();
+        for (int chunk = 0; chunk < 6; chunk++) {
+            int count = (chunk + seed) % 3 == 0 ? 20_000 : 500;
+            for (int i = 0; i < count; i++) {
+                bits.set(chunk * 65_536 + random.nextInt(65_536));
+            }
+        }
+        return bits;
+    }
+
+    @Test
+    void ofKeepsSortedDistinctValues() {
+        Bitmap bitmap = Bitmap.of(70_000, 3, 3, 1, 65_536);
+
+        assertArrayEquals(new int[] {1, 3, 65_536, 70_000},
+                bitmap.toArray());
+        assertEquals(4, bitmap.cardinality());
+        assertTrue(bitmap.contains(65_536));
+        assertFalse(bitmap.contains(2));
+        assertFalse(bitmap.contains(-1));
+        assertArrayEquals(new int[] {1, 3}, bitmap.toArray(2));
+    }
+
+    @Test
+    void ofRejectsNegativeValues() {
+        assertThrows(IllegalArgumentException.class, () -> Bitmap.of(1, -2));
+    }
+
+    @Test
+    void operationsMatchBitSet() {
+        Random random = new Random(42);
+        for (int round = 0; round < 6; round++) {
+            BitSet left = random(random, round);
+            BitSet right = random(random, round + 1);
+            Bitmap leftBitmap = Bitmap.of(toArray(left));
+            Bitmap rightBitmap = Bitmap.of(toArray(right));
+
+            BitSet and = (BitSet) left.clone();
+            and.and(right);
+            BitSet or = (BitSet) left.clone();
+            or.or(right);
+            BitSet andNot = (BitSet) left.clone();
+            andNot.andNot(right);
+
+            assertArrayEquals(toArray(left), leftBitmap.toArray());
+            assertArrayEquals(toArray(and),
+                    leftBitmap.and(rightBitmap).toArray());
+            assertArrayEquals(toArray(or),
+                    leftBitmap.or(rightBitmap).toArray());
+            assertArrayEquals(toArray(andNot),
+                    leftBitmap.andNot(rightBitmap).toArray());
+            assertEquals(or.cardinality(),
+                    leftBitmap.or(rightBitmap).cardinality());
+        }
+    }
+
+    @Test
+    void denseChunkShrinksBackToArray() {
+        int[] values = new int[5000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 2;
+        }
+        Bitmap dense = Bitmap.of(values);
+
+        Bitmap sparse = dense.andNot(Bitmap.of(Arrays
+                .copyOf(values, 4990)));
+
+        assertEquals(10, sparse.cardinality());
+        assertTrue(sparse.contains(9998));
+        assertTrue(dense.and(Bitmap.of(1, 3)).isEmpty());
+        assertFalse(dense.intersects(Bitmap.of(1)));
+        assertTrue(dense.intersects(Bitmap.of(2)));
+    }
+
+    @Test
+    void withAndWithoutReturnNewBitmaps() {
+        Bitmap bitmap = Bitmap.of(1, 2);
+
+        assertArrayEquals(new int[] {1, 2, 3}, bitmap.with(3).toArray());
+        assertArrayEquals(new int[] {2}, bitmap.without(1).toArray());
+        assertArrayEquals(new int[] {1, 2}, bitmap.toArray());
+        assertTrue(bitmap.without(1).without(2).isEmpty());
+    }
+}
@@ -0,0 +1,66 @@
+package com.mishail.country_search.search;
+
+import com.mishail.country_search.dto.AggregateRow;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MembershipColumnsTest {
+
+    private final MembershipColumns columns = MembershipColumns.builder()
+            .country(1, 9_200_000.0, 207_600.0, null)
+            .country(2, 38_000_000.0, 312_700.0, 6.9E11)
+            .country(3, 2_800_000.0, null, 7.0E10)
+            .country(4, 1_000.0, 1.0, 1.0)
+            .nation(10, "Belarusians", "Belarusian", "Orthodox")
+            .nation(11, "Poles", "Polish", "Catholic")
+            .nation(12, "Russians", "Russian", "Orthodox")
+            .nation(13, "Lithuanians", "Lithuanian", null)
+            .member(1, 10).member(1, 11).member(1, 12)
+            .member(2, 11)
+            .member(3, 13).member(3, 11)
+            .member(3, 99)
+            .build();
+
+    @Test
+    void aggregateGroupsByNation() {
+        assertEquals(List.of(
+                new AggregateRow("Belarusians", 1, 9_200_000.0,
+                        9_200_000.0, 9_200_000.0, 9_200_000.0),
+                new AggregateRow("Lithuanians", 1, 2_800_000.0,
+                        2_800_000.0, 2_800_000.0, 2_800_000.0),
+                new AggregateRow("Poles", 3, 50_000_000.0,
+                        50_000_000.0 / 3, 2_800_000.0, 38_000_000.0),
+                new AggregateRow("Russians", 1, 9_200_000.0,
+                        9_200_000.0, 9_200_000.0, 9_200_000.0)),
+                columns.aggregate(GroupBy.NATION,
+                        NumericColumn.COUNTRY_POPULATION));
+    }
+
+    @Test
+    void aggregateCountsCountryOncePerGroup() {
+        List<AggregateRow> rows = columns.aggregate(GroupBy.RELIGION,
+                NumericColumn.COUNTRY_AREA);
+
+        assertEquals(List.of(
+                new AggregateRow("Catholic", 2, 520_300.0, 260_150.0,
+                        207_600.0, 312_700.0),
+                new AggregateRow("Orthodox", 1, 207_600.0, 207_600.0,
+                        207_600.0, 207_600.0)), rows);
+    }
+
+    @Test
+    void aggregateSkipsGroupsWithoutValues() {
+        assertEquals(List.of("Lithuanian", "Polish"), columns
+                .aggregate(GroupBy.LANGUAGE, NumericColumn.COUNTRY_GDP)
+                .stream().map(AggregateRow::group).toList());
+    }
+
+    @Test
+    void aggregateRejectsCityColumns() {
+        assertThrows(IllegalArgumentException.class, () -> columns
+                .aggregate(GroupBy.NATION, NumericColumn.CITY_AREA));
+    }
+}
@@ -0,0 +1,197 @@
+package com.mishail.country_search.search;
+
+import com.mishail.country_search.exception.BadRequestException;
+import com.mishail.country_search.model.AttributeDictionary;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.model.Nation;
+import com.mishail.country_search.repository.CountryRepository;
+import com.mishail.country_search.repository.NationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MembershipIndexTest {
+
+    @Mock
+    private CountryRepository countryRepository;
+
+    @Mock
+    private NationRepository nationRepository;
+
+    @Spy
+    private AttributeDictionary dictionary = new AttributeDictionary();
+
+    @InjectMocks
+    private MembershipIndex membershipIndex;
+
+    private final Nation belarusians =
+            nation(1L, "Belarusian", "Orthodox");
+    private final Nation poles = nation(2L, "Polish", "Catholic");
+    private final Nation russians = nation(3L, "Russian", "Orthodox");
+
+    private static Nation nation(final Long id, final String language,
+                                 final String religion) {
+        Nation nation = new Nation();
+        nation.setId(id);
+        nation.setLanguage(language);
+        nation.setReligion(religion);
+        return nation;
+    }
+
+    private static Country country(final Long id, final Double population,
+                                   final Nation... nations) {
+        Country country = new Country();
+        country.setId(id);
+        country.setPopulation(population);
+        country.setNations(new HashSet<>(Set.of(nations)));
+        return country;
+    }
+
+    private static MembershipFilter filter(final List<Long> all,
+                                           final List<Long> excluded) {
+        return new MembershipFilter(all, null, excluded, null, null,
+                null, null);
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(countryRepository.findAll()).thenReturn(List.of(
+                country(10L, 9_200_000.0), country(20L, 38_000_000.0),
+                country(30L, 2_800_000.0), country(40L, null)));
+        when(nationRepository.findAll())
+                .thenReturn(List.of(belarusians, poles, russians));
+        when(nationRepository.findCountryNationIds()).thenReturn(List.of(
+                new Object[] {10L, 1L}, new Object[] {10L, 2L},
+                new Object[] {10L, 3L}, new Object[] {20L, 2L},
+                new Object[] {30L, 2L}, new Object[] {40L, 3L}));
+        membershipIndex.rebuild();
+    }
+
+    @Test
+    void countriesCombinesNations() {
+        assertArrayEquals(new int[] {10},
+                membershipIndex.countries(filter(List.of(1L, 2L),
+                        List.of())).toArray());
+        assertArrayEquals(new int[] {20, 30},
+                membershipIndex.countries(filter(List.of(2L),
+                        List.of(3L))).toArray());
+        assertArrayEquals(new int[] {10, 40}, membershipIndex.countries(
+                new MembershipFilter(null, List.of(1L, 3L), null, null,
+                        null, null, null)).toArray());
+        assertArrayEquals(new int[] {20, 30},
+                membershipIndex.countries(filter(List.of(),
+                        List.of(3L))).toArray());
+    }
+
+    @Test
+    void countriesFiltersByAttributesAndPopulation() {
+        assertArrayEquals(new int[] {10, 40}, membershipIndex.countries(
+                new MembershipFilter(null, null, null, null, "Orthodox",
+                        null, null)).toArray());
+        assertArrayEquals(new int[] {10, 30}, membershipIndex.countries(
+                new MembershipFilter(null, null, null, "Polish", null,
+                        null, 9_200_000.0)).toArray());
+        assertArrayEquals(new int[] {20}, membershipIndex.countries(
+                new MembershipFilter(null, null, null, null, null,
+                        9_200_001.0, null)).toArray());
+        assertTrue(membershipIndex.countries(new MembershipFilter(null,
+                null, null, "Latin", null, null, null)).isEmpty());
+    }
+
+    @Test
+    void nationsFiltersByCountryPopulation() {
+        assertArrayEquals(new int[] {1, 3}, membershipIndex.nations(
+                null, "Orthodox", null, null).toArray());
+        assertArrayEquals(new int[] {2}, membershipIndex.nations(
+                null, null, 10_000_000.0, null).toArray());
+        assertArrayEquals(new int[] {1, 2, 3}, membershipIndex.nations(
+                null, null, 5_000_000.0, 10_000_000.0).toArray());
+    }
+
+    @Test
+    void writesUpdateIndexIncrementally() {
+        membershipIndex.addMembers(20L, List.of(russians));
+        membershipIndex.removeMember(10L, 2L);
+        russians.setReligion("Atheism");
+        membershipIndex.indexNation(russians);
+        membershipIndex.indexCountry(country(30L, 12_000_000.0));
+
+        assertArrayEquals(new int[] {20}, membershipIndex.countries(
+                filter(List.of(2L, 3L), List.of())).toArray());
+        assertArrayEquals(new int[] {1}, membershipIndex.nations(
+                null, "Orthodox", null, null).toArray());
+        assertArrayEquals(new int[] {20, 30}, membershipIndex.countries(
+                new MembershipFilter(null, null, null, null, null,
+                        10_000_000.0, null)).toArray());
+
+        membershipIndex.removeNation(2L);
+        membershipIndex.removeCountry(country(10L, null, belarusians,
+                russians));
+
+        assertTrue(membershipIndex.countries(filter(List.of(2L),
+                List.of())).isEmpty());
+        assertArrayEquals(new int[] {20, 30, 40},
+                membershipIndex.countries(filter(List.of(),
+                        List.of())).toArray());
+        assertArrayEquals(new int[] {1, 3}, membershipIndex.nations(
+                null, null, null, null).toArray());
+        verify(countryRepository, times(1)).findAll();
+    }
+
+    @Test
+    void rebuildKeepsServingOldStateUntilDone() {
+        List<int[]> seen = new ArrayList<>();
+        when(countryRepository.findAll()).thenAnswer(invocation -> {
+            seen.add(membershipIndex.countries(filter(List.of(2L),
+                    List.of())).toArray());
+            return List.of(country(20L, 38_000_000.0));
+        });
+
+        membershipIndex.rebuild();
+
+        assertArrayEquals(new int[] {10, 20, 30}, seen.get(0));
+        assertArrayEquals(new int[] {20}, membershipIndex.countries(
+                filter(List.of(2L), List.of())).toArray());
+    }
+
+    @Test
+    void filtersDoNotGrowDictionary() {
+        int size = dictionary.size();
+
+        assertTrue(membershipIndex.nations("Klingon", "Jedi", null, null)
+                .isEmpty());
+        assertEquals(size, dictionary.size());
+    }
+
+    @Test
+    void outOfRangeIdIsBadRequest() {
+        MembershipFilter filter = filter(List.of(1L + Integer.MAX_VALUE),
+                List.of());
+
+        assertThrows(BadRequestException.class,
+                () -> membershipIndex.countries(filter));
+    }
+
+    @Test
+    void bucketsSplitByDecade() {
+        assertEquals(0, MembershipIndex.bucket(0.5));
+        assertEquals(1, MembershipIndex.bucket(1));
+        assertEquals(4, MembershipIndex.bucket(1000));
+        assertEquals(3, MembershipIndex.bucket(999.9));
+        assertEquals(MembershipIndex.BUCKETS - 1,
+                MembershipIndex.bucket(1E15));
+    }
+}
@@ -0,0 +1,74 @@
+package com.mishail.country_search.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    private final PrefixIndex index = new PrefixIndex();
+
+    @Test
+    void searchReturnsNamesStartingWithPrefixIgnoringCase() {
+        index.put(NameKind.COUNTRY, 1L, "Belarus");
+        index.put(NameKind.CAPITAL, 2L, "Berlin");
+        index.put(NameKind.NATION, 3L, "Belarusians");
+        index.put(NameKind.CITY, 4L, "Minsk");
+
+        assertEquals(List.of(new SearchHit(NameKind.COUNTRY, 1L, "Belarus"),
+                        new SearchHit(NameKind.NATION, 3L, "Belarusians")),
+                index.search("bel", 10));
+        assertEquals(3, index.search("B", 10).size());
+        assertEquals(1, index.search("B", 1).size());
+        assertTrue(index.search("Moscow", 10).isEmpty());
+    }
+
+    @Test
+    void equalNamesAreOrderedByKindAndId() {
+        index.put(NameKind.CITY, 7L, "Minsk");
+        index.put(NameKind.CAPITAL, 1L, "Minsk");
+        index.put(NameKind.CITY, 5L, "minsk");
+
+        assertEquals(List.of(new SearchHit(NameKind.CAPITAL, 1L, "Minsk"),
+                new SearchHit(NameKind.CITY, 5L, "minsk"),
+                new SearchHit(NameKind.CITY, 7L, "Minsk")),
+                index.search("minsk", 10));
+    }
+
+    @Test
+    void putReplacesOldNameAndRemoveDropsIt() {
+        index.put(NameKind.COUNTRY, 1L, "Belarus");
+        index.put(NameKind.COUNTRY, 1L, "Poland");
+
+        assertTrue(index.search("Bel", 10).isEmpty());
+        assertEquals(1, index.search("Pol", 10).size());
+
+        index.put(NameKind.CAPITAL, 1L, null);
+        index.remove(NameKind.COUNTRY, 1L);
+        index.put(NameKind.CITY, 2L, "Grodno");
+        index.clear(NameKind.CITY);
+
+        assertEquals(0, index.size());
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    @Test
+    void concurrentUpdatesKeepOneEntryPerId() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8000; i++) {
+            long id = i % 100;
+            String name = "city " + (i % 3);
+            executor.execute(() -> index.put(NameKind.CITY, id, name));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(100, index.size());
+        assertEquals(100, index.search("city", 1000).size());
+    }
+}
@@ -0,0 +1,63 @@
+package com.mishail.country_search.search;
+
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.repository.CityRepository;
+import com.mishail.country_search.repository.CountryRepository;
+import com.mishail.country_search.repository.NationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SearchIndexTest {
+
+    @Mock
+    private CountryRepository countryRepository;
+
+    @Mock
+    private CityRepository cityRepository;
+
+    @Mock
+    private NationRepository nationRepository;
+
+    private static Country country(final Long id, final String name) {
+        Country country = new Country();
+        country.setId(id);
+        country.setName(name);
+        country.setCapital("Minsk");
+        country.setCities(new HashSet<>());
+        return country;
+    }
+
+    @Test
+    void updateDuringRebuildIsNotLost() throws Exception {
+        SearchIndex index = new SearchIndex(countryRepository,
+                cityRepository, nationRepository, new SearchProperties());
+        Thread[] writer = new Thread[1];
+        when(countryRepository.findAll()).thenAnswer(invocation -> {
+            // The rebuild read the old name, the rename commits right after
+            writer[0] = new Thread(() ->
+                    index.indexCountry(country(1L, "Belarus")));
+            writer[0].start();
+            while (writer[0].getState() != Thread.State.WAITING
+                    && writer[0].getState() != Thread.State.TERMINATED) {
+                Thread.onSpinWait();
+            }
+            return List.of(country(1L, "Byelorussia"));
+        });
+
+        index.rebuild();
+        writer[0].join();
+
+        assertEquals(List.of(new SearchHit(NameKind.COUNTRY, 1L,
+                "Belarus")), index.search("Bel", 10));
+        assertTrue(index.search("Byel", 10).isEmpty());
+    }
+}
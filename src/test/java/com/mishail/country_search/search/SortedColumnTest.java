@@ -0,0 +1,92 @@
+package com.mishail.country_search.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SortedColumnTest {
+
+    private final SortedColumn column = SortedColumn.of(
+            new double[] {9.5E6, 3.8E7, 2.8E6, 3.8E7, 1.4E8},
+            new long[] {1, 2, 3, 4, 5});
+
+    @Test
+    void rangeIsInclusiveAndOrderedByValueThenId() {
+        assertArrayEquals(new long[] {1, 2, 4},
+                column.range(9.5E6, 3.8E7, 10));
+        assertArrayEquals(new long[] {3, 1},
+                column.range(Double.NEGATIVE_INFINITY, 1E7, 10));
+        assertArrayEquals(new long[] {1, 2},
+                column.range(5E6, Double.POSITIVE_INFINITY, 2));
+        assertEquals(0, column.range(4E7, 1E8, 10).length);
+    }
+
+    @Test
+    void topReturnsLargestOrSmallest() {
+        assertArrayEquals(new long[] {5, 4, 2}, column.top(3, true));
+        assertArrayEquals(new long[] {3, 1}, column.top(2, false));
+        assertEquals(5, column.top(100, true).length);
+    }
+
+    @Test
+    void updateMovesChangedIdsAndRemovesNaN() {
+        SortedColumn updated = column.update(new long[] {5, 3, 6},
+                new double[] {1E6, Double.NaN, 5E7});
+
+        assertEquals(5, updated.size());
+        assertArrayEquals(new long[] {5, 1, 2, 4, 6},
+                updated.range(Double.NEGATIVE_INFINITY,
+                        Double.POSITIVE_INFINITY, 10));
+        assertEquals(5, column.size());
+        assertEquals(0, SortedColumn.EMPTY.update(new long[] {1},
+                new double[] {Double.NaN}).size());
+    }
+
+    @Test
+    void randomUpdatesMatchSortingEverything() {
+        Random random = new Random(3);
+        Map<Long, Double> expected = new HashMap<>();
+        SortedColumn current = SortedColumn.EMPTY;
+        for (int round = 0; round < 200; round++) {
+            int batch = 1 + random.nextInt(20);
+            Set<Long> ids = new LinkedHashSet<>();
+            while (ids.size() < batch) {
+                ids.add((long) random.nextInt(300));
+            }
+            long[] changedIds = new long[batch];
+            double[] values = new double[batch];
+            int i = 0;
+            for (long id : ids) {
+                changedIds[i] = id;
+                values[i] = random.nextInt(10) == 0
+                        ? Double.NaN : random.nextInt(50);
+                if (Double.isNaN(values[i])) {
+                    expected.remove(id);
+                } else {
+                    expected.put(id, values[i]);
+                }
+                i++;
+            }
+            current = current.update(changedIds, values);
+        }
+        long[] sorted = expected.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .mapToLong(Map.Entry::getKey).toArray();
+
+        assertArrayEquals(sorted, current.range(Double.NEGATIVE_INFINITY,
+                Double.POSITIVE_INFINITY, 1000));
+        double[] values = new double[expected.size()];
+        long[] ids = new long[expected.size()];
+        int i = 0;
+        for (Map.Entry<Long, Double> entry : expected.entrySet()) {
+            ids[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        assertArrayEquals(sorted, SortedColumn.of(values, ids)
+                .range(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                        1000));
+    }
+}
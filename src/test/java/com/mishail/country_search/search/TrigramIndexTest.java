@@ -0,0 +1,111 @@
+package com.mishail.country_search.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+    private final TrigramIndex index = new TrigramIndex();
+
+    @Test
+    void trigramsArePaddedPerWordLikePgTrgm() {
+        assertArrayEquals(packed("  c", " ca", "cat", "at "),
+                TrigramIndex.trigrams("Cat"));
+        assertArrayEquals(packed("  a", " ab", "ab ", "  c", " cd", "cd "),
+                TrigramIndex.trigrams("ab-CD"));
+        assertEquals(0, TrigramIndex.trigrams(" - ").length);
+    }
+
+    private static long[] packed(final String... trigrams) {
+        return Arrays.stream(trigrams)
+                .mapToLong(trigram -> TrigramIndex.trigram(trigram, 0))
+                .sorted().toArray();
+    }
+
+    @Test
+    void searchToleratesTyposAndRanksBestFirst() {
+        index.put(NameKind.COUNTRY, 1L, "Belarus");
+        index.put(NameKind.NATION, 2L, "Belarusians");
+        index.put(NameKind.COUNTRY, 3L, "Poland");
+
+        List<FuzzyHit> hits = index.search("Belaruss", 10, 0.3);
+
+        assertEquals(2, hits.size());
+        assertEquals(new FuzzyHit(NameKind.COUNTRY, 1L, "Belarus", 0.7),
+                hits.get(0));
+        assertEquals(2L, hits.get(1).id());
+        assertTrue(hits.get(1).similarity() < 0.7);
+        assertEquals(1, index.search("Belaruss", 1, 0.3).size());
+        assertTrue(index.search("Belaruss", 10, 0.8).isEmpty());
+    }
+
+    @Test
+    void putReplacesTrigramsAndRemoveDropsThem() {
+        index.put(NameKind.CITY, 1L, "Minsk");
+        index.put(NameKind.CITY, 1L, "Grodno");
+
+        assertTrue(index.search("Minsk", 10, 0.3).isEmpty());
+        assertEquals(1.0, index.search("grodno", 10, 0.3).get(0)
+                .similarity());
+
+        index.put(NameKind.CITY, 2L, "Brest");
+        index.clear(NameKind.CITY);
+        index.put(NameKind.CAPITAL, 3L, "Minsk");
+        index.remove(NameKind.CAPITAL, 3L);
+
+        assertEquals(0, index.size());
+        assertTrue(index.search("Minsk", 10, 0.0).isEmpty());
+    }
+
+    @Test
+    void searchFindsSameHitsAsScoringEveryName() {
+        Random random = new Random(7);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String name = word(random) + " " + word(random);
+            names.add(name);
+            index.put(NameKind.CITY, (long) i, name);
+        }
+        for (int i = 0; i < 200; i++) {
+            String query = names.get(random.nextInt(names.size()))
+                    .substring(1);
+            double threshold = 0.2 + random.nextInt(5) / 10.0;
+            List<FuzzyHit> expected = new ArrayList<>();
+            for (int id = 0; id < names.size(); id++) {
+                double similarity = similarity(query, names.get(id));
+                if (similarity >= threshold) {
+                    expected.add(new FuzzyHit(NameKind.CITY, (long) id,
+                            names.get(id), similarity));
+                }
+            }
+            expected.sort(FuzzyHit.BEST_FIRST);
+
+            assertEquals(expected.subList(0, Math.min(5, expected.size())),
+                    index.search(query, 5, threshold));
+        }
+    }
+
+    private static double similarity(final String first,
+                                     final String second) {
+        Set<Long> firstTrigrams = new HashSet<>();
+        Arrays.stream(TrigramIndex.trigrams(first))
+                .forEach(firstTrigrams::add);
+        long[] secondTrigrams = TrigramIndex.trigrams(second);
+        long common = Arrays.stream(secondTrigrams)
+                .filter(firstTrigrams::contains).count();
+        return (double) common / (firstTrigrams.size()
+                + secondTrigrams.length - common);
+    }
+
+    private static String word(final Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 3 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(6)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package com.mishail.country_search.service;
+
+import com.mishail.country_search.cache.CacheProperties;
+import com.mishail.country_search.cache.CacheService;
+import com.mishail.country_search.dto.AggregateRow;
+import com.mishail.country_search.exception.BadRequestException;
+import com.mishail.country_search.repository.AggregationRepository;
+import com.mishail.country_search.search.AggregationColumns;
+import com.mishail.country_search.search.AggregationProperties;
+import com.mishail.country_search.search.GroupBy;
+import com.mishail.country_search.search.NumericColumn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AggregationServiceTest {
+
+    @Mock
+    private AggregationRepository aggregationRepository;
+
+    @Mock
+    private AggregationColumns aggregationColumns;
+
+    private final AggregationProperties properties =
+            new AggregationProperties();
+
+    private CacheService cacheService;
+
+    private AggregationService aggregationService;
+
+    private final List<AggregateRow> rows = List.of(
+            new AggregateRow("Polish", 2, 3.0, 1.5, 1.0, 2.0));
+
+    @BeforeEach
+    void setUp() {
+        cacheService = new CacheService(new CacheProperties());
+        aggregationService = new AggregationService(aggregationRepository,
+                aggregationColumns, properties, cacheService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheService.shutdown();
+    }
+
+    @Test
+    void aggregatePushesGroupByToDatabaseOnce() {
+        when(aggregationRepository.aggregate(GroupBy.LANGUAGE,
+                NumericColumn.COUNTRY_GDP)).thenReturn(rows);
+
+        assertEquals(rows, aggregationService.aggregate("language", "gdp"));
+        assertEquals(rows, aggregationService.aggregate("language", "gdp"));
+
+        verify(aggregationRepository, times(1))
+                .aggregate(GroupBy.LANGUAGE, NumericColumn.COUNTRY_GDP);
+        verifyNoInteractions(aggregationColumns);
+    }
+
+    @Test
+    void aggregateKeysCacheBySpec() {
+        when(aggregationRepository.aggregate(any(), any())).thenReturn(rows);
+
+        aggregationService.aggregate("language", "gdp");
+        aggregationService.aggregate("religion", "gdp");
+        aggregationService.aggregate("language", "area");
+
+        verify(aggregationRepository, times(3)).aggregate(any(), any());
+    }
+
+    @Test
+    void aggregateReloadsAfterWrite() {
+        when(aggregationRepository.aggregate(GroupBy.NATION,
+                NumericColumn.COUNTRY_POPULATION)).thenReturn(rows);
+
+        aggregationService.aggregate("nation", "population");
+        cacheService.bumpVersion("allCountries");
+        aggregationService.aggregate("nation", "population");
+
+        verify(aggregationRepository, times(2)).aggregate(GroupBy.NATION,
+                NumericColumn.COUNTRY_POPULATION);
+    }
+
+    @Test
+    void aggregateUsesColumnsInMemoryMode() {
+        properties.setInMemory(true);
+        when(aggregationColumns.aggregate(GroupBy.RELIGION,
+                NumericColumn.COUNTRY_AREA, cacheService.eTag("allCountries")))
+                .thenReturn(rows);
+
+        assertEquals(rows, aggregationService.aggregate("religion", "area"));
+        verifyNoInteractions(aggregationRepository);
+    }
+
+    @Test
+    void aggregateRejectsUnknownSpec() {
+        assertThrows(BadRequestException.class,
+                () -> aggregationService.aggregate("continent", "gdp"));
+        assertThrows(BadRequestException.class,
+                () -> aggregationService.aggregate("nation", "height"));
+        verifyNoInteractions(aggregationRepository, aggregationColumns);
+    }
+}
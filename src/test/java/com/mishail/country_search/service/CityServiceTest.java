@@ -1,15 +1,21 @@
 package com.mishail.country_search.service;
 
+import com.mishail.country_search.cache.CacheEntity;
+import com.mishail.country_search.cache.CacheProperties;
 import com.mishail.country_search.cache.CacheService;
+import com.mishail.country_search.dto.CityDto;
 import com.mishail.country_search.exception.ObjectExistedException;
 import com.mishail.country_search.exception.ObjectNotFoundException;
 import com.mishail.country_search.model.City;
 import com.mishail.country_search.model.Country;
 import com.mishail.country_search.repository.CityRepository;
 import com.mishail.country_search.repository.CountryRepository;
+import com.mishail.country_search.search.ColumnIndex;
+import com.mishail.country_search.search.SearchIndex;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -17,8 +23,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -38,54 +50,100 @@ class CityServiceTest {
     @Mock
     private CacheService cacheService;
 
+    @Mock
+    private SearchIndex searchIndex;
+
+    @Mock
+    private ColumnIndex columnIndex;
+
     @InjectMocks
     private CityService cityService;
 
+    private void whenNotCached(final String key) {
+        when(cacheService.computeIfAbsent(eq(key), any(), any()))
+                .thenAnswer(invocation -> invocation
+                        .<Supplier<?>>getArgument(1).get());
+    }
+
+    private void whenNotCached(final String region, final long id) {
+        when(cacheService.computeIfAbsent(eq(region), eq(id), any(), any()))
+                .thenAnswer(invocation -> invocation
+                        .<Supplier<?>>getArgument(2).get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private UnaryOperator<List<CityDto>> allCitiesRemapping() {
+        ArgumentCaptor<UnaryOperator<List<CityDto>>> remapping =
+                ArgumentCaptor.forClass(UnaryOperator.class);
+        verify(cacheService).computeIfPresent(eq("allCities"), remapping.capture(), any());
+        return remapping.getValue();
+    }
+
+    private static City city(final Long id, final String name) {
+        City city = new City();
+        city.setId(id);
+        city.setName(name);
+        return city;
+    }
+
     @Test
     void getCitiesWhenNotCached() {
-        List<City> cities = new ArrayList<>();
-        when(cacheService.containsKey("allCities")).thenReturn(false);
-        when(cityRepository.findAll()).thenReturn(cities);
+        City city = city(1L, "Minsk");
+        whenNotCached("allCities");
+        when(cityRepository.findAll()).thenReturn(List.of(city));
 
-        List<City> result = cityService.getCities();
+        List<CityDto> result = cityService.getCities();
 
-        assertEquals(cities, result);
-        verify(cacheService).put("allCities", cities);
+        assertEquals(List.of(CityDto.from(city)), result);
+        verify(cityRepository).findAll();
+        verify(cacheService).computeIfAbsent(eq("allCities"), any(), any());
     }
 
     @Test
     void getCitiesWhenCached() {
-        List<City> cities = new ArrayList<>();
-        when(cacheService.containsKey("allCities")).thenReturn(true);
-        when(cacheService.get("allCities")).thenReturn(cities);
+        List<CityDto> cities = new ArrayList<>();
+        when(cacheService.computeIfAbsent(eq("allCities"), any(), any()))
+                .thenReturn(cities);
 
-        List<City> result = cityService.getCities();
+        List<CityDto> result = cityService.getCities();
 
         assertEquals(cities, result);
         verifyNoInteractions(cityRepository);
     }
 
+    @Test
+    void getCitiesPage() {
+        City city = city(5L, "Minsk");
+        when(cityRepository.findByIdGreaterThanOrderByIdAsc(4L, Limit.of(2)))
+                .thenReturn(List.of(city));
+
+        List<CityDto> result = cityService.getCities(4L, 2);
+
+        assertEquals(List.of(CityDto.from(city)), result);
+        verifyNoInteractions(cacheService);
+    }
+
     @Test
     void getCitiesByCountryByIdWhenNotCached() {
         Long countryId = 1L;
-        Set<City> cities = new HashSet<>();
+        City city = city(1L, "Minsk");
         Country country = new Country();
         country.setId(countryId);
-        country.setCities(cities);
-        when(cacheService.containsKey("allCitiesByCountryId_" + countryId)).thenReturn(false);
+        country.setCities(new HashSet<>(Set.of(city)));
+        whenNotCached("allCitiesByCountryId_", countryId);
         when(countryRepository.findCountryWithCitiesById(countryId))
                 .thenReturn(Optional.of(country));
 
-        Set<City> result = cityService.getCitiesByCountryId(countryId);
+        Set<CityDto> result = cityService.getCitiesByCountryId(countryId);
 
-        assertEquals(cities, result);
-        verify(cacheService).put("allCitiesByCountryId_" + countryId, cities);
+        assertEquals(Set.of(CityDto.from(city)), result);
+        verify(cacheService).computeIfAbsent(eq("allCitiesByCountryId_"), eq(countryId), any(), any());
     }
 
     @Test
     void getCitiesByCountryByIdWhenNotCachedAndNotExist() {
         Long countryId = 1L;
-        when(cacheService.containsKey("allCitiesByCountryId_" + countryId)).thenReturn(false);
+        whenNotCached("allCitiesByCountryId_", countryId);
         when(countryRepository.findCountryWithCitiesById(countryId))
                 .thenReturn(Optional.empty());
 
@@ -93,18 +151,18 @@ class CityServiceTest {
 
         verify(countryRepository, times(1)).findCountryWithCitiesById(countryId);
         verifyNoMoreInteractions(countryRepository);
-        verify(cacheService, times(1)).containsKey("allCitiesByCountryId_" + countryId);
+        verify(cacheService, times(1)).computeIfAbsent(eq("allCitiesByCountryId_"), eq(countryId), any(), any());
         verifyNoMoreInteractions(cacheService);
     }
 
     @Test
     void getCitiesByCountryByIdWhenCached() {
         Long countryId = 1L;
-        Set<City> cities = new HashSet<>();
-        when(cacheService.containsKey("allCitiesByCountryId_" + countryId)).thenReturn(true);
-        when(cacheService.get("allCitiesByCountryId_" + countryId)).thenReturn(cities);
+        Set<CityDto> cities = new HashSet<>();
+        when(cacheService.computeIfAbsent(eq("allCitiesByCountryId_"), eq(countryId), any(), any()))
+                .thenReturn(cities);
 
-        Set<City> result = cityService.getCitiesByCountryId(countryId);
+        Set<CityDto> result = cityService.getCitiesByCountryId(countryId);
 
         assertEquals(cities, result);
         verifyNoInteractions(countryRepository);
@@ -121,17 +179,7 @@ class CityServiceTest {
         country.setCities(new HashSet<>());
         country.setNations(new HashSet<>());
 
-        List<City> cities = new ArrayList<>();
-        List<Country> countries = new ArrayList<>();
-        countries.add(country);
-
         when(countryRepository.findCountryWithCitiesById(countryId)).thenReturn(Optional.of(country));
-        when(cacheService.containsKey(anyString())).thenReturn(true);
-        when(cacheService.get("allCities")).thenReturn(cities);
-        when(cacheService.get("allCitiesByCountryId_" + country.getId())).thenReturn(country.getCities());
-        when(cacheService.get("allCountries")).thenReturn(countries);
-        when(cacheService.get("countryId_" + country.getId())).thenReturn(country);
-
 
         City result = cityService.addNewCityByCountryId(countryId, cityRequest);
 
@@ -139,10 +187,10 @@ class CityServiceTest {
         assertTrue(country.getCities().contains(cityRequest));
         verify(cityRepository).save(cityRequest);
         verify(countryRepository).save(country);
-        verify(cacheService).put("allCities", cities);
-        verify(cacheService).put("allCitiesByCountryId_" + country.getId(), country.getCities());
-        verify(cacheService).remove("allCountries");
-        verify(cacheService).remove("countryId_" + country.getId());
+        verify(cacheService).invalidate(CacheEntity.COUNTRY, country.getId());
+        verify(cacheService).bumpVersion("allCities", "allCountries");
+        assertEquals(List.of(CityDto.from(cityRequest)),
+                allCitiesRemapping().apply(List.of()));
     }
 
     @Test
@@ -205,6 +253,29 @@ class CityServiceTest {
         List<City> result = cityService.addNewCitiesByCountryId(countryId, cities);
 
         assertEquals(result, cities);
+        assertEquals(Set.of(cityOne, cityTwo), country.getCities());
+        verify(cityRepository).saveAll(cities);
+        verify(countryRepository).saveAndFlush(country);
+        verify(countryRepository, times(1)).findCountryWithCitiesById(countryId);
+        verify(cacheService).invalidate(CacheEntity.COUNTRY, countryId);
+        assertEquals(List.of(CityDto.from(cityOne), CityDto.from(cityTwo)),
+                allCitiesRemapping().apply(List.of()));
+    }
+
+    @Test
+    void addNewCitiesByCountryIdWhenCityRepeated() {
+        Long countryId = 1L;
+        Country country = new Country();
+        country.setId(countryId);
+        country.setCities(new HashSet<>());
+
+        when(countryRepository.findCountryWithCitiesById(countryId)).thenReturn(Optional.of(country));
+
+        assertThrows(ObjectExistedException.class, () -> cityService
+                .addNewCitiesByCountryId(countryId,
+                        List.of(city(null, "Minsk"), city(null, "Minsk"))));
+        verifyNoInteractions(cityRepository);
+        verifyNoInteractions(cacheService);
     }
 
     @Test
@@ -235,12 +306,14 @@ class CityServiceTest {
 
         when(cityRepository.findById(cityId)).thenReturn(Optional.of(cityBeforeChanges));
         when(countryRepository.findCountryWithCitiesByCityId(cityId)).thenReturn(Optional.of(country));
-        when(cacheService.containsKey(anyString())).thenReturn(false);
-
-
         City result = cityService.updateCity(cityId, name, population, areaSquareKm);
 
         assertEquals(updatedCity, result);
+        CityDto other = CityDto.from(city(2L, "Brest"));
+        assertEquals(List.of(CityDto.from(updatedCity), other),
+                allCitiesRemapping().apply(List.of(
+                        new CityDto(cityId, "Minsk", 100000.0, 20000.0),
+                        other)));
     }
 
     @Test
@@ -332,22 +405,19 @@ class CityServiceTest {
         country.setCities(cities);
         country.setNations(new HashSet<>());
 
-        List<City> allCities = new ArrayList<>();
-        allCities.add(city);
+        CityDto other = CityDto.from(city(2L, "Grodno"));
 
         when(countryRepository.findCountryWithCitiesById(countryId)).thenReturn(Optional.of(country));
         when(cityRepository.findById(cityId)).thenReturn(Optional.of(city));
-        when(cacheService.containsKey(anyString())).thenReturn(false);
-        when(cacheService.containsKey("allCities")).thenReturn(true);
-        when(cacheService.get("allCities")).thenReturn(allCities);
-
 
         cityService.deleteCityByIdFromCountryByCountryId(countryId, cityId);
 
         verify(cityRepository).deleteById(cityId);
         verify(countryRepository).save(country);
-        verify(cacheService).put("allCities", allCities);
+        verify(cacheService).invalidate(CacheEntity.COUNTRY, countryId);
         assertFalse(country.getCities().contains(city));
+        assertEquals(List.of(other), allCitiesRemapping()
+                .apply(List.of(CityDto.from(city), other)));
     }
 
     @Test
@@ -399,23 +469,19 @@ class CityServiceTest {
         country.setCities(cities);
         country.setNations(new HashSet<>());
 
-        List<City> allCities = new ArrayList<>();
-        allCities.add(city1);
-        allCities.add(city2);
+        CityDto other = CityDto.from(city(3L, "Warsaw"));
 
         when(countryRepository.findCountryWithCitiesById(countryId)).thenReturn(Optional.of(country));
-        when(cacheService.containsKey(anyString())).thenReturn(false);
-        when(cacheService.containsKey("allCities")).thenReturn(true);
-        when(cacheService.get("allCities")).thenReturn(allCities);
-
 
         cityService.deleteCitiesByCountryId(countryId);
 
         verify(cityRepository).deleteById(city1.getId());
         verify(cityRepository).deleteById(city2.getId());
         verify(countryRepository).save(country);
-        verify(cacheService).put("allCities", allCities);
+        verify(cacheService).invalidate(CacheEntity.COUNTRY, countryId);
         assertTrue(country.getCities().isEmpty());
+        assertEquals(List.of(other), allCitiesRemapping().apply(List.of(
+                CityDto.from(city1), other, CityDto.from(city2))));
     }
 
     @Test
@@ -429,4 +495,44 @@ class CityServiceTest {
         verify(countryRepository, times(1)).findCountryWithCitiesById(countryId);
         verifyNoMoreInteractions(countryRepository);
     }
-}
\ No newline at end of file
+
+    @Test
+    void cachedCitiesChangeOnlyAfterCommit() {
+        CacheProperties properties = new CacheProperties();
+        properties.setCleanupInterval(Duration.ZERO);
+        CacheService cache = new CacheService(properties);
+        CityService service = new CityService(cityRepository,
+                countryRepository, cache, searchIndex, columnIndex, null);
+        City minsk = city(1L, "Minsk");
+        Country country = new Country();
+        country.setId(1L);
+        country.setCities(new HashSet<>(Set.of(minsk)));
+        when(cityRepository.findAll()).thenReturn(List.of(minsk));
+        when(countryRepository.findCountryWithCitiesById(1L))
+                .thenReturn(Optional.of(country));
+        List<CityDto> cached = service.getCities();
+
+        // Rolled back: the synchronizations are dropped unrun
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.addNewCityByCountryId(1L, city(2L, "Gomel"));
+            assertEquals(cached, service.getCities());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(cached, service.getCities());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.addNewCityByCountryId(1L, city(3L, "Brest"));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(List.of("Minsk", "Brest"), service.getCities()
+                .stream().map(CityDto::name).toList());
+        verify(cityRepository, times(1)).findAll();
+        cache.shutdown();
+    }
+}
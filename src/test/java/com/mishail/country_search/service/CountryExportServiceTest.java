@@ -0,0 +1,88 @@
+package com.mishail.country_search.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mishail.country_search.dto.CountryDto;
+import com.mishail.country_search.model.AttributeDictionary;
+import com.mishail.country_search.model.City;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.model.Nation;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties =
+        "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CountryExportService.class, AttributeDictionary.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class CountryExportServiceTest {
+
+    private static final int COUNTRIES = 1200;
+
+    @Autowired
+    private CountryExportService countryExportService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void exportCountriesWritesOneLinePerCountryInChunks() throws Exception {
+        Nation nation = new Nation();
+        nation.setName("Belarusians");
+        entityManager.persist(nation);
+        for (int i = 0; i < COUNTRIES; i++) {
+            Country country = new Country();
+            country.setName("country " + i);
+            country.setNations(new HashSet<>(Set.of(nation)));
+            City city = new City();
+            city.setName("city " + i);
+            country.setCities(new HashSet<>(Set.of(city)));
+            entityManager.persist(country);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(COUNTRIES, countryExportService.exportCountries(output));
+
+        // one cursor and two collection queries per chunk of 500
+        assertEquals(7, statistics.getPrepareStatementCount());
+        assertFalse(entityManager.getEntityManager().contains(nation));
+        String[] lines = output.toString(StandardCharsets.UTF_8)
+                .split("\n");
+        assertEquals(COUNTRIES, lines.length);
+        List<CountryDto> countries = new ArrayList<>();
+        for (String line : lines) {
+            countries.add(objectMapper.readValue(line, CountryDto.class));
+        }
+        assertEquals("country 0", countries.get(0).name());
+        assertEquals("country 1199", countries.get(COUNTRIES - 1).name());
+        assertEquals(1, countries.get(700).cities().size());
+        assertEquals("Belarusians", countries.get(700).nations()
+                .iterator().next().name());
+    }
+}
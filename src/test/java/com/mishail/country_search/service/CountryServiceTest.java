@@ -1,14 +1,21 @@
 package com.mishail.country_search.service;
 
+import com.mishail.country_search.cache.CacheEntity;
 import com.mishail.country_search.cache.CacheService;
+import com.mishail.country_search.dto.CountryDto;
 import com.mishail.country_search.exception.ObjectExistedException;
 import com.mishail.country_search.exception.ObjectNotFoundException;
+import com.mishail.country_search.model.City;
 import com.mishail.country_search.model.Country;
 import com.mishail.country_search.model.Nation;
 import com.mishail.country_search.repository.CountryRepository;
+import com.mishail.country_search.search.ColumnIndex;
+import com.mishail.country_search.search.MembershipIndex;
+import com.mishail.country_search.search.SearchIndex;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -16,8 +23,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Limit;
 
 import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -34,51 +44,112 @@ class CountryServiceTest {
     @Mock
     private CacheService cacheService;
 
+    @Mock
+    private SearchIndex searchIndex;
+
+    @Mock
+    private ColumnIndex columnIndex;
+
+    @Mock
+    private MembershipIndex membershipIndex;
+
     @InjectMocks
     private CountryService countryService;
 
+    private void whenNotCached(final String key) {
+        when(cacheService.computeIfAbsent(eq(key), any(), any()))
+                .thenAnswer(invocation -> invocation
+                        .<Supplier<?>>getArgument(1).get());
+    }
+
+    private void whenNotCached(final String region, final long id) {
+        when(cacheService.computeIfAbsent(eq(region), eq(id), any(), any()))
+                .thenAnswer(invocation -> invocation
+                        .<Supplier<?>>getArgument(2).get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> UnaryOperator<T> remapping(final String key) {
+        ArgumentCaptor<UnaryOperator<T>> remapping =
+                ArgumentCaptor.forClass(UnaryOperator.class);
+        verify(cacheService).computeIfPresent(eq(key), remapping.capture(), any());
+        return remapping.getValue();
+    }
+
     @Test
     void getCountriesWhenNotCached() {
-        List<Country> countries = new ArrayList<>();
-        when(cacheService.containsKey("allCountries")).thenReturn(false);
+        Country country = new Country();
+        country.setId(1L);
+        country.setName("Belarus");
+        country.setCities(new HashSet<>());
+        country.setNations(new HashSet<>());
+        List<Country> countries = List.of(country);
+        whenNotCached("allCountries");
         when(countryRepository.findAllWithCitiesAndNations()).thenReturn(countries);
 
-        List<Country> result = countryService.getCountries();
+        List<CountryDto> result = countryService.getCountries();
 
-        assertEquals(countries, result);
-        verify(cacheService).put("allCountries", countries);
+        assertEquals(List.of(CountryDto.from(country)), result);
+        verify(countryRepository).findAllWithCitiesAndNations();
+        verify(cacheService).computeIfAbsent(eq("allCountries"), any(), any());
     }
 
     @Test
     void getCountriesWhenCached() {
-        List<Country> countries = new ArrayList<>();
-        when(cacheService.containsKey("allCountries")).thenReturn(true);
-        when(cacheService.get("allCountries")).thenReturn(countries);
+        List<CountryDto> countries = new ArrayList<>();
+        when(cacheService.computeIfAbsent(eq("allCountries"), any(), any()))
+                .thenReturn(countries);
 
-        List<Country> result = countryService.getCountries();
+        List<CountryDto> result = countryService.getCountries();
 
         assertEquals(countries, result);
         verifyNoInteractions(countryRepository);
     }
 
+    @Test
+    void getCountriesPage() {
+        Country country = new Country();
+        country.setId(3L);
+        country.setName("Belarus");
+        when(countryRepository.findIdsAfter(2L, Limit.of(1)))
+                .thenReturn(List.of(3L));
+        when(countryRepository.findAllWithCitiesAndNationsByIdIn(List.of(3L)))
+                .thenReturn(List.of(country));
+
+        List<CountryDto> result = countryService.getCountries(2L, 1);
+
+        assertEquals(List.of(CountryDto.from(country)), result);
+        verifyNoInteractions(cacheService);
+    }
+
+    @Test
+    void getCountriesPageAfterLastCountry() {
+        when(countryRepository.findIdsAfter(3L, Limit.of(10)))
+                .thenReturn(List.of());
+
+        assertTrue(countryService.getCountries(3L, 10).isEmpty());
+        verify(countryRepository, never())
+                .findAllWithCitiesAndNationsByIdIn(any());
+    }
+
     @Test
     void getCountryByIdWhenNotCached() {
         Long countryId = 1L;
         Country country = new Country();
         country.setId(countryId);
-        when(cacheService.containsKey("countryId_" + countryId)).thenReturn(false);
+        whenNotCached("countryId_", countryId);
         when(countryRepository.findCountryWithCitiesAndNationsById(countryId))
                 .thenReturn(Optional.of(country));
 
-        Country result = countryService.getCountryById(countryId);
+        CountryDto result = countryService.getCountryById(countryId);
 
-        assertEquals(country, result);
-        verify(cacheService).put("countryId_" + countryId, country);
+        assertEquals(CountryDto.from(country), result);
+        verify(cacheService).computeIfAbsent(eq("countryId_"), eq(countryId), any(), any());
     }
     @Test
     void getCountryByIdWhenNotCachedAndNotExist() {
         Long countryId = 1L;
-        when(cacheService.containsKey("countryId_" + countryId)).thenReturn(false);
+        whenNotCached("countryId_", countryId);
         when(countryRepository.findCountryWithCitiesAndNationsById(countryId))
                 .thenReturn(Optional.empty());
 
@@ -86,19 +157,18 @@ class CountryServiceTest {
 
         verify(countryRepository, times(1)).findCountryWithCitiesAndNationsById(countryId);
         verifyNoMoreInteractions(countryRepository);
-        verify(cacheService, times(1)).containsKey("countryId_" + countryId);
+        verify(cacheService, times(1)).computeIfAbsent(eq("countryId_"), eq(countryId), any(), any());
         verifyNoMoreInteractions(cacheService);
     }
 
     @Test
     void getCountryByIdWhenCached() {
         Long countryId = 1L;
-        Country country = new Country();
-        country.setId(countryId);
-        when(cacheService.containsKey("countryId_" + countryId)).thenReturn(true);
-        when(cacheService.get("countryId_" + countryId)).thenReturn(country);
+        CountryDto country = CountryDto.from(new Country());
+        when(cacheService.computeIfAbsent(eq("countryId_"), eq(countryId), any(), any()))
+                .thenReturn(country);
 
-        Country result = countryService.getCountryById(countryId);
+        CountryDto result = countryService.getCountryById(countryId);
 
         assertEquals(country, result);
         verifyNoInteractions(countryRepository);
@@ -107,18 +177,20 @@ class CountryServiceTest {
     @Test
     void addNewCountry() {
         Country country = new Country();
-        List<Country> countries = new ArrayList<>();
+        country.setName("Belarus");
+        CountryDto snapshot = CountryDto.from(country);
         when(countryRepository.findCountryByName(anyString())).thenReturn(Optional.empty());
-        when(cacheService.containsKey("allCountries")).thenReturn(true);
-        when(cacheService.get("allCountries")).thenReturn(countries);
 
         Country result = countryService.addNewCountry(country);
 
         assertEquals(country, result);
-        verify(cacheService).put("countryId_" + country.getId(), country);
-        verify(cacheService).put("allCountries", countries);
+        verify(cacheService).put(eq("countryId_" + country.getId()), eq(snapshot), any());
         verify(countryRepository).save(country);
-        assertTrue(countries.contains(country));
+        List<CountryDto> cached = List.of();
+        List<CountryDto> updated = this.<List<CountryDto>>remapping("allCountries")
+                .apply(cached);
+        assertEquals(List.of(snapshot), updated);
+        assertTrue(cached.isEmpty());
     }
 
     @Test
@@ -138,8 +210,10 @@ class CountryServiceTest {
     void addNewCountries() {
         Country countryOne = new Country();
         countryOne.setId(1L);
+        countryOne.setName("Belarus");
         Country countryTwo  = new Country();
         countryTwo.setId(2L);
+        countryTwo.setName("Poland");
 
         List<Country> countries = new ArrayList<>();
         countries.add(countryOne);
@@ -148,6 +222,38 @@ class CountryServiceTest {
         List<Country> result = countryService.addNewCountries(countries);
 
         assertEquals(result, countries);
+        verify(countryRepository).findExistingNames(Set.of("Belarus", "Poland"));
+        verify(countryRepository).saveAllAndFlush(countries);
+        verify(countryRepository, never()).save(any());
+        verify(cacheService).bumpVersion("allCountries");
+        assertEquals(List.of(CountryDto.from(countryOne), CountryDto.from(countryTwo)),
+                this.<List<CountryDto>>remapping("allCountries").apply(List.of()));
+    }
+
+    @Test
+    void addNewCountriesWhenNameExists() {
+        Country country = new Country();
+        country.setName("Belarus");
+        when(countryRepository.findExistingNames(Set.of("Belarus")))
+                .thenReturn(List.of("Belarus"));
+
+        assertThrows(ObjectExistedException.class,
+                () -> countryService.addNewCountries(List.of(country)));
+        verify(countryRepository, never()).saveAllAndFlush(any());
+        verifyNoInteractions(cacheService);
+    }
+
+    @Test
+    void addNewCountriesWhenNameRepeated() {
+        Country countryOne = new Country();
+        countryOne.setName("Belarus");
+        Country countryTwo = new Country();
+        countryTwo.setName("Belarus");
+
+        assertThrows(ObjectExistedException.class, () -> countryService
+                .addNewCountries(List.of(countryOne, countryTwo)));
+        verifyNoInteractions(countryRepository);
+        verifyNoInteractions(cacheService);
     }
 
     @Test
@@ -183,14 +289,12 @@ class CountryServiceTest {
 
         when(countryRepository.findCountryWithCitiesAndNationsById(countryId)).thenReturn(Optional.of(existingCountry));
         when(countryRepository.findCountryByName(newName)).thenReturn(Optional.empty());
-        when(cacheService.containsKey("allCountries")).thenReturn(true);
-        when(cacheService.containsKey("countryId_" + updatedCountry.getId())).thenReturn(true);
 
         Country result = countryService.updateCountry(countryId, newName, newCapital, newPopulation, newAreaSquareKm, newGdp);
 
         assertEquals(updatedCountry, result);
-        verify(cacheService).put("countryId_" + updatedCountry.getId(), updatedCountry);
-        verify(cacheService).remove("allCountries");
+        verify(cacheService).invalidate(CacheEntity.COUNTRY, countryId);
+        verify(cacheService).bumpVersion("allCountries");
         assertTrue(countries.contains(updatedCountry));
     }
 
@@ -231,7 +335,9 @@ class CountryServiceTest {
         Long countryId = 1L;
         Country country = new Country();
         country.setId(countryId);
-        country.setCities(new HashSet<>());
+        City city = new City();
+        city.setId(3L);
+        country.setCities(new HashSet<>(Set.of(city)));
 
         Nation nation = new Nation();
         nation.setId(1L);
@@ -240,23 +346,16 @@ class CountryServiceTest {
 
         country.setNations(nations);
         when(countryRepository.findCountryWithCitiesAndNationsById(countryId)).thenReturn(Optional.of(country));
-        when(cacheService.containsKey("allCountries")).thenReturn(true);
-        when(cacheService.containsKey("countryId_" + country.getId())).thenReturn(true);
-        when(cacheService.containsKey("allCitiesByCountryId_"
-                + country.getId())).thenReturn(true);
-        when(cacheService.containsKey("allCities")).thenReturn(true);
-        when(cacheService.containsKey("allNationsByCountryId_" + country.getId())).thenReturn(true);
-        when(cacheService.containsKey("allCountriesByNationId_" + nation.getId())).thenReturn(true);
 
         countryService.deleteCountry(countryId);
 
-        verify(cacheService).remove("allCountries");
-        verify(cacheService).remove("countryId_" + countryId);
-        verify(cacheService).remove("allCitiesByCountryId_"
-                + countryId);
-        verify(cacheService).remove("allCities");
-        verify(cacheService).remove("allNationsByCountryId_" + countryId);
-        verify(cacheService).remove("allCountriesByNationId_" + nation.getId());
+        verify(cacheService).invalidate(CacheEntity.COUNTRY, countryId);
+        verify(cacheService).invalidate(CacheEntity.CITY, city.getId());
+        verify(cacheService).bumpVersion("allCountries", "allCities");
+        verifyNoMoreInteractions(cacheService);
+        verify(searchIndex).removeCountry(country);
+        verify(columnIndex).removeCountry(country);
+        verify(membershipIndex).removeCountry(country);
         verify(countryRepository).deleteById(countryId);
     }
 
@@ -0,0 +1,137 @@
+package com.mishail.country_search.service;
+
+import com.mishail.country_search.cache.CacheService;
+import com.mishail.country_search.dto.ImportResult;
+import com.mishail.country_search.exception.BadRequestException;
+import com.mishail.country_search.repository.BulkImportRepository;
+import com.mishail.country_search.repository.ImportFormat;
+import com.mishail.country_search.repository.ImportKind;
+import com.mishail.country_search.search.ColumnIndex;
+import com.mishail.country_search.search.MembershipIndex;
+import com.mishail.country_search.search.SearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImportServiceTest {
+
+    @Mock
+    private BulkImportRepository bulkImportRepository;
+
+    @Mock
+    private CacheService cacheService;
+
+    @Mock
+    private SearchIndex searchIndex;
+
+    @Mock
+    private ColumnIndex columnIndex;
+
+    @Mock
+    private MembershipIndex membershipIndex;
+
+    @InjectMocks
+    private ImportService importService;
+
+    private final InputStream input = new ByteArrayInputStream(new byte[0]);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void importRowsInvalidatesCacheOnce() {
+        ImportResult result = ImportResult.of("cities", 10, 3, 5);
+        when(bulkImportRepository.importRows(ImportKind.CITIES,
+                ImportFormat.CSV, input)).thenReturn(result);
+
+        assertEquals(result, importService.importRows(ImportKind.CITIES,
+                ImportFormat.CSV, input));
+        assertEquals(2, result.skipped());
+        verify(cacheService, times(1)).clear();
+        verify(cacheService, times(1)).bumpVersion("allCountries",
+                "allCities", "allNations");
+        ArgumentCaptor<Runnable> rebuild =
+                ArgumentCaptor.forClass(Runnable.class);
+        verify(cacheService).runInBackground(rebuild.capture());
+        verifyNoMoreInteractions(cacheService);
+        verifyNoInteractions(searchIndex, columnIndex, membershipIndex);
+
+        rebuild.getValue().run();
+
+        verify(searchIndex).rebuild();
+        verify(columnIndex).rebuild();
+        verify(membershipIndex).rebuild();
+    }
+
+    @Test
+    void importsCommittedWhileRebuildIsQueuedShareIt() {
+        when(bulkImportRepository.importRows(any(), any(), any()))
+                .thenReturn(ImportResult.of("nations", 1, 0, 1));
+        ArgumentCaptor<Runnable> rebuild =
+                ArgumentCaptor.forClass(Runnable.class);
+
+        importService.importRows(ImportKind.NATIONS, ImportFormat.CSV,
+                input);
+        importService.importRows(ImportKind.NATIONS, ImportFormat.CSV,
+                input);
+        verify(cacheService).runInBackground(rebuild.capture());
+        rebuild.getValue().run();
+        importService.importRows(ImportKind.NATIONS, ImportFormat.CSV,
+                input);
+
+        verify(cacheService, times(3)).clear();
+        verify(cacheService, times(2)).runInBackground(any());
+        verify(membershipIndex, times(1)).rebuild();
+    }
+
+    @Test
+    void importRowsRejectsIdsOutsideIntRangeBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        when(bulkImportRepository.importRows(ImportKind.COUNTRIES,
+                ImportFormat.CSV, input))
+                .thenReturn(ImportResult.of("countries", 1, 0, 1));
+        when(bulkImportRepository.maxMembershipId(ImportKind.COUNTRIES))
+                .thenReturn(Integer.MAX_VALUE + 1L);
+
+        assertThrows(BadRequestException.class, () -> importService
+                .importRows(ImportKind.COUNTRIES, ImportFormat.CSV, input));
+        assertTrue(TransactionSynchronizationManager.getSynchronizations()
+                .isEmpty());
+        verifyNoInteractions(cacheService, searchIndex);
+    }
+
+    @Test
+    void importRowsInvalidatesCacheAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        when(bulkImportRepository.importRows(ImportKind.NATIONS,
+                ImportFormat.NDJSON, input))
+                .thenReturn(ImportResult.of("nations", 1, 0, 1));
+
+        importService.importRows(ImportKind.NATIONS, ImportFormat.NDJSON,
+                input);
+
+        verifyNoInteractions(cacheService);
+        for (TransactionSynchronization synchronization
+                : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        verify(cacheService, times(1)).clear();
+    }
+}
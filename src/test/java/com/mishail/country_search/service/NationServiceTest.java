@@ -1,12 +1,17 @@
 package com.mishail.country_search.service;
 
+import com.mishail.country_search.cache.CacheEntity;
 import com.mishail.country_search.cache.CacheService;
 import com.mishail.country_search.exception.ObjectExistedException;
 import com.mishail.country_search.exception.ObjectNotFoundException;
+import com.mishail.country_search.dto.CountryDto;
+import com.mishail.country_search.dto.NationDto;
 import com.mishail.country_search.model.Country;
 import com.mishail.country_search.model.Nation;
 import com.mishail.country_search.repository.CountryRepository;
 import com.mishail.country_search.repository.NationRepository;
+import com.mishail.country_search.search.MembershipIndex;
+import com.mishail.country_search.search.SearchIndex;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.runner.RunWith;
@@ -17,10 +22,13 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Limit;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -37,33 +45,69 @@ class NationServiceTest {
     @Mock
     private CacheService cacheService;
 
+    @Mock
+    private SearchIndex searchIndex;
+
+    @Mock
+    private MembershipIndex membershipIndex;
+
     @InjectMocks
     private NationService nationService;
 
+    private void whenNotCached(final String key) {
+        when(cacheService.computeIfAbsent(eq(key), any(), any()))
+                .thenAnswer(invocation -> invocation
+                        .<Supplier<?>>getArgument(1).get());
+    }
+
+    private void whenNotCached(final String region, final long id) {
+        when(cacheService.computeIfAbsent(eq(region), eq(id), any(), any()))
+                .thenAnswer(invocation -> invocation
+                        .<Supplier<?>>getArgument(2).get());
+    }
+
     @Test
     void getNationsWhenNotCached() {
-        List<Nation> nations = new ArrayList<>();
-        when(cacheService.containsKey("allNations")).thenReturn(false);
+        Nation nation = new Nation();
+        nation.setId(1L);
+        nation.setName("Belarusians");
+        List<Nation> nations = List.of(nation);
+        whenNotCached("allNations");
         when(nationRepository.findAll()).thenReturn(nations);
 
-        List<Nation> result = nationService.getNations();
+        List<NationDto> result = nationService.getNations();
 
-        assertEquals(nations, result);
-        verify(cacheService).put("allNations", nations);
+        assertEquals(List.of(NationDto.from(nation)), result);
+        verify(nationRepository).findAll();
+        verify(cacheService).computeIfAbsent(eq("allNations"), any(), any());
     }
 
     @Test
     void getNationsWhenCached() {
-        List<Nation> nations = new ArrayList<>();
-        when(cacheService.containsKey("allNations")).thenReturn(true);
-        when(cacheService.get("allNations")).thenReturn(nations);
+        List<NationDto> nations = new ArrayList<>();
+        when(cacheService.computeIfAbsent(eq("allNations"), any(), any()))
+                .thenReturn(nations);
 
-        List<Nation> result = nationService.getNations();
+        List<NationDto> result = nationService.getNations();
 
         assertEquals(nations, result);
         verifyNoInteractions(nationRepository);
     }
 
+    @Test
+    void getNationsPage() {
+        Nation nation = new Nation();
+        nation.setId(2L);
+        nation.setName("Poles");
+        when(nationRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(20)))
+                .thenReturn(List.of(nation));
+
+        List<NationDto> result = nationService.getNations(0L, 20);
+
+        assertEquals(List.of(NationDto.from(nation)), result);
+        verifyNoInteractions(cacheService);
+    }
+
     @Test
     void getNationsByCountryByIdWhenNotCached() {
         Long countryId = 1L;
@@ -71,20 +115,20 @@ class NationServiceTest {
         Country country = new Country();
         country.setId(countryId);
         country.setNations(nations);
-        when(cacheService.containsKey("allNationsByCountryId_" + countryId)).thenReturn(false);
+        whenNotCached("allNationsByCountryId_", countryId);
         when(countryRepository.findCountryWithNationsById(countryId))
                 .thenReturn(Optional.of(country));
 
-        Set<Nation> result = nationService.getNationsByCountryId(countryId);
+        Set<NationDto> result = nationService.getNationsByCountryId(countryId);
 
-        assertEquals(nations, result);
-        verify(cacheService).put("allNationsByCountryId_" + countryId, nations);
+        assertEquals(Set.of(), result);
+        verify(cacheService).computeIfAbsent(eq("allNationsByCountryId_"), eq(countryId), any(), any());
     }
 
     @Test
     void getNationsByCountryByIdWhenNotCachedAndNotExist() {
         Long countryId = 1L;
-        when(cacheService.containsKey("allNationsByCountryId_" + countryId)).thenReturn(false);
+        whenNotCached("allNationsByCountryId_", countryId);
         when(countryRepository.findCountryWithNationsById(countryId))
                 .thenReturn(Optional.empty());
 
@@ -92,18 +136,18 @@ class NationServiceTest {
 
         verify(countryRepository, times(1)).findCountryWithNationsById(countryId);
         verifyNoMoreInteractions(countryRepository);
-        verify(cacheService, times(1)).containsKey("allNationsByCountryId_" + countryId);
+        verify(cacheService, times(1)).computeIfAbsent(eq("allNationsByCountryId_"), eq(countryId), any(), any());
         verifyNoMoreInteractions(cacheService);
     }
 
     @Test
     void getNationsByCountryByIdWhenCached() {
         Long countryId = 1L;
-        Set<Nation> nations = new HashSet<>();
-        when(cacheService.containsKey("allNationsByCountryId_" + countryId)).thenReturn(true);
-        when(cacheService.get("allNationsByCountryId_" + countryId)).thenReturn(nations);
+        Set<NationDto> nations = new HashSet<>();
+        when(cacheService.computeIfAbsent(eq("allNationsByCountryId_"), eq(countryId), any(), any()))
+                .thenReturn(nations);
 
-        Set<Nation> result = nationService.getNationsByCountryId(countryId);
+        Set<NationDto> result = nationService.getNationsByCountryId(countryId);
 
         assertEquals(nations, result);
         verifyNoInteractions(countryRepository);
@@ -112,30 +156,32 @@ class NationServiceTest {
     @Test
     void getCountriesByNationByIdWhenNotCached() {
         Long nationId = 1L;
-        Set<Country> countries = new HashSet<>();
+        Country country = new Country();
+        country.setId(1L);
+        country.setName("Belarus");
         Nation nation = new Nation();
         nation.setId(nationId);
-        nation.setCountries(new ArrayList<>(countries));
-        when(cacheService.containsKey("allCountriesByNationId_" + nationId)).thenReturn(false);
+        nation.setCountries(new ArrayList<>(List.of(country)));
+        whenNotCached("allCountriesByNationId_", nationId);
         when(nationRepository.findByIdWithCountriesWithCities(nationId))
                 .thenReturn(Optional.of(nation));
 
-        Set<Country> result = nationService.getCountriesByNationId(nationId);
+        Set<CountryDto> result = nationService.getCountriesByNationId(nationId);
 
-        assertEquals(countries, result);
-        verify(cacheService).put("allCountriesByNationId_" + nationId, countries);
+        assertEquals(Set.of(CountryDto.from(country)), result);
+        verify(cacheService).computeIfAbsent(eq("allCountriesByNationId_"), eq(nationId), any(), any());
     }
 
     @Test
     void getCountriesByNationByIdWhenNotCachedAndNotExist() {
         Long nationId = 1L;
-        when(cacheService.containsKey("allCountriesByNationId_" + nationId)).thenReturn(false);
+        whenNotCached("allCountriesByNationId_", nationId);
         when(nationRepository.findByIdWithCountriesWithCities(nationId))
                 .thenReturn(Optional.empty());
 
         assertThrows(ObjectNotFoundException.class, () -> nationService.getCountriesByNationId(nationId));
 
-        verify(cacheService, times(1)).containsKey("allCountriesByNationId_" + nationId);
+        verify(cacheService, times(1)).computeIfAbsent(eq("allCountriesByNationId_"), eq(nationId), any(), any());
         verifyNoMoreInteractions(cacheService);
         verify(nationRepository, times(1)).findByIdWithCountriesWithCities(nationId);
         verifyNoMoreInteractions(nationRepository);
@@ -144,11 +190,11 @@ class NationServiceTest {
     @Test
     void getCountriesByNationByIdWhenCached() {
         Long nationId = 1L;
-        Set<Country> countries = new HashSet<>();
-        when(cacheService.containsKey("allCountriesByNationId_" + nationId)).thenReturn(true);
-        when(cacheService.get("allCountriesByNationId_" + nationId)).thenReturn(countries);
+        Set<CountryDto> countries = new HashSet<>();
+        when(cacheService.computeIfAbsent(eq("allCountriesByNationId_"), eq(nationId), any(), any()))
+                .thenReturn(countries);
 
-        Set<Country> result = nationService.getCountriesByNationId(nationId);
+        Set<CountryDto> result = nationService.getCountriesByNationId(nationId);
 
         assertEquals(countries, result);
         verifyNoInteractions(nationRepository);
@@ -242,13 +288,45 @@ class NationServiceTest {
         nations.add(nationOne);
         nations.add(nationTwo);
 
+        Nation existingNation = new Nation();
+        existingNation.setId(5L);
+        existingNation.setName(nationOneName);
+
         when(countryRepository.findCountryWithNationsById(countryId)).thenReturn(Optional.of(country));
-        when(nationRepository.findNationByName(nationOneName)).thenReturn(nationOne);
-        when(nationRepository.findNationByName(nationTwoName)).thenReturn(nationTwo);
+        when(nationRepository.findByNameIn(List.of(nationOneName, nationTwoName)))
+                .thenReturn(List.of(existingNation));
 
         List<Nation> result = nationService.addNewNationsByCountryId(countryId, nations);
 
-        assertEquals(result, nations);
+        assertEquals(List.of(existingNation, nationTwo), result);
+        assertEquals(Set.of(existingNation, nationTwo), country.getNations());
+        verify(nationRepository).saveAll(List.of(nationTwo));
+        verify(countryRepository).saveAndFlush(country);
+        verify(cacheService).invalidate(CacheEntity.NATION, 5L);
+        verify(cacheService).invalidate(CacheEntity.COUNTRY, countryId);
+        verify(cacheService).bumpVersion("allNations", "allCountries");
+        verify(nationRepository, never()).findNationByName(any());
+        verify(membershipIndex).addMembers(countryId,
+                List.of(existingNation, nationTwo));
+    }
+
+    @Test
+    void addNewNationsByCountryIdWhenNationExistsInCountry() {
+        Long countryId = 1L;
+        Nation nation = new Nation();
+        nation.setName("Belarusian");
+        Country country = new Country();
+        country.setId(countryId);
+        country.setNations(new HashSet<>(Set.of(nation)));
+        Nation nationRequest = new Nation();
+        nationRequest.setName("Belarusian");
+
+        when(countryRepository.findCountryWithNationsById(countryId)).thenReturn(Optional.of(country));
+
+        assertThrows(ObjectExistedException.class, () -> nationService
+                .addNewNationsByCountryId(countryId, List.of(nationRequest)));
+        verifyNoInteractions(nationRepository);
+        verifyNoInteractions(cacheService);
     }
 
     @Test
@@ -277,6 +355,9 @@ class NationServiceTest {
         Nation result = nationService.updateNation(nationId, name, language, religion);
 
         assertEquals(updatedNation, result);
+        verify(cacheService).invalidate(CacheEntity.NATION, nationId);
+        verify(cacheService).bumpVersion("allNations", "allCountries");
+        verifyNoInteractions(countryRepository);
     }
 
     @Test
@@ -341,6 +422,7 @@ class NationServiceTest {
         verify(countryRepository).save(countryTwo);
         assertFalse(countryOne.getNations().contains(nation));
         assertFalse(countryTwo.getNations().contains(nation));
+        verify(membershipIndex).removeNation(nationId);
     }
 
     @Test
@@ -376,6 +458,7 @@ class NationServiceTest {
 
         verify(countryRepository).save(country);
         assertFalse(country.getNations().contains(nation));
+        verify(membershipIndex).removeMember(countryId, nationId);
     }
 
     @Test
@@ -0,0 +1,108 @@
+package com.mishail.country_search.service;
+
+import com.mishail.country_search.dto.CityDto;
+import com.mishail.country_search.dto.CountryDto;
+import com.mishail.country_search.exception.BadRequestException;
+import com.mishail.country_search.model.City;
+import com.mishail.country_search.model.Country;
+import com.mishail.country_search.repository.CityRepository;
+import com.mishail.country_search.repository.CountryRepository;
+import com.mishail.country_search.search.ColumnIndex;
+import com.mishail.country_search.search.NumericColumn;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QueryServiceTest {
+
+    @Mock
+    private ColumnIndex columnIndex;
+
+    @Mock
+    private CountryRepository countryRepository;
+
+    @Mock
+    private CityRepository cityRepository;
+
+    @InjectMocks
+    private QueryService queryService;
+
+    private static Country country(final Long id) {
+        Country country = new Country();
+        country.setId(id);
+        country.setCities(new HashSet<>());
+        country.setNations(new HashSet<>());
+        return country;
+    }
+
+    private static City city(final Long id) {
+        City city = new City();
+        city.setId(id);
+        return city;
+    }
+
+    @Test
+    void getCountriesInRangeKeepsIndexOrder() {
+        when(columnIndex.range(NumericColumn.COUNTRY_GDP,
+                1E9, Double.POSITIVE_INFINITY, 10))
+                .thenReturn(new long[] {3, 1});
+        when(countryRepository.findAllWithCitiesAndNationsByIdIn(
+                List.of(3L, 1L)))
+                .thenReturn(List.of(country(1L), country(3L)));
+
+        assertEquals(List.of(3L, 1L), queryService
+                .getCountriesInRange("gdp", 1E9, null, 10).stream()
+                .map(CountryDto::id).toList());
+    }
+
+    @Test
+    void getTopCities() {
+        when(columnIndex.top(NumericColumn.CITY_POPULATION, 2, true))
+                .thenReturn(new long[] {7, 5});
+        when(cityRepository.findAllById(List.of(7L, 5L)))
+                .thenReturn(List.of(city(5L), city(7L)));
+
+        assertEquals(List.of(7L, 5L), queryService
+                .getTopCities("population", 2, true).stream()
+                .map(CityDto::id).toList());
+    }
+
+    @Test
+    void getTopCountriesAndCitiesInRange() {
+        when(columnIndex.top(NumericColumn.COUNTRY_AREA, 1, false))
+                .thenReturn(new long[] {2});
+        when(countryRepository.findAllWithCitiesAndNationsByIdIn(
+                List.of(2L))).thenReturn(List.of(country(2L)));
+        when(columnIndex.range(NumericColumn.CITY_AREA,
+                Double.NEGATIVE_INFINITY, 100.0, 5))
+                .thenReturn(new long[0]);
+
+        assertEquals(1, queryService.getTopCountries("area", 1, false)
+                .size());
+        assertTrue(queryService.getCitiesInRange("area", null, 100.0, 5)
+                .isEmpty());
+    }
+
+    @Test
+    void badFieldOrRangeIsRejected() {
+        assertEquals("field gdp can't be queried, use population or area",
+                assertThrows(BadRequestException.class, () -> queryService
+                        .getTopCities("gdp", 5, true)).getMessage());
+        assertEquals("field size can't be queried, use population, area "
+                        + "or gdp", assertThrows(BadRequestException.class,
+                () -> queryService.getTopCountries("size", 5, true))
+                .getMessage());
+        assertThrows(BadRequestException.class,
+                () -> queryService.getCountriesInRange("gdp", 5.0, 1.0, 5));
+        verifyNoInteractions(columnIndex);
+    }
+}
@@ -0,0 +1,80 @@
+package com.mishail.country_search.service;
+
+import com.mishail.country_search.exception.BadRequestException;
+import com.mishail.country_search.repository.FuzzySearchRepository;
+import com.mishail.country_search.search.FuzzyHit;
+import com.mishail.country_search.search.NameKind;
+import com.mishail.country_search.search.SearchHit;
+import com.mishail.country_search.search.SearchIndex;
+import com.mishail.country_search.search.SearchProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SearchServiceTest {
+
+    @Mock
+    private SearchIndex searchIndex;
+
+    @Mock
+    private FuzzySearchRepository fuzzySearchRepository;
+
+    @Mock
+    private SearchProperties properties;
+
+    @InjectMocks
+    private SearchService searchService;
+
+    @Test
+    void searchByPrefix() {
+        List<SearchHit> hits =
+                List.of(new SearchHit(NameKind.COUNTRY, 1L, "Belarus"));
+        when(searchIndex.search("Bel", 10)).thenReturn(hits);
+
+        assertEquals(hits, searchService.searchByPrefix("Bel", 10));
+    }
+
+    @Test
+    void searchByPrefixRejectsBadArguments() {
+        assertThrows(BadRequestException.class,
+                () -> searchService.searchByPrefix(" ", 10));
+        assertThrows(BadRequestException.class,
+                () -> searchService.searchByPrefix("Bel", 0));
+        assertThrows(BadRequestException.class,
+                () -> searchService.searchByPrefix("Bel",
+                        SearchService.MAX_LIMIT + 1));
+        assertThrows(BadRequestException.class,
+                () -> searchService.searchFuzzy(null, 10));
+        verifyNoInteractions(searchIndex);
+    }
+
+    @Test
+    void searchFuzzyInMemory() {
+        List<FuzzyHit> hits = List.of(
+                new FuzzyHit(NameKind.COUNTRY, 1L, "Belarus", 0.7));
+        when(searchIndex.searchFuzzy("Belaruss", 5)).thenReturn(hits);
+
+        assertEquals(hits, searchService.searchFuzzy("Belaruss", 5));
+        verifyNoInteractions(fuzzySearchRepository);
+    }
+
+    @Test
+    void searchFuzzyInPostgres() {
+        List<FuzzyHit> hits = List.of(
+                new FuzzyHit(NameKind.CITY, 2L, "Minsk", 0.5));
+        when(properties.isPostgresFuzzy()).thenReturn(true);
+        when(properties.getSimilarityThreshold()).thenReturn(0.3);
+        when(fuzzySearchRepository.search("Minks", 5, 0.3)).thenReturn(hits);
+
+        assertEquals(hits, searchService.searchFuzzy("Minks", 5));
+        verifyNoInteractions(searchIndex);
+    }
+}